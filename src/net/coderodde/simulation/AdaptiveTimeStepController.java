@@ -0,0 +1,165 @@
+package net.coderodde.simulation;
+
+import java.util.List;
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class chooses the time step of each simulation step. The time step is
+ * bounded by three criteria:
+ * <ol>
+ *   <li>no particle may travel more than {@code safetyFactor} times its 
+ *       radius in one step,</li>
+ *   <li>no particle may be accelerated such that 
+ *       {@code a * dt^2 > safetyFactor^2 * radius},</li>
+ *   <li>the relative kinetic energy correction of the previous step, a 
+ *       measure of the integration error, must stay around 
+ *       {@code energyErrorTolerance}; the step grows when the error is 
+ *       smaller, and shrinks when it is larger.</li>
+ * </ol>
+ * The result is clamped to {@code [minimumTimeStep, maximumTimeStep]}.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class AdaptiveTimeStepController {
+
+    /**
+     * The maximum factor by which the time step may grow in one step.
+     */
+    private static final double MAXIMUM_GROWTH = 2.0;
+
+    /**
+     * The factor by which the time step shrinks after a rolled back step.
+     */
+    private static final double REJECTION_SHRINK = 0.5;
+
+    /**
+     * Keeps the error-based estimate slightly below the tolerance.
+     */
+    private static final double ERROR_SAFETY = 0.9;
+
+    private final double minimumTimeStep;
+    private final double maximumTimeStep;
+    private final double safetyFactor;
+    private final double energyErrorTolerance;
+    private double previousTimeStep = Double.NaN;
+    private double previousEnergyError;
+    private boolean rejected;
+
+    public AdaptiveTimeStepController(double minimumTimeStep,
+                                      double maximumTimeStep,
+                                      double safetyFactor,
+                                      double energyErrorTolerance) {
+        this.minimumTimeStep = checkPositive(minimumTimeStep, 
+                                             "minimum time step");
+        this.maximumTimeStep = checkPositive(maximumTimeStep,
+                                             "maximum time step");
+        this.safetyFactor = checkPositive(safetyFactor, "safety factor");
+        this.energyErrorTolerance = checkPositive(energyErrorTolerance,
+                                                  "energy error tolerance");
+
+        if (minimumTimeStep > maximumTimeStep) {
+            throw new IllegalArgumentException(
+                    "The minimum time step " + minimumTimeStep + " is " + 
+                    "larger than the maximum time step " + maximumTimeStep);
+        }
+    }
+
+    public double getMinimumTimeStep() {
+        return minimumTimeStep;
+    }
+
+    public double getMaximumTimeStep() {
+        return maximumTimeStep;
+    }
+
+    /**
+     * Chooses the time step for the next step.
+     * 
+     * @param particles the particles.
+     * @param forceX    the horizontal forces acting on the particles.
+     * @param forceY    the vertical forces acting on the particles.
+     * @return the time step.
+     */
+    double selectTimeStep(List<Particle> particles, 
+                          double[] forceX, 
+                          double[] forceY) {
+        double timeStep = maximumTimeStep;
+
+        for (int i = 0, size = particles.size(); i < size; ++i) {
+            Particle particle = particles.get(i);
+            double radius = particle.getRadius();
+            double speed = particle.getSpeed();
+            double acceleration = 
+                    Math.sqrt(forceX[i] * forceX[i] + forceY[i] * forceY[i]) 
+                    / particle.getMass();
+
+            if (speed > 0.0) {
+                timeStep = Math.min(timeStep, safetyFactor * radius / speed);
+            }
+
+            if (acceleration > 0.0) {
+                timeStep = Math.min(timeStep, 
+                                    safetyFactor * 
+                                            Math.sqrt(radius / acceleration));
+            }
+        }
+
+        if (!Double.isNaN(previousTimeStep)) {
+            timeStep = Math.min(timeStep, getErrorBasedTimeStep());
+        }
+
+        return Math.max(minimumTimeStep, Math.min(maximumTimeStep, timeStep));
+    }
+
+    /**
+     * Records the outcome of a completed step.
+     * 
+     * @param timeStep    the time step used.
+     * @param energyError the relative kinetic energy correction of the step.
+     */
+    void accepted(double timeStep, double energyError) {
+        previousTimeStep = timeStep;
+        previousEnergyError = Math.abs(energyError);
+        rejected = false;
+    }
+
+    /**
+     * Records that a step with the given time step was rolled back.
+     * 
+     * @param timeStep the rejected time step.
+     */
+    void rejected(double timeStep) {
+        previousTimeStep = timeStep;
+        rejected = true;
+    }
+
+    private double getErrorBasedTimeStep() {
+        if (rejected) {
+            return REJECTION_SHRINK * previousTimeStep;
+        }
+
+        if (previousEnergyError == 0.0) {
+            return MAXIMUM_GROWTH * previousTimeStep;
+        }
+
+        // The error of the integrator is quadratic in the time step.
+        double factor = ERROR_SAFETY * 
+                Math.sqrt(energyErrorTolerance / previousEnergyError);
+        return Math.min(MAXIMUM_GROWTH, factor) * previousTimeStep;
+    }
+
+    private static double checkPositive(double value, String name) {
+        checkNonNaN(value, "The " + name + " is NaN.");
+        checkNonNegative(value, "The " + name + " is negative: " + value);
+        checkNonInfinite(value, "The " + name + " is infinite.");
+
+        if (value == 0.0) {
+            throw new IllegalArgumentException("The " + name + " is zero.");
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,21 @@
+package net.coderodde.simulation;
+
+import static net.coderodde.simulation.Configuration.FORCE_CONSTANT;
+
+/**
+ * This class implements the gravitational force. The returned force is 
+ * negative, which pulls the particles towards each other.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class AttractingParticlePairForce implements ParticlePairForce {
+
+    @Override
+    public double getForce(Particle particle1, Particle particle2) {
+        double distance = particle1.getDistance(particle2);
+        double mass1 = particle1.getMass();
+        double mass2 = particle2.getMass();
+        return -FORCE_CONSTANT * mass1 * mass2 / (distance * distance);
+    }
+}
@@ -0,0 +1,22 @@
+package net.coderodde.simulation;
+
+import static net.coderodde.simulation.Configuration.FORCE_CONSTANT;
+
+/**
+ * This class implements the gravitational potential energy matching 
+ * {@link AttractingParticlePairForce}.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class AttractingParticlePairPotentialEnergy 
+implements ParticlePairPotentialEnergy {
+
+    @Override
+    public double getPotentialEnergy(Particle particle1, Particle particle2) {
+        double mass1 = particle1.getMass();
+        double mass2 = particle2.getMass();
+        double distance = particle1.getDistance(particle2);
+        return -FORCE_CONSTANT * mass1 * mass2 / distance;
+    }
+}
@@ -0,0 +1,292 @@
+package net.coderodde.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class approximates the forces via a Barnes-Hut quadtree. Each tree 
+ * node summarizes its particles as a pseudo-particle of the total mass placed
+ * at their center of mass. When a node of side {@code s} is at the distance 
+ * {@code d} from a particle such that {@code s / d < theta}, the force of the
+ * pseudo-particle replaces the forces of the particles in the node. This runs
+ * in {@code O(n log n)} time; the smaller the opening angle {@code theta}, the
+ * more accurate and the slower the approximation.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class BarnesHutForceSolver implements ForceSolver {
+
+    /**
+     * The maximum number of particles in a leaf.
+     */
+    private static final int LEAF_SIZE = 8;
+
+    /**
+     * The maximum depth of the tree. Guards against coincident particles.
+     */
+    private static final int MAXIMUM_DEPTH = 48;
+
+    private final double theta;
+
+    /**
+     * The permutation of the particle indices. The particles of node 
+     * {@code v} are {@code order[nodeBegin[v]], ..., order[nodeEnd[v] - 1]}.
+     */
+    private int[] order = new int[0];
+    private int nodeCount;
+    private double[] nodeMinX = new double[0];
+    private double[] nodeMinY = new double[0];
+    private double[] nodeSide = new double[0];
+    private int[] nodeBegin = new int[0];
+    private int[] nodeEnd = new int[0];
+
+    /**
+     * The four children of node {@code v} are stored at 
+     * {@code 4 * v, ..., 4 * v + 3}; {@code -1} marks a missing child. 
+     */
+    private int[] nodeChildren = new int[0];
+    private boolean[] nodeLeaf = new boolean[0];
+    private Particle[] nodePseudoParticles = new Particle[0];
+    private int[] stack = new int[0];
+
+    public BarnesHutForceSolver(double theta) {
+        checkNonNaN(theta, "The opening angle is NaN.");
+        checkNonNegative(theta, "The opening angle is negative: " + theta);
+        checkNonInfinite(theta, "The opening angle is infinite.");
+        this.theta = theta;
+    }
+
+    public double getTheta() {
+        return theta;
+    }
+
+    @Override
+    public void computeForces(List<Particle> particles,
+                              ParticlePairForce particlePairForce,
+                              double[] forceX,
+                              double[] forceY) {
+        buildTree(particles);
+        double thetaSquared = theta * theta;
+
+        for (int i = 0, size = particles.size(); i < size; ++i) {
+            Particle particle = particles.get(i);
+            double x = particle.getX();
+            double y = particle.getY();
+            double fx = 0.0;
+            double fy = 0.0;
+            int stackSize = 0;
+            stack[stackSize++] = 0;
+
+            while (stackSize > 0) {
+                int node = stack[--stackSize];
+
+                if (nodeLeaf[node]) {
+                    for (int k = nodeBegin[node]; k < nodeEnd[node]; ++k) {
+                        int j = order[k];
+
+                        if (i == j) {
+                            continue;
+                        }
+
+                        Particle other = particles.get(j);
+                        double vectorLength = 
+                                particlePairForce.getForce(particle, other);
+                        double dx = x - other.getX();
+                        double dy = y - other.getY();
+                        double distance = Math.sqrt(dx * dx + dy * dy);
+                        fx += vectorLength * dx / distance;
+                        fy += vectorLength * dy / distance;
+                    }
+
+                    continue;
+                }
+
+                Particle pseudoParticle = nodePseudoParticles[node];
+                double dx = x - pseudoParticle.getX();
+                double dy = y - pseudoParticle.getY();
+                double distanceSquared = dx * dx + dy * dy;
+                double side = nodeSide[node];
+
+                if (side * side < thetaSquared * distanceSquared 
+                        && !contains(node, x, y)) {
+                    double vectorLength = 
+                            particlePairForce.getForce(particle, 
+                                                       pseudoParticle);
+                    double distance = Math.sqrt(distanceSquared);
+                    fx += vectorLength * dx / distance;
+                    fy += vectorLength * dy / distance;
+                    continue;
+                }
+
+                for (int c = 4 * node; c < 4 * node + 4; ++c) {
+                    if (nodeChildren[c] >= 0) {
+                        stack[stackSize++] = nodeChildren[c];
+                    }
+                }
+            }
+
+            forceX[i] = fx;
+            forceY[i] = fy;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Barnes-Hut (theta " + theta + ")";
+    }
+
+    private boolean contains(int node, double x, double y) {
+        double minX = nodeMinX[node];
+        double minY = nodeMinY[node];
+        double side = nodeSide[node];
+        return x >= minX && x <= minX + side && y >= minY && y <= minY + side;
+    }
+
+    private void buildTree(List<Particle> particles) {
+        int size = particles.size();
+
+        if (order.length < size) {
+            order = new int[size];
+        }
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0; i < size; ++i) {
+            Particle particle = particles.get(i);
+            order[i] = i;
+            minX = Math.min(minX, particle.getX());
+            minY = Math.min(minY, particle.getY());
+            maxX = Math.max(maxX, particle.getX());
+            maxY = Math.max(maxY, particle.getY());
+        }
+
+        double side = Math.max(maxX - minX, maxY - minY);
+        // Make sure the maximum coordinates fall inside the root.
+        side = side > 0.0 ? side * (1.0 + 1e-9) : 1.0;
+        nodeCount = 0;
+        buildNode(particles, 0, size, minX, minY, side, 0);
+
+        if (stack.length < 3 * MAXIMUM_DEPTH + 4) {
+            stack = new int[3 * MAXIMUM_DEPTH + 4];
+        }
+    }
+
+    private int buildNode(List<Particle> particles,
+                          int begin, 
+                          int end, 
+                          double minX, 
+                          double minY, 
+                          double side,
+                          int depth) {
+        int node = nodeCount++;
+        ensureNodeCapacity(nodeCount);
+        nodeMinX[node] = minX;
+        nodeMinY[node] = minY;
+        nodeSide[node] = side;
+        nodeBegin[node] = begin;
+        nodeEnd[node] = end;
+
+        if (end - begin <= LEAF_SIZE || depth == MAXIMUM_DEPTH) {
+            nodeLeaf[node] = true;
+            nodePseudoParticles[node] = null;
+            return node;
+        }
+
+        double mass = 0.0;
+        double weightedX = 0.0;
+        double weightedY = 0.0;
+
+        for (int k = begin; k < end; ++k) {
+            Particle particle = particles.get(order[k]);
+            mass += particle.getMass();
+            weightedX += particle.getMass() * particle.getX();
+            weightedY += particle.getMass() * particle.getY();
+        }
+
+        Particle pseudoParticle = new Particle(mass, 0.0);
+        pseudoParticle.setPositionUnchecked(weightedX / mass, 
+                                            weightedY / mass);
+        nodeLeaf[node] = false;
+        nodePseudoParticles[node] = pseudoParticle;
+
+        double halfSide = side / 2.0;
+        double middleX = minX + halfSide;
+        double middleY = minY + halfSide;
+        int splitY = partition(particles, begin, end, middleY, false);
+        int splitBottomX = partition(particles, begin, splitY, middleX, true);
+        int splitTopX = partition(particles, splitY, end, middleX, true);
+        int[] bounds = { begin, splitBottomX, splitY, splitTopX, end };
+
+        for (int quadrant = 0; quadrant < 4; ++quadrant) {
+            int child = -1;
+
+            if (bounds[quadrant] < bounds[quadrant + 1]) {
+                child = buildNode(particles,
+                                  bounds[quadrant],
+                                  bounds[quadrant + 1],
+                                  (quadrant & 1) == 0 ? minX : middleX,
+                                  (quadrant & 2) == 0 ? minY : middleY,
+                                  halfSide,
+                                  depth + 1);
+            }
+
+            // The array may have been reallocated by the recursion.
+            nodeChildren[4 * node + quadrant] = child;
+        }
+
+        return node;
+    }
+
+    /**
+     * Reorders {@code order[begin], ..., order[end - 1]} such that the 
+     * particles with the coordinate below {@code middle} come first.
+     * 
+     * @return the index of the first particle not below {@code middle}.
+     */
+    private int partition(List<Particle> particles,
+                          int begin, 
+                          int end, 
+                          double middle, 
+                          boolean horizontal) {
+        int left = begin;
+        int right = end - 1;
+
+        while (left <= right) {
+            Particle particle = particles.get(order[left]);
+            double coordinate = horizontal ? particle.getX() : particle.getY();
+
+            if (coordinate < middle) {
+                ++left;
+            } else {
+                int tmp = order[left];
+                order[left] = order[right];
+                order[right--] = tmp;
+            }
+        }
+
+        return left;
+    }
+
+    private void ensureNodeCapacity(int capacity) {
+        if (nodeMinX.length >= capacity) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, 2 * nodeMinX.length);
+        nodeMinX = Arrays.copyOf(nodeMinX, newCapacity);
+        nodeMinY = Arrays.copyOf(nodeMinY, newCapacity);
+        nodeSide = Arrays.copyOf(nodeSide, newCapacity);
+        nodeBegin = Arrays.copyOf(nodeBegin, newCapacity);
+        nodeEnd = Arrays.copyOf(nodeEnd, newCapacity);
+        nodeChildren = Arrays.copyOf(nodeChildren, 4 * newCapacity);
+        nodeLeaf = Arrays.copyOf(nodeLeaf, newCapacity);
+        nodePseudoParticles = Arrays.copyOf(nodePseudoParticles, newCapacity);
+    }
+}
@@ -0,0 +1,297 @@
+package net.coderodde.simulation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class selects the fastest of several candidate force solvers that is 
+ * accurate enough for the current particle distribution.
+ * <p>
+ * A calibration runs each candidate on the actual particles and measures its
+ * running time as the minimum over {@link #TIMED_RUNS} runs, so that the 
+ * first, cold run, paying for class loading, JIT compilation and cache 
+ * misses, does not decide the choice. The error of a candidate is the 
+ * relative root mean square difference of its forces and the exact forces on
+ * a random sample of particles. The exact forces of the sample are computed 
+ * by direct summation, which also gives an estimate of the running time of 
+ * the exact {@link DirectSumForceSolver} without running it on all 
+ * particles. The fastest candidate within the error tolerance is then used 
+ * until the next calibration; if no candidate is both accurate enough and 
+ * faster than the estimated direct sum, the direct sum is used.
+ * <p>
+ * Calibrations are repeated after every {@code recalibrationInterval} calls 
+ * and whenever the number of particles has changed by more than 
+ * {@link #RECALIBRATION_SIZE_CHANGE} of the calibrated number, so the choice
+ * follows the evolving distribution without recalibrating at every merge.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class CalibratingForceSolver implements ForceSolver {
+
+    /**
+     * The number of particles whose exact forces are compared against.
+     */
+    private static final int SAMPLE_SIZE = 256;
+
+    /**
+     * The number of times each solver is run per calibration. The fastest run
+     * counts.
+     */
+    private static final int TIMED_RUNS = 3;
+
+    /**
+     * The relative change of the number of particles since the latest 
+     * calibration beyond which the solver is recalibrated early.
+     */
+    private static final double RECALIBRATION_SIZE_CHANGE = 0.1;
+
+    private final List<ForceSolver> candidates;
+    private final ForceSolver referenceSolver = new DirectSumForceSolver();
+    private final double errorTolerance;
+    private final int recalibrationInterval;
+    private final Random random = new Random();
+    private ForceSolver selectedSolver;
+    private double selectedError;
+    private int callsSinceCalibration;
+    private int calibratedSize = -1;
+    private long numberOfCalibrations;
+    private double[] probeX = new double[0];
+    private double[] probeY = new double[0];
+    private double[] referenceX = new double[0];
+    private double[] referenceY = new double[0];
+    private final int[] sample = new int[SAMPLE_SIZE];
+
+    /**
+     * Constructs a calibrating solver.
+     * 
+     * @param candidates            the candidate solvers.
+     * @param errorTolerance        the maximum relative root mean square 
+     *                              force error.
+     * @param recalibrationInterval the number of calls between two 
+     *                              calibrations.
+     */
+    public CalibratingForceSolver(List<ForceSolver> candidates,
+                                  double errorTolerance,
+                                  int recalibrationInterval) {
+        Objects.requireNonNull(candidates, "The candidate list is null.");
+        checkNonNaN(errorTolerance, "The error tolerance is NaN.");
+        checkNonNegative(errorTolerance, 
+                         "The error tolerance is negative: " + 
+                         errorTolerance);
+        checkNonInfinite(errorTolerance, "The error tolerance is infinite.");
+
+        if (recalibrationInterval < 1) {
+            throw new IllegalArgumentException(
+                    "The recalibration interval must be positive: " + 
+                    recalibrationInterval);
+        }
+
+        this.candidates = new ArrayList<>(candidates.size());
+
+        for (ForceSolver candidate : candidates) {
+            this.candidates.add(
+                    Objects.requireNonNull(candidate, 
+                                           "A candidate solver is null."));
+        }
+
+        this.errorTolerance = errorTolerance;
+        this.recalibrationInterval = recalibrationInterval;
+    }
+
+    @Override
+    public void computeForces(List<Particle> particles,
+                              ParticlePairForce particlePairForce,
+                              double[] forceX,
+                              double[] forceY) {
+        if (selectedSolver == null 
+                || callsSinceCalibration >= recalibrationInterval
+                || Math.abs(particles.size() - calibratedSize) > 
+                   RECALIBRATION_SIZE_CHANGE * calibratedSize) {
+            calibrate(particles, particlePairForce, forceX, forceY);
+            return;
+        }
+
+        ++callsSinceCalibration;
+        selectedSolver.computeForces(particles, 
+                                     particlePairForce, 
+                                     forceX, 
+                                     forceY);
+    }
+
+    @Override
+    public String getName() {
+        return "calibrating (" + (selectedSolver == null ? 
+                                  "not calibrated" : 
+                                  selectedSolver.getName()) + ")";
+    }
+
+    /**
+     * Returns the solver chosen by the latest calibration, or {@code null} if
+     * there has been no calibration yet.
+     * 
+     * @return the selected solver.
+     */
+    public ForceSolver getSelectedSolver() {
+        return selectedSolver;
+    }
+
+    /**
+     * Returns the relative force error of the selected solver as measured by
+     * the latest calibration.
+     * 
+     * @return the relative error.
+     */
+    public double getSelectedError() {
+        return selectedError;
+    }
+
+    public long getNumberOfCalibrations() {
+        return numberOfCalibrations;
+    }
+
+    public List<ForceSolver> getCandidates() {
+        return Collections.unmodifiableList(candidates);
+    }
+
+    /**
+     * Runs all candidates, selects the best one and stores its forces to the
+     * output arrays.
+     */
+    private void calibrate(List<Particle> particles,
+                           ParticlePairForce particlePairForce,
+                           double[] forceX,
+                           double[] forceY) {
+        int size = particles.size();
+        ensureCapacity(size);
+        int sampleSize = selectSample(size);
+
+        long sampleTime = Long.MAX_VALUE;
+
+        for (int run = 0; run < TIMED_RUNS; ++run) {
+            long startTime = System.nanoTime();
+
+            for (int s = 0; s < sampleSize; ++s) {
+                DirectSumForceSolver.computeForce(particles,
+                                                  particlePairForce,
+                                                  sample[s],
+                                                  referenceX,
+                                                  referenceY);
+            }
+
+            sampleTime = Math.min(sampleTime, System.nanoTime() - startTime);
+        }
+
+        long referenceTime = 
+                sampleSize == 0 ? 0L : sampleTime * size / sampleSize;
+
+        ForceSolver bestSolver = null;
+        long bestTime = referenceTime;
+        double bestError = 0.0;
+
+        for (ForceSolver candidate : candidates) {
+            long time = Long.MAX_VALUE;
+            double error = 0.0;
+
+            for (int run = 0; run < TIMED_RUNS; ++run) {
+                long startTime = System.nanoTime();
+                candidate.computeForces(particles, 
+                                        particlePairForce, 
+                                        probeX, 
+                                        probeY);
+                time = Math.min(time, System.nanoTime() - startTime);
+
+                if (run == 0) {
+                    error = computeError(sampleSize);
+
+                    if (error > errorTolerance) {
+                        // Too inaccurate however fast; not worth timing.
+                        break;
+                    }
+                }
+            }
+
+            if (error <= errorTolerance && time < bestTime) {
+                bestSolver = candidate;
+                bestTime = time;
+                bestError = error;
+                System.arraycopy(probeX, 0, forceX, 0, size);
+                System.arraycopy(probeY, 0, forceY, 0, size);
+            }
+        }
+
+        if (bestSolver == null) {
+            bestSolver = referenceSolver;
+            referenceSolver.computeForces(particles, 
+                                          particlePairForce, 
+                                          forceX, 
+                                          forceY);
+        }
+
+        selectedSolver = bestSolver;
+        selectedError = bestError;
+        callsSinceCalibration = 0;
+        calibratedSize = size;
+        ++numberOfCalibrations;
+    }
+
+    /**
+     * Chooses the indices of the particles whose exact forces are computed.
+     * 
+     * @param size the number of particles.
+     * @return the number of chosen particles.
+     */
+    private int selectSample(int size) {
+        if (size <= SAMPLE_SIZE) {
+            for (int i = 0; i < size; ++i) {
+                sample[i] = i;
+            }
+
+            return size;
+        }
+
+        for (int s = 0; s < SAMPLE_SIZE; ++s) {
+            sample[s] = random.nextInt(size);
+        }
+
+        return SAMPLE_SIZE;
+    }
+
+    private double computeError(int sampleSize) {
+        double errorSum = 0.0;
+        double referenceSum = 0.0;
+
+        for (int s = 0; s < sampleSize; ++s) {
+            int i = sample[s];
+            double dx = probeX[i] - referenceX[i];
+            double dy = probeY[i] - referenceY[i];
+            errorSum += dx * dx + dy * dy;
+            referenceSum += referenceX[i] * referenceX[i] 
+                          + referenceY[i] * referenceY[i];
+        }
+
+        if (Double.isNaN(errorSum)) {
+            // A non-finite force is never acceptable.
+            return Double.POSITIVE_INFINITY;
+        }
+
+        return referenceSum == 0.0 ? 
+               Math.sqrt(errorSum) : 
+               Math.sqrt(errorSum / referenceSum);
+    }
+
+    private void ensureCapacity(int size) {
+        if (probeX.length < size) {
+            probeX = new double[size];
+            probeY = new double[size];
+            referenceX = new double[size];
+            referenceY = new double[size];
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package net.coderodde.simulation;
+
+import java.util.List;
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class computes the forces by summing only over the particle pairs 
+ * closer than a cutoff distance. The pairs are found by binning the particles
+ * into a uniform grid with cells no smaller than the cutoff, so only the 3 x 3
+ * neighbourhood of each cell needs to be scanned. For a short-ranged force or
+ * a uniform density, this runs in linear time. The force beyond the cutoff is
+ * ignored.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class CellListForceSolver implements ForceSolver {
+
+    private final double cutoff;
+    private final UniformCellGrid grid;
+
+    public CellListForceSolver(double cutoff) {
+        checkNonNaN(cutoff, "The cutoff is NaN.");
+        checkNonNegative(cutoff, "The cutoff is negative: " + cutoff);
+        checkNonInfinite(cutoff, "The cutoff is infinite.");
+
+        if (cutoff == 0.0) {
+            throw new IllegalArgumentException("The cutoff is zero.");
+        }
+
+        this.cutoff = cutoff;
+        this.grid = new UniformCellGrid(cutoff);
+    }
+
+    public double getCutoff() {
+        return cutoff;
+    }
+
+    @Override
+    public void computeForces(List<Particle> particles,
+                              ParticlePairForce particlePairForce,
+                              double[] forceX,
+                              double[] forceY) {
+        grid.build(particles);
+
+        int[] cellStarts = grid.getCellStarts();
+        int[] sortedIndices = grid.getSortedIndices();
+        int columns = grid.getColumns();
+        int rows = grid.getRows();
+        double cutoffSquared = cutoff * cutoff;
+
+        for (int i = 0, size = particles.size(); i < size; ++i) {
+            Particle particle = particles.get(i);
+            int cell = grid.getCellOfParticle(i);
+            int column = cell % columns;
+            int row = cell / columns;
+            double fx = 0.0;
+            double fy = 0.0;
+
+            for (int r = Math.max(0, row - 1); 
+                     r <= Math.min(rows - 1, row + 1); 
+                     ++r) {
+                for (int c = Math.max(0, column - 1); 
+                         c <= Math.min(columns - 1, column + 1); 
+                         ++c) {
+                    int neighbourCell = r * columns + c;
+
+                    for (int k = cellStarts[neighbourCell]; 
+                             k < cellStarts[neighbourCell + 1]; 
+                             ++k) {
+                        int j = sortedIndices[k];
+
+                        if (i == j) {
+                            continue;
+                        }
+
+                        Particle other = particles.get(j);
+                        double dx = particle.getX() - other.getX();
+                        double dy = particle.getY() - other.getY();
+                        double distanceSquared = dx * dx + dy * dy;
+
+                        if (distanceSquared >= cutoffSquared) {
+                            continue;
+                        }
+
+                        double vectorLength = 
+                                particlePairForce.getForce(particle, other);
+                        double distance = Math.sqrt(distanceSquared);
+                        fx += vectorLength * dx / distance;
+                        fy += vectorLength * dy / distance;
+                    }
+                }
+            }
+
+            forceX[i] = fx;
+            forceY[i] = fy;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "cell list (cutoff " + cutoff + ")";
+    }
+}
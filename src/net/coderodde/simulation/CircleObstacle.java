@@ -0,0 +1,35 @@
+package net.coderodde.simulation;
+
+import static net.coderodde.simulation.SegmentObstacle.checkCoordinate;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class implements a circular obstacle.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class CircleObstacle implements Obstacle {
+
+    private static final double[] NO_SEGMENTS = {};
+
+    private final double[] circle;
+
+    public CircleObstacle(double centerX, double centerY, double radius) {
+        checkNonNegative(radius, 
+                         "The obstacle radius is negative: " + radius);
+        this.circle = new double[]{ checkCoordinate(centerX), 
+                                    checkCoordinate(centerY), 
+                                    checkCoordinate(radius) };
+    }
+
+    @Override
+    public double[] getSegments() {
+        return NO_SEGMENTS;
+    }
+
+    @Override
+    public double[] getCircles() {
+        return circle.clone();
+    }
+}
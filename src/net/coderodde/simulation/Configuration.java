@@ -40,6 +40,52 @@ public final class Configuration {
      * The time step.
      */
     public static final double TIME_STEP = 0.01;
+
+    /**
+     * The smallest time step the adaptive time step controller may choose.
+     */
+    public static final double MINIMUM_TIME_STEP = 1e-5;
+
+    /**
+     * The largest time step the adaptive time step controller may choose.
+     */
+    public static final double MAXIMUM_TIME_STEP = 0.05;
+
+    /**
+     * The number of radii a particle may travel in one adaptive time step.
+     */
+    public static final double TIME_STEP_SAFETY_FACTOR = 2.0;
+
+    /**
+     * The relative kinetic energy correction per step the adaptive time step
+     * controller aims at.
+     */
+    public static final double ENERGY_ERROR_TOLERANCE = 0.05;
+    
+    /**
+     * The maximum number of times a failed step is rolled back and retried 
+     * with a halved time step.
+     */
+    public static final int MAXIMUM_STEP_RETRIES = 4;
+
+    /**
+     * The maximum relative correction of the total kinetic energy the velocity
+     * normalization may apply in a single step before the step is considered
+     * numerically broken.
+     */
+    public static final double MAXIMUM_KINETIC_ENERGY_CORRECTION = 0.5;
+    
+    /**
+     * The maximum number of obstacle bounces resolved for a single particle 
+     * within one step.
+     */
+    public static final int MAXIMUM_OBSTACLE_BOUNCES = 4;
+
+    /**
+     * The distance by which a particle is pushed off an obstacle surface after
+     * a bounce, so that the next sweep does not report the same contact.
+     */
+    public static final double OBSTACLE_CONTACT_EPSILON = 1e-9;
     
     /**
      * The maximum initial velocity horizontally and/or vertically.
@@ -50,4 +96,106 @@ public final class Configuration {
      * The default number of particles in the simulation.
      */
     public static final int DEFAULT_NUMBER_OF_PARTICLES = 10;
+
+    /**
+     * The number of particles starting from which the particles are rendered
+     * as a heatmap in the automatic render mode. Below it, the sprites are 
+     * used, which still keep up with a few tens of thousands of particles.
+     */
+    public static final int HEATMAP_PARTICLE_THRESHOLD = 100_000;
+
+    /**
+     * The side length of a heatmap cell in pixels.
+     */
+    public static final int HEATMAP_CELL_SIZE = 2;
+
+    /**
+     * The default number of steps between two exported frames.
+     */
+    public static final int DEFAULT_EXPORT_INTERVAL = 10;
+
+    /**
+     * The maximum relative root mean square force error of an approximate 
+     * force solver.
+     */
+    public static final double FORCE_ERROR_TOLERANCE = 0.02;
+
+    /**
+     * The number of force computations between two force solver 
+     * calibrations.
+     */
+    public static final int FORCE_SOLVER_RECALIBRATION_INTERVAL = 500;
+
+    /**
+     * The opening angle of the Barnes-Hut force solver.
+     */
+    public static final double BARNES_HUT_OPENING_ANGLE = 0.5;
+
+    /**
+     * The cutoff distance of the cell list force solver.
+     */
+    public static final double CELL_LIST_CUTOFF = 20.0;
+
+    /**
+     * The distance within which the far-field cache computes the forces 
+     * exactly at every step. Together with the tolerance, it bounds the 
+     * relative error of a cached pair force by about 
+     * {@code 2 * tolerance / nearRadius}.
+     */
+    public static final double FAR_FIELD_CACHE_NEAR_RADIUS = 20.0;
+
+    /**
+     * The largest displacement of a particle pair whose cached force is reused
+     * by the far-field cache. A particle is refreshed once it moves half of 
+     * this, so it should be a few times the distance a typical particle 
+     * covers per step: with the default time step and speeds of about 20, one
+     * refresh per particle every few steps.
+     */
+    public static final double FAR_FIELD_CACHE_TOLERANCE = 1.0;
+
+    /**
+     * The position quantum of recorded trajectories as a fraction of the 
+     * world width and height.
+     */
+    public static final double TRAJECTORY_POSITION_RESOLUTION = 1e-5;
+
+    /**
+     * The velocity quantum of recorded trajectories.
+     */
+    public static final double TRAJECTORY_VELOCITY_QUANTUM = 1e-3;
+
+    /**
+     * The number of frames between two lossless key frames of a recorded 
+     * trajectory.
+     */
+    public static final int TRAJECTORY_KEY_FRAME_INTERVAL = 100;
+
+    /**
+     * The number of recorded frames that may wait for encoding.
+     */
+    public static final int TRAJECTORY_QUEUE_CAPACITY = 16;
+
+    /**
+     * The distance below which the pair force is entirely short-range under 
+     * multiple time stepping.
+     */
+    public static final double MULTIPLE_TIME_STEPPING_INNER_RADIUS = 4.0;
+
+    /**
+     * The distance beyond which the pair force is entirely long-range under
+     * multiple time stepping.
+     */
+    public static final double MULTIPLE_TIME_STEPPING_OUTER_RADIUS = 8.0;
+
+    /**
+     * The number of steps between two evaluations of the long-range forces
+     * under multiple time stepping.
+     */
+    public static final int MULTIPLE_TIME_STEPPING_FAR_FORCE_INTERVAL = 4;
+
+    /**
+     * The number of steps between two spatial index snapshots answering the
+     * mouse picks. At the default sleep time, about ten snapshots per second.
+     */
+    public static final int SPATIAL_QUERY_INTERVAL = 10;
 }
@@ -0,0 +1,65 @@
+package net.coderodde.simulation;
+
+import java.util.List;
+
+/**
+ * This class computes the forces by summing over all ordered particle pairs. 
+ * It runs in quadratic time, but is exact.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class DirectSumForceSolver implements ForceSolver {
+
+    @Override
+    public void computeForces(List<Particle> particles,
+                              ParticlePairForce particlePairForce,
+                              double[] forceX,
+                              double[] forceY) {
+        for (int i = 0, size = particles.size(); i < size; ++i) {
+            computeForce(particles, particlePairForce, i, forceX, forceY);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "direct sum";
+    }
+
+    /**
+     * Computes the exact force acting on a single particle.
+     * 
+     * @param particles         the particles.
+     * @param particlePairForce the force between two particles.
+     * @param i                 the index of the particle.
+     * @param forceX            the output array of horizontal components.
+     * @param forceY            the output array of vertical components.
+     */
+    static void computeForce(List<Particle> particles,
+                             ParticlePairForce particlePairForce,
+                             int i,
+                             double[] forceX,
+                             double[] forceY) {
+        Particle particle = particles.get(i);
+        double fx = 0.0;
+        double fy = 0.0;
+
+        for (int j = 0, size = particles.size(); j < size; ++j) {
+            if (i == j) {
+                // Do not compute the force from and to itself.
+                continue;
+            }
+
+            Particle other = particles.get(j);
+            double vectorLength = particlePairForce.getForce(particle, other);
+            double dx = particle.getX() - other.getX();
+            double dy = particle.getY() - other.getY();
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            fx += vectorLength * dx / distance;
+            fy += vectorLength * dy / distance;
+        }
+
+        forceX[i] = fx;
+        forceY[i] = fy;
+    }
+}
@@ -0,0 +1,495 @@
+package net.coderodde.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class computes the forces exactly for the near pairs and reuses cached
+ * sums for the far pairs. Every particle has a reference position, and for
+ * every particle the solver caches the sum of the forces from its far
+ * partners, evaluated with both the particle and the partners at their
+ * reference positions. The near partners, found within
+ * {@code nearRadius + tolerance} of the reference position, are kept in a
+ * Verlet list and recomputed exactly at every call.
+ * <p>
+ * Once a particle moves farther than {@code tolerance / 2} from its reference
+ * position, the reference position is moved to the current position, the far
+ * sum of the particle is recomputed, and the contribution of the particle to
+ * the far sums of all the other particles is corrected. This costs linear
+ * time per moved particle. Thus, the displacement of a cached pair never
+ * exceeds {@code tolerance}, and every far partner stays farther than
+ * {@code nearRadius}, so the relative error of a cached pair force is at most
+ * about {@code 2 * tolerance / nearRadius}.
+ * <p>
+ * A call costs about {@code n * (m + k)} pair evaluations, where {@code m} is
+ * the number of the particles that moved past {@code tolerance / 2} and
+ * {@code k} the average length of the near lists, against {@code n^2 / 2}
+ * for the direct sum, which evaluates each pair once. The cache thus wins
+ * only while {@code m + k} stays well below {@code n / 2}: when a typical
+ * particle covers a small fraction of {@code tolerance / 2} per step, so that
+ * the hit rate is about 0.8 or above, and the near radius holds a small 
+ * fraction of the particles. Once more than a third of the particles have
+ * moved, all the far sums are recomputed, which costs more than a direct
+ * sum; fast or hot systems, or a tolerance too small for the time step, fall
+ * into this regime and run slower than without the cache. Raising the
+ * tolerance and the near radius together keeps the error bound and raises
+ * the hit rate.
+ * <p>
+ * The cache is keyed by the particle identifiers, so reordering the storage
+ * does not invalidate it. It is invalidated entirely when the number of
+ * particles or the pair force changes.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class FarFieldCacheForceSolver implements ForceSolver {
+
+    /**
+     * If a larger fraction of the particles has moved too far, all the far 
+     * sums are recomputed at once.
+     */
+    private static final double MAXIMUM_MOVED_PARTICLES_FRACTION = 1.0 / 3.0;
+
+    private final double nearRadius;
+    private final double tolerance;
+
+    /**
+     * The cached far force sums, indexed by particle identifier.
+     */
+    private double[] farForceX = new double[0];
+    private double[] farForceY = new double[0];
+
+    /**
+     * The sum of {@code 2 |F| / r} over the far pairs of each particle. Times
+     * the relative displacement, this is a first-order bound on the error of
+     * an inverse-square far sum.
+     */
+    private double[] farForceGradient = new double[0];
+
+    /**
+     * Copies of the particles placed at their reference positions. The pair
+     * force only accepts particles, so the cached terms are evaluated on
+     * these.
+     */
+    private Particle[] references = new Particle[0];
+
+    /**
+     * The identifiers of the near partners of each particle.
+     */
+    private int[][] nearLists = new int[0][];
+    private int[] nearListSizes = new int[0];
+    private Particle[] idToParticle = new Particle[0];
+
+    /**
+     * The number of particles at the previous call, or -1 if the cache is
+     * empty.
+     */
+    private int cachedSize = -1;
+    private ParticlePairForce cachedParticlePairForce;
+    private long hits;
+    private long lookups;
+    private double estimatedError;
+
+    /**
+     * Constructs a caching force solver.
+     *
+     * @param nearRadius the distance within which the forces are always
+     *                   computed exactly.
+     * @param tolerance  the largest displacement of a pair whose force is
+     *                   reused.
+     */
+    public FarFieldCacheForceSolver(double nearRadius, double tolerance) {
+        checkNonNaN(nearRadius, "The near radius is NaN.");
+        checkNonNegative(nearRadius,
+                         "The near radius is negative: " + nearRadius);
+        checkNonInfinite(nearRadius, "The near radius is infinite.");
+        checkNonNaN(tolerance, "The tolerance is NaN.");
+        checkNonNegative(tolerance, "The tolerance is negative: " + tolerance);
+        checkNonInfinite(tolerance, "The tolerance is infinite.");
+        this.nearRadius = nearRadius;
+        this.tolerance = tolerance;
+    }
+
+    public double getNearRadius() {
+        return nearRadius;
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Returns the fraction of the far sums reused from the cache over all
+     * calls.
+     *
+     * @return the hit rate, or zero if no forces have been computed yet.
+     */
+    public double getHitRate() {
+        return lookups == 0 ? 0.0 : (1.0 * hits) / lookups;
+    }
+
+    /**
+     * Returns the estimated relative error of the latest call: the norm of the
+     * per-particle error bounds divided by the norm of the forces. The bounds
+     * are first-order and assume an inverse-square pair force.
+     *
+     * @return the estimated relative error.
+     */
+    public double getEstimatedError() {
+        return estimatedError;
+    }
+
+    /**
+     * Drops all the cached far sums.
+     */
+    public void invalidate() {
+        cachedSize = -1;
+    }
+
+    @Override
+    public void computeForces(List<Particle> particles,
+                              ParticlePairForce particlePairForce,
+                              double[] forceX,
+                              double[] forceY) {
+        int size = particles.size();
+        int maximumId = -1;
+
+        for (int i = 0; i < size; ++i) {
+            int id = particles.get(i).getId();
+
+            if (id < 0) {
+                throw new IllegalArgumentException(
+                        "The particles must be added to a simulation engine.");
+            }
+
+            maximumId = Math.max(maximumId, id);
+        }
+
+        lookups += size;
+
+        if (size != cachedSize
+                || particlePairForce != cachedParticlePairForce
+                || maximumId >= references.length
+                || countMovedParticles(particles) > 
+                   MAXIMUM_MOVED_PARTICLES_FRACTION * size) {
+            // Correcting the sums particle by particle would cost more than
+            // recomputing them all.
+            reset(particles, maximumId + 1);
+            cachedSize = size;
+            cachedParticlePairForce = particlePairForce;
+
+            for (int i = 0; i < size; ++i) {
+                refresh(particles, particlePairForce, i);
+            }
+        } else {
+            updateMovedParticles(particles, particlePairForce);
+        }
+
+        double maximumDisplacement = 0.0;
+
+        for (int i = 0; i < size; ++i) {
+            maximumDisplacement =
+                    Math.max(maximumDisplacement,
+                             getDisplacement(particles.get(i)));
+        }
+
+        double errorSquaredSum = 0.0;
+        double forceSquaredSum = 0.0;
+
+        for (int i = 0; i < size; ++i) {
+            Particle particle = particles.get(i);
+            int id = particle.getId();
+            double fx = farForceX[id];
+            double fy = farForceY[id];
+            int[] nearList = nearLists[id];
+
+            for (int k = 0, nearSize = nearListSizes[id]; k < nearSize; ++k) {
+                Particle other = idToParticle[nearList[k]];
+                double vectorLength =
+                        particlePairForce.getForce(particle, other);
+                double dx = particle.getX() - other.getX();
+                double dy = particle.getY() - other.getY();
+                double distance = Math.sqrt(dx * dx + dy * dy);
+                fx += vectorLength * dx / distance;
+                fy += vectorLength * dy / distance;
+            }
+
+            forceX[i] = fx;
+            forceY[i] = fy;
+
+            double error = farForceGradient[id] *
+                           (getDisplacement(particle) + maximumDisplacement);
+            errorSquaredSum += error * error;
+            forceSquaredSum += fx * fx + fy * fy;
+        }
+
+        estimatedError = forceSquaredSum > 0.0 ?
+                         Math.sqrt(errorSquaredSum / forceSquaredSum) :
+                         0.0;
+    }
+
+    @Override
+    public String getName() {
+        return "far-field cache";
+    }
+
+    private void reset(List<Particle> particles, int idCapacity) {
+        if (references.length < idCapacity) {
+            farForceX = new double[idCapacity];
+            farForceY = new double[idCapacity];
+            farForceGradient = new double[idCapacity];
+            references = new Particle[idCapacity];
+            nearLists = Arrays.copyOf(nearLists, idCapacity);
+            nearListSizes = new int[idCapacity];
+            idToParticle = new Particle[idCapacity];
+        } else {
+            Arrays.fill(references, null);
+            Arrays.fill(idToParticle, null);
+        }
+
+        for (Particle particle : particles) {
+            int id = particle.getId();
+            Particle reference = new Particle(particle.getMass(),
+                                              particle.getRadius());
+            reference.setPositionUnchecked(particle.getX(), particle.getY());
+            references[id] = reference;
+            idToParticle[id] = particle;
+        }
+    }
+
+    /**
+     * Counts the particles that have moved farther than half the tolerance 
+     * from their reference positions.
+     * 
+     * @param particles the particles.
+     * @return the number of moved particles, or the number of all particles
+     *         if the cache does not cover some of them.
+     */
+    private int countMovedParticles(List<Particle> particles) {
+        double halfTolerance = 0.5 * tolerance;
+        int movedParticles = 0;
+
+        for (Particle particle : particles) {
+            if (references[particle.getId()] == null) {
+                return particles.size();
+            }
+
+            if (getDisplacement(particle) > halfTolerance) {
+                ++movedParticles;
+            }
+        }
+
+        return movedParticles;
+    }
+
+    /**
+     * Returns the distance between a particle and its reference position.
+     *
+     * @param particle the particle.
+     * @return the displacement.
+     */
+    private double getDisplacement(Particle particle) {
+        Particle reference = references[particle.getId()];
+        double dx = particle.getX() - reference.getX();
+        double dy = particle.getY() - reference.getY();
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Moves the reference position of every particle that has moved farther
+     * than half the tolerance from it, corrects the far sums and the near 
+     * lists of all the other particles, and recomputes the far sum of the 
+     * moved particle. A pair that is no longer within 
+     * {@code nearRadius + tolerance} leaves the near lists and gets a far 
+     * term.
+     *
+     * @param particles         the particles.
+     * @param particlePairForce the force between two particles.
+     */
+    private void updateMovedParticles(List<Particle> particles,
+                                      ParticlePairForce particlePairForce) {
+        double halfTolerance = 0.5 * tolerance;
+        double listRadius = nearRadius + tolerance;
+        double listRadiusSquared = listRadius * listRadius;
+
+        for (int j = 0, size = particles.size(); j < size; ++j) {
+            Particle particle = particles.get(j);
+            int id = particle.getId();
+            idToParticle[id] = particle;
+
+            if (getDisplacement(particle) <= halfTolerance) {
+                ++hits;
+                continue;
+            }
+
+            Particle oldReference = references[id];
+            Particle newReference = new Particle(particle.getMass(),
+                                                 particle.getRadius());
+            newReference.setPositionUnchecked(particle.getX(),
+                                              particle.getY());
+
+            for (int i = 0; i < size; ++i) {
+                if (i == j) {
+                    continue;
+                }
+
+                int otherId = particles.get(i).getId();
+                Particle otherReference = references[otherId];
+                double dx = otherReference.getX() - newReference.getX();
+                double dy = otherReference.getY() - newReference.getY();
+                boolean near = dx * dx + dy * dy <= listRadiusSquared;
+
+                if (removeNearPartner(otherId, id)) {
+                    if (near) {
+                        addNearPartner(otherId, id);
+                    } else {
+                        // The pair has drifted apart, so its force is cached
+                        // from now on.
+                        addFarTerm(otherId, otherReference, newReference,
+                                   particlePairForce);
+                    }
+
+                    continue;
+                }
+
+                subtractFarTerm(otherId, otherReference, oldReference,
+                                particlePairForce);
+
+                if (near) {
+                    addNearPartner(otherId, id);
+                } else {
+                    addFarTerm(otherId, otherReference, newReference,
+                               particlePairForce);
+                }
+            }
+
+            references[id] = newReference;
+            refresh(particles, particlePairForce, j);
+        }
+    }
+
+    /**
+     * Removes a partner from the near list of a particle.
+     *
+     * @param id        the identifier of the particle.
+     * @param partnerId the identifier of the partner.
+     * @return {@code true} if the partner was in the near list.
+     */
+    private boolean removeNearPartner(int id, int partnerId) {
+        int[] nearList = nearLists[id];
+        int nearSize = nearListSizes[id];
+
+        for (int k = 0; k < nearSize; ++k) {
+            if (nearList[k] == partnerId) {
+                nearList[k] = nearList[nearSize - 1];
+                nearListSizes[id] = nearSize - 1;
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void addNearPartner(int id, int partnerId) {
+        int[] nearList = nearLists[id];
+        int nearSize = nearListSizes[id];
+
+        if (nearSize == nearList.length) {
+            nearLists[id] = nearList = Arrays.copyOf(nearList, 2 * nearSize);
+        }
+
+        nearList[nearSize] = partnerId;
+        nearListSizes[id] = nearSize + 1;
+    }
+
+    private void addFarTerm(int id,
+                            Particle reference,
+                            Particle partnerReference,
+                            ParticlePairForce particlePairForce) {
+        double vectorLength =
+                particlePairForce.getForce(reference, partnerReference);
+        double dx = reference.getX() - partnerReference.getX();
+        double dy = reference.getY() - partnerReference.getY();
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        farForceX[id] += vectorLength * dx / distance;
+        farForceY[id] += vectorLength * dy / distance;
+        farForceGradient[id] += 2.0 * Math.abs(vectorLength) / distance;
+    }
+
+    private void subtractFarTerm(int id,
+                                 Particle reference,
+                                 Particle partnerReference,
+                                 ParticlePairForce particlePairForce) {
+        double vectorLength =
+                particlePairForce.getForce(reference, partnerReference);
+        double dx = reference.getX() - partnerReference.getX();
+        double dy = reference.getY() - partnerReference.getY();
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        farForceX[id] -= vectorLength * dx / distance;
+        farForceY[id] -= vectorLength * dy / distance;
+        farForceGradient[id] -= 2.0 * Math.abs(vectorLength) / distance;
+    }
+
+    /**
+     * Rebuilds the near list and recomputes the far sum of a single particle
+     * against the reference positions of all the other particles.
+     *
+     * @param particles         the particles.
+     * @param particlePairForce the force between two particles.
+     * @param i                 the index of the particle.
+     */
+    private void refresh(List<Particle> particles,
+                         ParticlePairForce particlePairForce,
+                         int i) {
+        int id = particles.get(i).getId();
+        Particle reference = references[id];
+        double listRadius = nearRadius + tolerance;
+        double listRadiusSquared = listRadius * listRadius;
+        int[] nearList = nearLists[id];
+        int nearSize = 0;
+        double fx = 0.0;
+        double fy = 0.0;
+        double gradient = 0.0;
+
+        if (nearList == null) {
+            nearList = new int[8];
+        }
+
+        for (int j = 0, size = particles.size(); j < size; ++j) {
+            if (i == j) {
+                continue;
+            }
+
+            int otherId = particles.get(j).getId();
+            Particle otherReference = references[otherId];
+            double dx = reference.getX() - otherReference.getX();
+            double dy = reference.getY() - otherReference.getY();
+            double distanceSquared = dx * dx + dy * dy;
+
+            if (distanceSquared <= listRadiusSquared) {
+                if (nearSize == nearList.length) {
+                    nearList = Arrays.copyOf(nearList, 2 * nearSize);
+                }
+
+                nearList[nearSize++] = otherId;
+                continue;
+            }
+
+            double vectorLength =
+                    particlePairForce.getForce(reference, otherReference);
+            double distance = Math.sqrt(distanceSquared);
+            fx += vectorLength * dx / distance;
+            fy += vectorLength * dy / distance;
+            gradient += 2.0 * Math.abs(vectorLength) / distance;
+        }
+
+        nearLists[id] = nearList;
+        nearListSizes[id] = nearSize;
+        farForceX[id] = fx;
+        farForceY[id] = fy;
+        farForceGradient[id] = gradient;
+    }
+}
@@ -0,0 +1,108 @@
+package net.coderodde.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class records a single force evaluation of a
+ * {@link SimulationEngine}: the masses, radii and positions of the particles
+ * the forces were evaluated at, the pair force and the resulting forces.
+ * Comparing the recorded forces against the exact forces at the recorded
+ * positions measures the error of the forces the engine actually integrated,
+ * including the state a solver carries between steps. The arrays are reused
+ * between evaluations.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class ForceRecord {
+
+    private ParticlePairForce particlePairForce;
+    private double[] masses = new double[0];
+    private double[] radii = new double[0];
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] forceX = new double[0];
+    private double[] forceY = new double[0];
+    private int size = -1;
+
+    /**
+     * Records a force evaluation.
+     *
+     * @param particles         the particles the forces were evaluated at.
+     * @param particlePairForce the pair force.
+     * @param forceX            the horizontal force components.
+     * @param forceY            the vertical force components.
+     */
+    void record(List<Particle> particles,
+                ParticlePairForce particlePairForce,
+                double[] forceX,
+                double[] forceY) {
+        int size = particles.size();
+
+        if (masses.length < size) {
+            masses = new double[size];
+            radii = new double[size];
+            x = new double[size];
+            y = new double[size];
+            this.forceX = new double[size];
+            this.forceY = new double[size];
+        }
+
+        for (int i = 0; i < size; ++i) {
+            Particle particle = particles.get(i);
+            masses[i] = particle.getMass();
+            radii[i] = particle.getRadius();
+            x[i] = particle.getX();
+            y[i] = particle.getY();
+        }
+
+        System.arraycopy(forceX, 0, this.forceX, 0, size);
+        System.arraycopy(forceY, 0, this.forceY, 0, size);
+        this.particlePairForce = particlePairForce;
+        this.size = size;
+    }
+
+    /**
+     * Returns whether a force evaluation has been recorded.
+     *
+     * @return {@code true} if there is no record yet.
+     */
+    boolean isEmpty() {
+        return size < 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    double getForceX(int index) {
+        return forceX[index];
+    }
+
+    double getForceY(int index) {
+        return forceY[index];
+    }
+
+    /**
+     * Computes the exact forces at the recorded positions by direct
+     * summation.
+     *
+     * @param exactX the output array of horizontal components.
+     * @param exactY the output array of vertical components.
+     */
+    void computeExactForces(double[] exactX, double[] exactY) {
+        List<Particle> particles = new ArrayList<>(size);
+
+        for (int i = 0; i < size; ++i) {
+            Particle particle = new Particle(masses[i], radii[i]);
+            particle.setPositionUnchecked(x[i], y[i]);
+            particles.add(particle);
+        }
+
+        new DirectSumForceSolver().computeForces(particles,
+                                                 particlePairForce,
+                                                 exactX,
+                                                 exactY);
+    }
+}
@@ -0,0 +1,36 @@
+package net.coderodde.simulation;
+
+import java.util.List;
+
+/**
+ * This interface defines the API for algorithms computing the total force 
+ * acting on each particle. Implementations may approximate the forces; 
+ * {@link DirectSumForceSolver} is the exact reference.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public interface ForceSolver {
+
+    /**
+     * Computes the total force acting on each particle. The force acting on 
+     * {@code particles.get(i)} is stored in {@code forceX[i]} and 
+     * {@code forceY[i]}.
+     * 
+     * @param particles         the particles.
+     * @param particlePairForce the force between two particles.
+     * @param forceX            the output array of horizontal components.
+     * @param forceY            the output array of vertical components.
+     */
+    public void computeForces(List<Particle> particles,
+                              ParticlePairForce particlePairForce,
+                              double[] forceX,
+                              double[] forceY);
+
+    /**
+     * Returns a short human-readable name of this solver.
+     * 
+     * @return the name.
+     */
+    public String getName();
+}
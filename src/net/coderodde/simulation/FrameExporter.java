@@ -0,0 +1,107 @@
+package net.coderodde.simulation;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import javax.imageio.ImageIO;
+
+/**
+ * This class exports the rendered frames of a simulation as a sequence of PNG
+ * files. It does not need a display, so it may be used in headless 
+ * environments.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class FrameExporter implements SimulationStepListener {
+
+    private static final String FILE_NAME_FORMAT = "frame-%06d.png";
+
+    private final SimulationPanel simulationPanel;
+    private final Path directory;
+    private final int interval;
+    private final BufferedImage image;
+    private int numberOfExportedFrames;
+
+    /**
+     * Constructs a new frame exporter.
+     * 
+     * @param simulationPanel the panel used for rendering the frames.
+     * @param directory       the directory to write the frames to.
+     * @param interval        the number of steps between two exported frames.
+     * @param width           the width of the frames in pixels.
+     * @param height          the height of the frames in pixels.
+     */
+    public FrameExporter(SimulationPanel simulationPanel,
+                         Path directory,
+                         int interval,
+                         int width,
+                         int height) {
+        this.simulationPanel = 
+                Objects.requireNonNull(simulationPanel, 
+                                       "The simulation panel is null.");
+        this.directory = Objects.requireNonNull(directory, 
+                                                "The directory is null.");
+
+        if (interval < 1) {
+            throw new IllegalArgumentException(
+                    "The export interval is non-positive: " + interval + ".");
+        }
+
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException(
+                    "Invalid frame size: " + width + "x" + height + ".");
+        }
+
+        this.interval = interval;
+        this.image = new BufferedImage(width, 
+                                       height, 
+                                       BufferedImage.TYPE_INT_RGB);
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public void onStep(SimulationEngine engine, long stepNumber) {
+        if (stepNumber % interval == 0) {
+            exportFrame();
+        }
+    }
+
+    public int getNumberOfExportedFrames() {
+        return numberOfExportedFrames;
+    }
+
+    /**
+     * Renders the current state of the simulation and writes it to the next 
+     * file in the sequence.
+     */
+    public void exportFrame() {
+        Graphics2D g = image.createGraphics();
+
+        try {
+            simulationPanel.renderFrame(g, image.getWidth(), image.getHeight());
+        } finally {
+            g.dispose();
+        }
+
+        Path file = directory.resolve(
+                String.format(FILE_NAME_FORMAT, numberOfExportedFrames));
+
+        try {
+            ImageIO.write(image, "png", file.toFile());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        ++numberOfExportedFrames;
+    }
+}
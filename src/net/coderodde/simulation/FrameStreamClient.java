@@ -0,0 +1,184 @@
+package net.coderodde.simulation;
+
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import static net.coderodde.simulation.FrameStreamProtocol.DELTA_FRAME;
+import static net.coderodde.simulation.FrameStreamProtocol.KEY_FRAME;
+import static net.coderodde.simulation.FrameStreamProtocol.MAGIC;
+import static net.coderodde.simulation.FrameStreamProtocol.VERSION;
+import static net.coderodde.simulation.FrameStreamProtocol.dequantize;
+import static net.coderodde.simulation.FrameStreamProtocol.readVarint;
+import static net.coderodde.simulation.FrameStreamProtocol.zigzagDecode;
+
+/**
+ * This class receives the frames streamed by a {@link FrameStreamServer} and
+ * keeps a local replica of the particles, ready to be drawn by 
+ * {@link ParticleRenderer}s.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class FrameStreamClient implements Closeable {
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final double worldWidth;
+    private final double worldHeight;
+    private final Runnable frameListener;
+    private volatile List<ParticleRenderer> particleRenderers = 
+            Collections.emptyList();
+    private volatile long stepNumber;
+    private volatile double simulatedTime;
+    private volatile long receivedBytes;
+    private int[] x = new int[0];
+    private int[] y = new int[0];
+
+    /**
+     * Connects to a frame stream server and starts receiving frames.
+     * 
+     * @param host          the host of the server.
+     * @param port          the port of the server.
+     * @param frameListener called on the receiving thread after each frame.
+     * @throws IOException if connecting fails.
+     */
+    public FrameStreamClient(String host, int port, Runnable frameListener) 
+    throws IOException {
+        this.frameListener = Objects.requireNonNull(
+                frameListener, 
+                "The frame listener is null.");
+        this.socket = new Socket(host, port);
+
+        try {
+            this.in = new DataInputStream(
+                    new BufferedInputStream(socket.getInputStream()));
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a frame stream server.");
+            }
+
+            this.worldWidth = in.readDouble();
+            this.worldHeight = in.readDouble();
+        } catch (IOException ex) {
+            socket.close();
+            throw ex;
+        }
+
+        Thread receiver = new Thread(this::receiveFrames, 
+                                     "FrameStreamClient receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    public double getWorldWidth() {
+        return worldWidth;
+    }
+
+    public double getWorldHeight() {
+        return worldHeight;
+    }
+
+    /**
+     * Returns the renderers of the particles as of the latest key frame. The
+     * positions of the particles are updated by every frame.
+     * 
+     * @return the particle renderers.
+     */
+    public List<ParticleRenderer> getParticleRenderers() {
+        return particleRenderers;
+    }
+
+    public long getStepNumber() {
+        return stepNumber;
+    }
+
+    public double getSimulatedTime() {
+        return simulatedTime;
+    }
+
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private void receiveFrames() {
+        try {
+            while (true) {
+                byte type = in.readByte();
+                long frameStepNumber = in.readLong();
+                double frameSimulatedTime = in.readDouble();
+                int size = in.readInt();
+                int length = in.readInt();
+
+                if (type == KEY_FRAME) {
+                    readKeyFrame(size);
+                } else if (type == DELTA_FRAME) {
+                    readDeltaFrame(size);
+                } else {
+                    throw new IOException("Unknown frame type: " + type);
+                }
+
+                stepNumber = frameStepNumber;
+                simulatedTime = frameSimulatedTime;
+                receivedBytes += 25 + length;
+                frameListener.run();
+            }
+        } catch (IOException ex) {
+            // The server went away or the client was closed.
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // Nothing to do.
+            }
+        }
+    }
+
+    private void readKeyFrame(int size) throws IOException {
+        List<ParticleRenderer> renderers = new ArrayList<>(size);
+        x = new int[size];
+        y = new int[size];
+
+        for (int i = 0; i < size; ++i) {
+            float mass = in.readFloat();
+            float radius = in.readFloat();
+            Color color = new Color(in.readInt());
+            x[i] = readVarint(in);
+            y[i] = readVarint(in);
+            Particle particle = new Particle(mass, radius);
+            particle.setPositionUnchecked(dequantize(x[i], worldWidth),
+                                          dequantize(y[i], worldHeight));
+            renderers.add(new ParticleRenderer(particle, color));
+        }
+
+        particleRenderers = Collections.unmodifiableList(renderers);
+    }
+
+    private void readDeltaFrame(int size) throws IOException {
+        List<ParticleRenderer> renderers = particleRenderers;
+
+        if (renderers.size() != size) {
+            throw new IOException("Delta frame without a key frame.");
+        }
+
+        for (int i = 0; i < size; ++i) {
+            x[i] += zigzagDecode(readVarint(in));
+            y[i] += zigzagDecode(readVarint(in));
+            renderers.get(i)
+                     .getParticle()
+                     .setPositionUnchecked(dequantize(x[i], worldWidth),
+                                           dequantize(y[i], worldHeight));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package net.coderodde.simulation;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * This class holds the wire format shared by {@link FrameStreamServer} and 
+ * {@link FrameStreamClient}.
+ * <p>
+ * Upon connecting, the server sends the header: {@link #MAGIC}, 
+ * {@link #VERSION}, and the world width and height as doubles. Then follows a
+ * sequence of frames, each consisting of the frame type byte, the step number
+ * (long), the simulated time (double), the particle count (int), the payload
+ * length (int) and the payload.
+ * <p>
+ * Positions are quantized to {@link #QUANTIZATION_LEVELS} levels over the 
+ * world width and height. The payload of a key frame holds, for each particle,
+ * its mass and radius as floats, its RGB color as an int, and its quantized 
+ * coordinates as varints. The payload of a delta frame holds, for each 
+ * particle, the differences of the quantized coordinates to the previous frame
+ * sent to the same viewer, zigzag-encoded as varints. Since particles move 
+ * only a few quantization levels per frame, a particle typically takes two 
+ * bytes instead of the sixteen bytes of two raw doubles.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class FrameStreamProtocol {
+
+    static final int MAGIC = 0x43505353; // "CPSS"
+    static final int VERSION = 2;
+    static final byte KEY_FRAME = 0;
+    static final byte DELTA_FRAME = 1;
+    static final int QUANTIZATION_LEVELS = 0xffff;
+
+    private FrameStreamProtocol() {}
+
+    static int quantize(double coordinate, double worldSize) {
+        long level = Math.round(coordinate / worldSize * QUANTIZATION_LEVELS);
+        return (int) Math.max(0, Math.min(QUANTIZATION_LEVELS, level));
+    }
+
+    static double dequantize(int level, double worldSize) {
+        return level * worldSize / QUANTIZATION_LEVELS;
+    }
+
+    /**
+     * Writes {@code value} as an unsigned varint to {@code buffer} starting at
+     * {@code offset}.
+     * 
+     * @return the offset following the written bytes.
+     */
+    static int writeVarint(byte[] buffer, int offset, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer[offset++] = (byte)((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+
+        throw new IOException("Malformed varint.");
+    }
+
+    static int zigzagEncode(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int zigzagDecode(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * The maximum number of bytes a varint may take.
+     */
+    static final int MAXIMUM_VARINT_LENGTH = 5;
+}
@@ -0,0 +1,401 @@
+package net.coderodde.simulation;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import static net.coderodde.simulation.FrameStreamProtocol.DELTA_FRAME;
+import static net.coderodde.simulation.FrameStreamProtocol.KEY_FRAME;
+import static net.coderodde.simulation.FrameStreamProtocol.MAGIC;
+import static net.coderodde.simulation.FrameStreamProtocol.MAXIMUM_VARINT_LENGTH;
+import static net.coderodde.simulation.FrameStreamProtocol.VERSION;
+import static net.coderodde.simulation.FrameStreamProtocol.quantize;
+import static net.coderodde.simulation.FrameStreamProtocol.writeVarint;
+import static net.coderodde.simulation.FrameStreamProtocol.zigzagEncode;
+
+/**
+ * This class implements a lightweight TCP server streaming the simulation to
+ * remote viewers. The simulation thread only quantizes the particle positions
+ * of every published frame; the encoding and sending happen on one thread per
+ * viewer. Each viewer holds a single slot for the latest frame, so a viewer 
+ * that cannot keep up skips frames instead of slowing the simulation down.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class FrameStreamServer implements SimulationStepListener,
+                                                Closeable {
+
+    /**
+     * The quantized state of the system at a particular step. Immutable once
+     * published.
+     */
+    private static final class QuantizedFrame {
+        final long stepNumber;
+        final double simulatedTime;
+        final int[] x;
+        final int[] y;
+        final float[] masses;
+        final float[] radii;
+        final int[] colors;
+
+        QuantizedFrame(long stepNumber, 
+                       double simulatedTime,
+                       int[] x, 
+                       int[] y, 
+                       float[] masses,
+                       float[] radii,
+                       int[] colors) {
+            this.stepNumber = stepNumber;
+            this.simulatedTime = simulatedTime;
+            this.x = x;
+            this.y = y;
+            this.masses = masses;
+            this.radii = radii;
+            this.colors = colors;
+        }
+    }
+
+    private final List<ParticleRenderer> particleRenderers;
+    private final double worldWidth;
+    private final double worldHeight;
+    private final int interval;
+    private final ServerSocket serverSocket;
+    private final List<Viewer> viewers = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new server listening at the loopback address only, and 
+     * starts accepting viewers. The stream is not authenticated, so it is 
+     * not exposed to other hosts unless asked for.
+     * 
+     * @param port              the port to listen at, or zero for any free 
+     *                          port.
+     * @param particleRenderers the particles to stream together with their 
+     *                          colors.
+     * @param worldWidth        the width of the world.
+     * @param worldHeight       the height of the world.
+     * @param interval          the number of steps between two published 
+     *                          frames.
+     * @throws IOException if the server socket cannot be opened.
+     */
+    public FrameStreamServer(int port,
+                             List<ParticleRenderer> particleRenderers,
+                             double worldWidth,
+                             double worldHeight,
+                             int interval) throws IOException {
+        this(port, 
+             InetAddress.getLoopbackAddress(), 
+             particleRenderers, 
+             worldWidth, 
+             worldHeight, 
+             interval);
+    }
+
+    /**
+     * Constructs a new server and starts accepting viewers.
+     * 
+     * @param port              the port to listen at, or zero for any free 
+     *                          port.
+     * @param bindAddress       the local address to listen at, or 
+     *                          {@code null} for all the interfaces.
+     * @param particleRenderers the particles to stream together with their 
+     *                          colors.
+     * @param worldWidth        the width of the world.
+     * @param worldHeight       the height of the world.
+     * @param interval          the number of steps between two published 
+     *                          frames.
+     * @throws IOException if the server socket cannot be opened.
+     */
+    public FrameStreamServer(int port,
+                             InetAddress bindAddress,
+                             List<ParticleRenderer> particleRenderers,
+                             double worldWidth,
+                             double worldHeight,
+                             int interval) throws IOException {
+        this.particleRenderers = 
+                new ArrayList<>(
+                        Objects.requireNonNull(
+                                particleRenderers, 
+                                "The particle renderer list is null."));
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+
+        if (interval < 1) {
+            throw new IllegalArgumentException(
+                    "The stream interval is non-positive: " + interval + ".");
+        }
+
+        this.interval = interval;
+        this.serverSocket = new ServerSocket(port, 0, bindAddress);
+        Thread acceptor = new Thread(this::acceptViewers, 
+                                     "FrameStreamServer acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public InetAddress getAddress() {
+        return serverSocket.getInetAddress();
+    }
+
+    public int getNumberOfViewers() {
+        return viewers.size();
+    }
+
+    @Override
+    public void onStep(SimulationEngine engine, long stepNumber) {
+        if (stepNumber % interval != 0 || viewers.isEmpty()) {
+            return;
+        }
+
+        QuantizedFrame frame = quantizeFrame(stepNumber, 
+                                             engine.getSimulatedTime());
+
+        for (Viewer viewer : viewers) {
+            viewer.publish(frame);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+
+        for (Viewer viewer : viewers) {
+            viewer.close();
+        }
+    }
+
+    private QuantizedFrame quantizeFrame(long stepNumber, 
+                                         double simulatedTime) {
+        int size = 0;
+
+        for (ParticleRenderer particleRenderer : particleRenderers) {
+            if (!particleRenderer.getParticle().isAbsorbed()) {
+                ++size;
+            }
+        }
+
+        int[] x = new int[size];
+        int[] y = new int[size];
+        float[] masses = new float[size];
+        float[] radii = new float[size];
+        int[] colors = new int[size];
+
+        int i = 0;
+
+        // The absorbed particles are skipped. Since merging only ever shrinks
+        // the frame, a frame of a different size is sent as a key frame.
+        for (ParticleRenderer particleRenderer : particleRenderers) {
+            Particle particle = particleRenderer.getParticle();
+
+            if (particle.isAbsorbed()) {
+                continue;
+            }
+
+            x[i] = quantize(particle.getX(), worldWidth);
+            y[i] = quantize(particle.getY(), worldHeight);
+            masses[i] = (float) particle.getMass();
+            radii[i] = (float) particle.getRadius();
+            colors[i] = particleRenderer.getColor().getRGB();
+            ++i;
+        }
+
+        return new QuantizedFrame(stepNumber, 
+                                  simulatedTime, 
+                                  x, 
+                                  y, 
+                                  masses, 
+                                  radii, 
+                                  colors);
+    }
+
+    private void acceptViewers() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Viewer viewer = new Viewer(socket);
+                viewers.add(viewer);
+                viewer.start();
+            } catch (SocketException ex) {
+                // The server socket was closed.
+                return;
+            } catch (IOException ex) {
+                System.err.println("Cannot accept a viewer: " + 
+                                   ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Represents a connected viewer.
+     */
+    private final class Viewer implements Runnable {
+
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final AtomicReference<QuantizedFrame> latestFrame = 
+                new AtomicReference<>();
+        private Thread thread;
+
+        /**
+         * The last frame sent to this viewer. Delta frames are encoded 
+         * against it.
+         */
+        private QuantizedFrame previousFrame;
+        private byte[] buffer = new byte[0];
+
+        Viewer(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new DataOutputStream(
+                    new BufferedOutputStream(socket.getOutputStream()));
+        }
+
+        void start() {
+            thread = new Thread(this, "FrameStreamServer viewer " + 
+                                      socket.getRemoteSocketAddress());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * Offers a frame to this viewer, replacing the frame not sent yet, if
+         * any.
+         */
+        void publish(QuantizedFrame frame) {
+            if (latestFrame.getAndSet(frame) == null) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeDouble(worldWidth);
+                out.writeDouble(worldHeight);
+                out.flush();
+
+                while (!closed) {
+                    QuantizedFrame frame = awaitFrame();
+                    send(frame);
+                    previousFrame = frame;
+                }
+            } catch (IOException ex) {
+                // The viewer disconnected.
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                viewers.remove(this);
+                close();
+            }
+        }
+
+        void close() {
+            if (thread != null && thread != Thread.currentThread()) {
+                thread.interrupt();
+            }
+
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // Nothing to do.
+            }
+        }
+
+        private QuantizedFrame awaitFrame() throws InterruptedException {
+            synchronized (this) {
+                QuantizedFrame frame;
+
+                while ((frame = latestFrame.getAndSet(null)) == null) {
+                    wait();
+                }
+
+                return frame;
+            }
+        }
+
+        private void send(QuantizedFrame frame) throws IOException {
+            int size = frame.x.length;
+            boolean keyFrame = previousFrame == null 
+                            || previousFrame.x.length != size;
+            int length = keyFrame ? encodeKeyFrame(frame) 
+                                  : encodeDeltaFrame(frame);
+            out.writeByte(keyFrame ? KEY_FRAME : DELTA_FRAME);
+            out.writeLong(frame.stepNumber);
+            out.writeDouble(frame.simulatedTime);
+            out.writeInt(size);
+            out.writeInt(length);
+            out.write(buffer, 0, length);
+            out.flush();
+        }
+
+        private int encodeKeyFrame(QuantizedFrame frame) {
+            int size = frame.x.length;
+            ensureBuffer(size * (12 + 2 * MAXIMUM_VARINT_LENGTH));
+            int offset = 0;
+
+            for (int i = 0; i < size; ++i) {
+                offset = writeInt(Float.floatToIntBits(frame.masses[i]), 
+                                  offset);
+                offset = writeInt(Float.floatToIntBits(frame.radii[i]), 
+                                  offset);
+                offset = writeInt(frame.colors[i], offset);
+                offset = writeVarint(buffer, offset, frame.x[i]);
+                offset = writeVarint(buffer, offset, frame.y[i]);
+            }
+
+            return offset;
+        }
+
+        private int encodeDeltaFrame(QuantizedFrame frame) {
+            int size = frame.x.length;
+            ensureBuffer(size * 2 * MAXIMUM_VARINT_LENGTH);
+            int offset = 0;
+
+            for (int i = 0; i < size; ++i) {
+                offset = writeVarint(
+                        buffer, 
+                        offset, 
+                        zigzagEncode(frame.x[i] - previousFrame.x[i]));
+                offset = writeVarint(
+                        buffer, 
+                        offset, 
+                        zigzagEncode(frame.y[i] - previousFrame.y[i]));
+            }
+
+            return offset;
+        }
+
+        private int writeInt(int value, int offset) {
+            buffer[offset]     = (byte)(value >>> 24);
+            buffer[offset + 1] = (byte)(value >>> 16);
+            buffer[offset + 2] = (byte)(value >>> 8);
+            buffer[offset + 3] = (byte) value;
+            return offset + 4;
+        }
+
+        private void ensureBuffer(int capacity) {
+            if (buffer.length < capacity) {
+                buffer = new byte[capacity];
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package net.coderodde.simulation;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import static net.coderodde.simulation.Configuration.PIXELS_PER_UNIT_LENGTH;
+
+/**
+ * This class renders the particle system as a heatmap. The particles are 
+ * binned into square cells of a fixed pixel size, and the color of each cell 
+ * is written directly into the raster of an off-screen image. The cost of a
+ * frame is linear in the number of particles plus the number of pixels, and 
+ * does not involve a single drawing call per particle.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class HeatmapRenderer {
+
+    /**
+     * The quantity mapped to the color of a cell.
+     */
+    public enum Mode {
+
+        /**
+         * The number of particles in a cell.
+         */
+        DENSITY,
+
+        /**
+         * The mean speed of the particles in a cell.
+         */
+        SPEED
+    }
+
+    /**
+     * The number of entries in the color palette.
+     */
+    private static final int PALETTE_SIZE = 256;
+
+    /**
+     * Maps a normalized cell value to an RGB color, from black through red and 
+     * yellow to white.
+     */
+    private static final int[] PALETTE = createPalette();
+
+    private final int cellSize;
+    private Mode mode;
+    private BufferedImage image;
+    private int[] pixels;
+    private int[] counts;
+    private double[] speedSums;
+
+    /**
+     * Constructs a new heatmap renderer.
+     * 
+     * @param cellSize the side length of a heatmap cell in pixels.
+     * @param mode     the quantity to visualize.
+     */
+    public HeatmapRenderer(int cellSize, Mode mode) {
+        if (cellSize < 1) {
+            throw new IllegalArgumentException(
+                    "The cell size is non-positive: " + cellSize + ".");
+        }
+
+        this.cellSize = cellSize;
+        this.mode = Objects.requireNonNull(mode, "The heatmap mode is null.");
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = Objects.requireNonNull(mode, "The heatmap mode is null.");
+    }
+
+    /**
+     * Draws the heatmap of the given particles.
+     * 
+     * @param g         the graphics context.
+     * @param particles the particles to draw.
+     * @param width     the width of the drawing area in pixels.
+     * @param height    the height of the drawing area in pixels.
+     */
+    public void draw(Graphics g, 
+                     List<Particle> particles, 
+                     int width, 
+                     int height) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        ensureImage(width, height);
+        int columns = (width + cellSize - 1) / cellSize;
+        int rows = (height + cellSize - 1) / cellSize;
+        binParticles(particles, columns, rows);
+        paintCells(columns, rows, width, height);
+        g.drawImage(image, 0, 0, null);
+    }
+
+    private void binParticles(List<Particle> particles, int columns, int rows) {
+        int cells = columns * rows;
+        Arrays.fill(counts, 0, cells, 0);
+
+        if (mode == Mode.SPEED) {
+            Arrays.fill(speedSums, 0, cells, 0.0);
+        }
+
+        double scale = (double) PIXELS_PER_UNIT_LENGTH / cellSize;
+
+        for (int i = 0, size = particles.size(); i < size; ++i) {
+            Particle particle = particles.get(i);
+            int column = (int)(particle.getX() * scale);
+            int row = (int)(particle.getY() * scale);
+
+            if (column < 0 || column >= columns || row < 0 || row >= rows) {
+                continue;
+            }
+
+            int cell = row * columns + column;
+            ++counts[cell];
+
+            if (mode == Mode.SPEED) {
+                speedSums[cell] += particle.getSpeed();
+            }
+        }
+    }
+
+    private void paintCells(int columns, int rows, int width, int height) {
+        int cells = columns * rows;
+        double maximum = 0.0;
+
+        for (int cell = 0; cell < cells; ++cell) {
+            maximum = Math.max(maximum, getCellValue(cell));
+        }
+
+        // Logarithmic scaling keeps sparse regions visible next to dense ones.
+        double normalizer = maximum > 0.0 ? 1.0 / Math.log1p(maximum) : 0.0;
+
+        for (int row = 0; row < rows; ++row) {
+            int y0 = row * cellSize;
+            int y1 = Math.min(y0 + cellSize, height);
+
+            for (int column = 0; column < columns; ++column) {
+                int cell = row * columns + column;
+                double value = Math.log1p(getCellValue(cell)) * normalizer;
+                int color = PALETTE[(int)(value * (PALETTE_SIZE - 1))];
+                int x0 = column * cellSize;
+                int x1 = Math.min(x0 + cellSize, width);
+
+                for (int y = y0; y < y1; ++y) {
+                    Arrays.fill(pixels, y * width + x0, y * width + x1, color);
+                }
+            }
+        }
+    }
+
+    private double getCellValue(int cell) {
+        if (mode == Mode.DENSITY) {
+            return counts[cell];
+        }
+
+        return counts[cell] == 0 ? 0.0 : speedSums[cell] / counts[cell];
+    }
+
+    private void ensureImage(int width, int height) {
+        if (image != null 
+                && image.getWidth() == width 
+                && image.getHeight() == height) {
+            return;
+        }
+
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        int columns = (width + cellSize - 1) / cellSize;
+        int rows = (height + cellSize - 1) / cellSize;
+        counts = new int[columns * rows];
+        speedSums = new double[columns * rows];
+    }
+
+    private static int[] createPalette() {
+        int[] palette = new int[PALETTE_SIZE];
+
+        for (int i = 0; i < PALETTE_SIZE; ++i) {
+            double t = (double) i / (PALETTE_SIZE - 1);
+            int red = clampChannel(3.0 * t);
+            int green = clampChannel(3.0 * t - 1.0);
+            int blue = clampChannel(3.0 * t - 2.0);
+            palette[i] = (red << 16) | (green << 8) | blue;
+        }
+
+        return palette;
+    }
+
+    private static int clampChannel(double value) {
+        return (int)(255 * Math.max(0.0, Math.min(1.0, value)));
+    }
+}
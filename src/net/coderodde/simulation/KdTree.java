@@ -0,0 +1,465 @@
+package net.coderodde.simulation;
+
+import java.util.Arrays;
+
+/**
+ * This class implements an immutable two-dimensional k-d tree over a snapshot
+ * of the particle positions. The tree is stored implicitly: the node of the 
+ * index range {@code [begin, end)} is the median {@code (begin + end) / 2}, 
+ * its left subtree is {@code [begin, median)} and its right subtree is 
+ * {@code [median + 1, end)}. The nodes at even depths split by the 
+ * x-coordinate, the others by the y-coordinate. Since the tree never changes
+ * after construction, it may be queried from any number of threads.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class KdTree {
+
+    private final long stepNumber;
+    private final int[] ids;
+    private final double[] coordinates;
+    private final double[] radii;
+    private final double maximumRadius;
+
+    /**
+     * Maps the identifier of each particle to its index in the tree, or to 
+     * {@code -1}.
+     */
+    private final int[] idToIndex;
+
+    /**
+     * Builds a k-d tree. Takes the ownership of the arrays.
+     * 
+     * @param stepNumber the step the snapshot was taken at.
+     * @param ids        the identifiers of the particles.
+     * @param x          the x-coordinates of the particles.
+     * @param y          the y-coordinates of the particles.
+     * @param radii      the radii of the particles.
+     * @param size       the number of particles.
+     */
+    KdTree(long stepNumber, 
+           int[] ids, 
+           double[] x, 
+           double[] y, 
+           double[] radii, 
+           int size) {
+        this.stepNumber = stepNumber;
+        int[] order = new int[size];
+        double[] interleaved = new double[2 * size];
+        double maximumRadius = 0.0;
+        int maximumId = -1;
+
+        for (int i = 0; i < size; ++i) {
+            order[i] = i;
+            interleaved[2 * i] = x[i];
+            interleaved[2 * i + 1] = y[i];
+            maximumRadius = Math.max(maximumRadius, radii[i]);
+            maximumId = Math.max(maximumId, ids[i]);
+        }
+
+        build(order, interleaved, 0, size, 0);
+
+        this.ids = new int[size];
+        this.coordinates = new double[2 * size];
+        this.radii = new double[size];
+        this.maximumRadius = maximumRadius;
+        this.idToIndex = new int[maximumId + 1];
+        Arrays.fill(idToIndex, -1);
+
+        for (int i = 0; i < size; ++i) {
+            int source = order[i];
+            this.ids[i] = ids[source];
+            this.coordinates[2 * i] = x[source];
+            this.coordinates[2 * i + 1] = y[source];
+            this.radii[i] = radii[source];
+            this.idToIndex[ids[source]] = i;
+        }
+    }
+
+    /**
+     * Returns the number of the step the snapshot was taken after.
+     * 
+     * @return the step number.
+     */
+    public long getStepNumber() {
+        return stepNumber;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < idToIndex.length && idToIndex[id] >= 0;
+    }
+
+    /**
+     * Returns the x-coordinate of the given particle in the snapshot.
+     * 
+     * @param id the identifier of the particle.
+     * @return the x-coordinate.
+     */
+    public double getX(int id) {
+        return coordinates[2 * getIndex(id)];
+    }
+
+    /**
+     * Returns the y-coordinate of the given particle in the snapshot.
+     * 
+     * @param id the identifier of the particle.
+     * @return the y-coordinate.
+     */
+    public double getY(int id) {
+        return coordinates[2 * getIndex(id) + 1];
+    }
+
+    /**
+     * Returns the radius of the given particle in the snapshot.
+     * 
+     * @param id the identifier of the particle.
+     * @return the radius.
+     */
+    public double getRadius(int id) {
+        return radii[getIndex(id)];
+    }
+
+    /**
+     * Returns the identifiers of the particles whose centers are within the 
+     * given distance of the given point.
+     * 
+     * @param x      the x-coordinate of the point.
+     * @param y      the y-coordinate of the point.
+     * @param radius the distance.
+     * @return the identifiers of the found particles, in no particular order.
+     */
+    public int[] findWithin(double x, double y, double radius) {
+        IdCollector collector = new IdCollector();
+        findWithin(x, y, radius * radius, 0, ids.length, 0, collector);
+        return collector.toArray();
+    }
+
+    /**
+     * Returns the identifiers of the {@code k} particles nearest to the given
+     * point, nearest first.
+     * 
+     * @param x the x-coordinate of the point.
+     * @param y the y-coordinate of the point.
+     * @param k the number of particles to find.
+     * @return the identifiers of the found particles.
+     */
+    public int[] findNearest(double x, double y, int k) {
+        return findNearest(x, y, k, -1);
+    }
+
+    /**
+     * Returns the identifiers of the {@code k} particles nearest to the 
+     * particle with the given identifier, nearest first. The particle itself 
+     * is not included.
+     * 
+     * @param id the identifier of the particle.
+     * @param k  the number of particles to find.
+     * @return the identifiers of the found particles.
+     */
+    public int[] findNearestToParticle(int id, int k) {
+        int index = getIndex(id);
+        return findNearest(coordinates[2 * index], 
+                           coordinates[2 * index + 1], 
+                           k, 
+                           index);
+    }
+
+    /**
+     * Finds the particle whose disc contains the given point. If several discs
+     * contain it, the one with the nearest center is chosen.
+     * 
+     * @param x the x-coordinate of the point.
+     * @param y the y-coordinate of the point.
+     * @return the identifier of the particle, or {@code -1} if there is no 
+     *         such particle.
+     */
+    public int pick(double x, double y) {
+        IdCollector collector = new IdCollector();
+        findWithin(x, y, maximumRadius * maximumRadius, 0, ids.length, 0, 
+                   collector);
+        int bestIndex = -1;
+        double bestDistanceSquared = Double.POSITIVE_INFINITY;
+
+        for (int c = 0; c < collector.size; ++c) {
+            int index = idToIndex[collector.ids[c]];
+            double dx = coordinates[2 * index] - x;
+            double dy = coordinates[2 * index + 1] - y;
+            double distanceSquared = dx * dx + dy * dy;
+
+            if (distanceSquared <= radii[index] * radii[index] 
+                    && distanceSquared < bestDistanceSquared) {
+                bestIndex = index;
+                bestDistanceSquared = distanceSquared;
+            }
+        }
+
+        return bestIndex < 0 ? -1 : ids[bestIndex];
+    }
+
+    private int getIndex(int id) {
+        if (!contains(id)) {
+            throw new IllegalArgumentException(
+                    "No particle with identifier " + id + " in the snapshot.");
+        }
+
+        return idToIndex[id];
+    }
+
+    private void findWithin(double x, 
+                            double y, 
+                            double radiusSquared, 
+                            int begin,
+                            int end, 
+                            int depth,
+                            IdCollector collector) {
+        while (begin < end) {
+            int median = (begin + end) >>> 1;
+            double dx = coordinates[2 * median] - x;
+            double dy = coordinates[2 * median + 1] - y;
+
+            if (dx * dx + dy * dy <= radiusSquared) {
+                collector.add(ids[median]);
+            }
+
+            double delta = (depth & 1) == 0 ? dx : dy;
+
+            // delta > 0: the point lies to the left of the splitting line.
+            if (delta > 0.0) {
+                if (delta * delta <= radiusSquared) {
+                    findWithin(x, y, radiusSquared, median + 1, end, 
+                               depth + 1, collector);
+                }
+
+                end = median;
+            } else {
+                if (delta * delta <= radiusSquared) {
+                    findWithin(x, y, radiusSquared, begin, median, 
+                               depth + 1, collector);
+                }
+
+                begin = median + 1;
+            }
+
+            ++depth;
+        }
+    }
+
+    private int[] findNearest(double x, double y, int k, int excludedIndex) {
+        if (k < 0) {
+            throw new IllegalArgumentException(
+                    "The number of neighbours is negative: " + k);
+        }
+
+        k = Math.min(k, ids.length - (excludedIndex >= 0 ? 1 : 0));
+        NeighbourHeap heap = new NeighbourHeap(k);
+
+        if (k > 0) {
+            findNearest(x, y, 0, ids.length, 0, excludedIndex, heap);
+        }
+
+        return heap.toSortedIds();
+    }
+
+    private void findNearest(double x, 
+                             double y, 
+                             int begin, 
+                             int end, 
+                             int depth,
+                             int excludedIndex,
+                             NeighbourHeap heap) {
+        if (begin >= end) {
+            return;
+        }
+
+        int median = (begin + end) >>> 1;
+        double dx = coordinates[2 * median] - x;
+        double dy = coordinates[2 * median + 1] - y;
+
+        if (median != excludedIndex) {
+            heap.offer(median, dx * dx + dy * dy);
+        }
+
+        double delta = (depth & 1) == 0 ? dx : dy;
+        int nearBegin = delta > 0.0 ? begin : median + 1;
+        int nearEnd = delta > 0.0 ? median : end;
+        int farBegin = delta > 0.0 ? median + 1 : begin;
+        int farEnd = delta > 0.0 ? end : median;
+
+        findNearest(x, y, nearBegin, nearEnd, depth + 1, excludedIndex, heap);
+
+        if (delta * delta < heap.getBound()) {
+            findNearest(x, y, farBegin, farEnd, depth + 1, excludedIndex, 
+                        heap);
+        }
+    }
+
+    /**
+     * Arranges {@code order[begin], ..., order[end - 1]} into an implicit k-d
+     * tree.
+     */
+    private static void build(int[] order, 
+                              double[] coordinates, 
+                              int begin, 
+                              int end,
+                              int depth) {
+        while (end - begin > 1) {
+            int median = (begin + end) >>> 1;
+            int axis = depth & 1;
+            select(order, begin, end - 1, median, coordinates, axis);
+            build(order, coordinates, median + 1, end, depth + 1);
+            end = median;
+            ++depth;
+        }
+    }
+
+    /**
+     * Partially sorts {@code order[left], ..., order[right]} by the coordinate
+     * along {@code axis} such that the k-th element is in place (quickselect).
+     */
+    private static void select(int[] order, 
+                               int left, 
+                               int right, 
+                               int k, 
+                               double[] coordinates, 
+                               int axis) {
+        while (left < right) {
+            double pivot = coordinates[2 * order[(left + right) >>> 1] + axis];
+            int i = left;
+            int j = right;
+
+            while (i <= j) {
+                while (coordinates[2 * order[i] + axis] < pivot) {
+                    ++i;
+                }
+
+                while (coordinates[2 * order[j] + axis] > pivot) {
+                    --j;
+                }
+
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    ++i;
+                    --j;
+                }
+            }
+
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * A growable list of identifiers.
+     */
+    private static final class IdCollector {
+        int[] ids = new int[16];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+
+            ids[size++] = id;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+
+    /**
+     * A bounded max-heap of the nearest particles found so far.
+     */
+    private final class NeighbourHeap {
+        final int[] indices;
+        final double[] distances;
+        int size;
+
+        NeighbourHeap(int capacity) {
+            indices = new int[capacity];
+            distances = new double[capacity];
+        }
+
+        /**
+         * Returns the squared distance a particle must beat to enter the 
+         * heap.
+         */
+        double getBound() {
+            return size < indices.length ? 
+                   Double.POSITIVE_INFINITY : 
+                   distances[0];
+        }
+
+        void offer(int index, double distanceSquared) {
+            if (size < indices.length) {
+                int i = size++;
+
+                while (i > 0 && distances[(i - 1) / 2] < distanceSquared) {
+                    indices[i] = indices[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+
+                indices[i] = index;
+                distances[i] = distanceSquared;
+            } else if (size > 0 && distanceSquared < distances[0]) {
+                siftDown(index, distanceSquared, size);
+            }
+        }
+
+        private void siftDown(int index, double distanceSquared, int size) {
+            int i = 0;
+
+            while (true) {
+                int child = 2 * i + 1;
+
+                if (child >= size) {
+                    break;
+                }
+
+                if (child + 1 < size 
+                        && distances[child + 1] > distances[child]) {
+                    ++child;
+                }
+
+                if (distances[child] <= distanceSquared) {
+                    break;
+                }
+
+                indices[i] = indices[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+
+            indices[i] = index;
+            distances[i] = distanceSquared;
+        }
+
+        int[] toSortedIds() {
+            int[] result = new int[size];
+
+            // Repeatedly move the farthest remaining particle to the back.
+            for (int remaining = size; remaining > 0; --remaining) {
+                result[remaining - 1] = ids[indices[0]];
+                int lastIndex = indices[remaining - 1];
+                double lastDistance = distances[remaining - 1];
+                siftDown(lastIndex, lastDistance, remaining - 1);
+            }
+
+            return result;
+        }
+    }
+}
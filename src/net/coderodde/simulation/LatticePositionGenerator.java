@@ -0,0 +1,77 @@
+package net.coderodde.simulation;
+
+import java.util.List;
+import java.util.Random;
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class places particles on a rectangular lattice spanning the entire 
+ * world. Each particle may be displaced randomly within its lattice cell, as
+ * long as it does not overlap with the neighbouring cells.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class LatticePositionGenerator 
+implements ParticlePositionGenerator {
+
+    /**
+     * The fraction of the free space in a lattice cell used for random 
+     * displacement. Zero means a perfect lattice.
+     */
+    private final double jitter;
+
+    public LatticePositionGenerator(double jitter) {
+        checkNonNaN(jitter, "The jitter is NaN.");
+        checkNonNegative(jitter, "The jitter is negative: " + jitter);
+        checkNonInfinite(jitter, "The jitter is infinite.");
+
+        if (jitter > 1.0) {
+            throw new IllegalArgumentException(
+                    "The jitter is larger than 1: " + jitter);
+        }
+
+        this.jitter = jitter;
+    }
+
+    public LatticePositionGenerator() {
+        this(0.0);
+    }
+
+    @Override
+    public void assignPositions(List<Particle> particles,
+                                double worldWidth,
+                                double worldHeight,
+                                Random random) {
+        int size = particles.size();
+
+        if (size == 0) {
+            return;
+        }
+
+        int columns = 
+                (int) Math.ceil(Math.sqrt(size * worldWidth / worldHeight));
+        int rows = (size + columns - 1) / columns;
+        double cellWidth = worldWidth / columns;
+        double cellHeight = worldHeight / rows;
+        double maximumRadius = Utils.getMaximumRadius(particles);
+
+        if (2.0 * maximumRadius > Math.min(cellWidth, cellHeight)) {
+            throw new IllegalArgumentException(
+                    "Cannot fit " + size + " particles into the world " + 
+                    "lattice without overlaps.");
+        }
+
+        for (int i = 0; i < size; ++i) {
+            Particle particle = particles.get(i);
+            double freeX = cellWidth - 2.0 * particle.getRadius();
+            double freeY = cellHeight - 2.0 * particle.getRadius();
+            double offsetX = jitter * freeX * (random.nextDouble() - 0.5);
+            double offsetY = jitter * freeY * (random.nextDouble() - 0.5);
+            particle.setX((i % columns + 0.5) * cellWidth + offsetX);
+            particle.setY((i / columns + 0.5) * cellHeight + offsetY);
+        }
+    }
+}
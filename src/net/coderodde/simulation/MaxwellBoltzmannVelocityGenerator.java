@@ -0,0 +1,63 @@
+package net.coderodde.simulation;
+
+import java.util.List;
+import java.util.Random;
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class draws the particle velocities from the Maxwell-Boltzmann 
+ * distribution of the given temperature (with the Boltzmann constant equal to
+ * one), that is, each velocity component of a particle of mass {@code m} is 
+ * normally distributed with the variance {@code temperature / m}. The net 
+ * momentum of the system is removed afterwards, so that the system as a whole
+ * does not drift.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class MaxwellBoltzmannVelocityGenerator 
+implements ParticleVelocityGenerator {
+
+    private final double temperature;
+
+    public MaxwellBoltzmannVelocityGenerator(double temperature) {
+        checkNonNaN(temperature, "The temperature is NaN.");
+        checkNonNegative(temperature, 
+                         "The temperature is negative: " + temperature);
+        checkNonInfinite(temperature, "The temperature is infinite.");
+        this.temperature = temperature;
+    }
+
+    @Override
+    public void assignVelocities(List<Particle> particles, Random random) {
+        double momentumX = 0.0;
+        double momentumY = 0.0;
+        double totalMass = 0.0;
+
+        for (Particle particle : particles) {
+            double mass = particle.getMass();
+            double deviation = Math.sqrt(temperature / mass);
+            double velocityX = deviation * random.nextGaussian();
+            double velocityY = deviation * random.nextGaussian();
+            particle.setVelocityX(velocityX);
+            particle.setVelocityY(velocityY);
+            momentumX += mass * velocityX;
+            momentumY += mass * velocityY;
+            totalMass += mass;
+        }
+
+        if (particles.size() < 2) {
+            return;
+        }
+
+        double driftX = momentumX / totalMass;
+        double driftY = momentumY / totalMass;
+
+        for (Particle particle : particles) {
+            particle.setVelocityX(particle.getVelocityX() - driftX);
+            particle.setVelocityY(particle.getVelocityY() - driftY);
+        }
+    }
+}
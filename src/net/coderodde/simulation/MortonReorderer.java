@@ -0,0 +1,222 @@
+package net.coderodde.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class decides when and how to reorder the particle storage of a 
+ * simulation engine along the Morton (Z-order) curve, so that particles close 
+ * to each other in space are also close to each other in memory. The 
+ * reordering is triggered either every {@code stepInterval} steps, or when the
+ * mean distance between particles in consecutive slots has grown 
+ * {@code localityThreshold} times larger than right after the previous 
+ * reordering.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class MortonReorderer {
+
+    /**
+     * The number of bits per axis in a Morton code.
+     */
+    private static final int BITS_PER_AXIS = 16;
+
+    /**
+     * The number of steps between two locality measurements.
+     */
+    private static final int LOCALITY_CHECK_INTERVAL = 16;
+
+    /**
+     * The number of bits sorted in one pass of the radix sort.
+     */
+    private static final int RADIX_BITS = 8;
+
+    private final int stepInterval;
+    private final double localityThreshold;
+    private double baselineLocality = Double.NaN;
+    private long numberOfReorderings;
+    private int[] codes = new int[0];
+    private int[] permutation = new int[0];
+    private int[] codeBuffer = new int[0];
+    private int[] permutationBuffer = new int[0];
+
+    /**
+     * Constructs a new reorderer.
+     * 
+     * @param stepInterval      the number of steps between two reorderings, 
+     *                          or zero for no periodic reordering.
+     * @param localityThreshold the factor by which the locality may degrade 
+     *                          before the storage is reordered, or zero for no
+     *                          locality-based reordering.
+     */
+    public MortonReorderer(int stepInterval, double localityThreshold) {
+        if (stepInterval < 0) {
+            throw new IllegalArgumentException(
+                    "The step interval is negative: " + stepInterval + ".");
+        }
+
+        checkNonNaN(localityThreshold, "The locality threshold is NaN.");
+        checkNonNegative(localityThreshold, 
+                         "The locality threshold is negative: " + 
+                         localityThreshold);
+        checkNonInfinite(localityThreshold, 
+                         "The locality threshold is infinite.");
+        this.stepInterval = stepInterval;
+        this.localityThreshold = localityThreshold;
+    }
+
+    public long getNumberOfReorderings() {
+        return numberOfReorderings;
+    }
+
+    /**
+     * Decides whether the particles should be reordered before the next step.
+     * 
+     * @param stepNumber the number of steps completed so far.
+     * @param particles  the particles in storage order.
+     * @return {@code true} if the particles should be reordered.
+     */
+    boolean shouldReorder(long stepNumber, List<Particle> particles) {
+        if (Double.isNaN(baselineLocality)) {
+            return true;
+        }
+
+        if (stepInterval > 0 && stepNumber % stepInterval == 0) {
+            return true;
+        }
+
+        return localityThreshold > 0.0 
+            && stepNumber % LOCALITY_CHECK_INTERVAL == 0
+            && measureLocality(particles) 
+                    > localityThreshold * baselineLocality;
+    }
+
+    /**
+     * Computes the permutation sorting the particles by the Morton code of 
+     * their position.
+     * 
+     * @param particles   the particles in storage order.
+     * @param worldWidth  the width of the world.
+     * @param worldHeight the height of the world.
+     * @return the array whose i-th entry is the current slot of the particle 
+     *         that should be moved to slot i. Valid until the next call.
+     */
+    int[] computePermutation(List<Particle> particles,
+                             double worldWidth,
+                             double worldHeight) {
+        int size = particles.size();
+
+        if (codes.length < size) {
+            codes = new int[size];
+            permutation = new int[size];
+            codeBuffer = new int[size];
+            permutationBuffer = new int[size];
+        }
+
+        double scaleX = ((1 << BITS_PER_AXIS) - 1) / worldWidth;
+        double scaleY = ((1 << BITS_PER_AXIS) - 1) / worldHeight;
+
+        for (int i = 0; i < size; ++i) {
+            Particle particle = particles.get(i);
+            codes[i] = encode(quantize(particle.getX() * scaleX),
+                              quantize(particle.getY() * scaleY));
+            permutation[i] = i;
+        }
+
+        radixSort(size);
+        return permutation;
+    }
+
+    /**
+     * Records that the particles were just reordered.
+     * 
+     * @param particles the particles in the new storage order.
+     */
+    void reordered(List<Particle> particles) {
+        baselineLocality = measureLocality(particles);
+        ++numberOfReorderings;
+    }
+
+    /**
+     * Computes the mean distance between particles in consecutive slots.
+     */
+    static double measureLocality(List<Particle> particles) {
+        int size = particles.size();
+
+        if (size < 2) {
+            return 0.0;
+        }
+
+        double sum = 0.0;
+        Particle previous = particles.get(0);
+
+        for (int i = 1; i < size; ++i) {
+            Particle current = particles.get(i);
+            sum += current.getDistance(previous);
+            previous = current;
+        }
+
+        return sum / (size - 1);
+    }
+
+    private static int quantize(double coordinate) {
+        int maximum = (1 << BITS_PER_AXIS) - 1;
+        return Math.max(0, Math.min(maximum, (int) coordinate));
+    }
+
+    /**
+     * Interleaves the bits of {@code x} and {@code y}.
+     */
+    static int encode(int x, int y) {
+        return spread(x) | (spread(y) << 1);
+    }
+
+    private static int spread(int value) {
+        value &= 0xffff;
+        value = (value | (value << 8)) & 0x00ff00ff;
+        value = (value | (value << 4)) & 0x0f0f0f0f;
+        value = (value | (value << 2)) & 0x33333333;
+        value = (value | (value << 1)) & 0x55555555;
+        return value;
+    }
+
+    /**
+     * Sorts the first {@code size} codes as unsigned integers with a stable 
+     * least significant digit radix sort, permuting {@code permutation} 
+     * along.
+     */
+    private void radixSort(int size) {
+        int buckets = 1 << RADIX_BITS;
+        int[] counts = new int[buckets + 1];
+
+        for (int shift = 0; shift < Integer.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+
+            for (int i = 0; i < size; ++i) {
+                ++counts[((codes[i] >>> shift) & (buckets - 1)) + 1];
+            }
+
+            for (int bucket = 0; bucket < buckets; ++bucket) {
+                counts[bucket + 1] += counts[bucket];
+            }
+
+            for (int i = 0; i < size; ++i) {
+                int bucket = (codes[i] >>> shift) & (buckets - 1);
+                int target = counts[bucket]++;
+                codeBuffer[target] = codes[i];
+                permutationBuffer[target] = permutation[i];
+            }
+
+            int[] tmp = codes;
+            codes = codeBuffer;
+            codeBuffer = tmp;
+            tmp = permutation;
+            permutation = permutationBuffer;
+            permutationBuffer = tmp;
+        }
+    }
+}
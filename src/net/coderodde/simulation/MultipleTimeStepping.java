@@ -0,0 +1,155 @@
+package net.coderodde.simulation;
+
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class configures the RESPA multiple time stepping of the engine. The 
+ * pair force {@code F(r)} is split by a smooth switching function {@code S(r)}
+ * into the short-range part {@code S(r) F(r)} and the long-range part 
+ * {@code (1 - S(r)) F(r)}. {@code S} is one below the inner radius, zero 
+ * beyond the outer radius, and falls off as a cubic with zero slope at both 
+ * ends in between.
+ * <p>
+ * The short-range part is evaluated by a cell list at every step. The 
+ * long-range part is evaluated only once per cycle of {@code farForceInterval}
+ * steps, and applied as two velocity kicks of half a cycle each: one before 
+ * the first step of the cycle and one, with the forces re-evaluated, after its
+ * last step. This is the symmetric RESPA splitting; the forces of the closing
+ * kick are reused by the opening kick of the next cycle.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class MultipleTimeStepping {
+
+    /**
+     * The short-range part of a pair force.
+     */
+    private final class NearForce implements ParticlePairForce {
+
+        private final ParticlePairForce particlePairForce;
+
+        NearForce(ParticlePairForce particlePairForce) {
+            this.particlePairForce = particlePairForce;
+        }
+
+        @Override
+        public double getForce(Particle particle1, Particle particle2) {
+            double weight = getSwitch(particle1.getDistance(particle2));
+            return weight == 0.0 ? 
+                   0.0 : 
+                   weight * particlePairForce.getForce(particle1, particle2);
+        }
+    }
+
+    /**
+     * The long-range part of a pair force.
+     */
+    private final class FarForce implements ParticlePairForce {
+
+        private final ParticlePairForce particlePairForce;
+
+        FarForce(ParticlePairForce particlePairForce) {
+            this.particlePairForce = particlePairForce;
+        }
+
+        @Override
+        public double getForce(Particle particle1, Particle particle2) {
+            double weight = 1.0 - getSwitch(particle1.getDistance(particle2));
+            return weight == 0.0 ? 
+                   0.0 : 
+                   weight * particlePairForce.getForce(particle1, particle2);
+        }
+    }
+
+    private final double innerRadius;
+    private final double outerRadius;
+    private final int farForceInterval;
+
+    /**
+     * Constructs a multiple time stepping configuration.
+     * 
+     * @param innerRadius      the distance below which the pair force is 
+     *                         entirely short-range.
+     * @param outerRadius      the distance beyond which the pair force is 
+     *                         entirely long-range.
+     * @param farForceInterval the number of steps between two evaluations of
+     *                         the long-range forces.
+     */
+    public MultipleTimeStepping(double innerRadius, 
+                                double outerRadius, 
+                                int farForceInterval) {
+        checkNonNaN(innerRadius, "The inner radius is NaN.");
+        checkNonNegative(innerRadius, 
+                         "The inner radius is negative: " + innerRadius);
+        checkNonNaN(outerRadius, "The outer radius is NaN.");
+        checkNonInfinite(outerRadius, "The outer radius is infinite.");
+
+        if (outerRadius <= innerRadius) {
+            throw new IllegalArgumentException(
+                    "The outer radius " + outerRadius + " must be larger " + 
+                    "than the inner radius " + innerRadius);
+        }
+
+        if (farForceInterval < 1) {
+            throw new IllegalArgumentException(
+                    "The far force interval must be positive: " + 
+                    farForceInterval);
+        }
+
+        this.innerRadius = innerRadius;
+        this.outerRadius = outerRadius;
+        this.farForceInterval = farForceInterval;
+    }
+
+    public double getInnerRadius() {
+        return innerRadius;
+    }
+
+    public double getOuterRadius() {
+        return outerRadius;
+    }
+
+    public int getFarForceInterval() {
+        return farForceInterval;
+    }
+
+    /**
+     * Returns the weight of the short-range part at the given distance.
+     * 
+     * @param distance the distance of two particles.
+     * @return the weight within {@code [0, 1]}.
+     */
+    double getSwitch(double distance) {
+        if (distance <= innerRadius) {
+            return 1.0;
+        }
+
+        if (distance >= outerRadius) {
+            return 0.0;
+        }
+
+        double t = (distance - innerRadius) / (outerRadius - innerRadius);
+        return 1.0 - t * t * (3.0 - 2.0 * t);
+    }
+
+    ParticlePairForce createNearForce(ParticlePairForce particlePairForce) {
+        return new NearForce(particlePairForce);
+    }
+
+    ParticlePairForce createFarForce(ParticlePairForce particlePairForce) {
+        return new FarForce(particlePairForce);
+    }
+
+    /**
+     * Creates the solver of the short-range forces. Since they vanish beyond 
+     * the outer radius, a cell list computes them exactly.
+     * 
+     * @return the short-range force solver.
+     */
+    ForceSolver createNearForceSolver() {
+        return new CellListForceSolver(outerRadius);
+    }
+}
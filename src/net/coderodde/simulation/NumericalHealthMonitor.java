@@ -0,0 +1,85 @@
+package net.coderodde.simulation;
+
+import java.util.List;
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class checks the numerical health of the simulated system once per 
+ * step. Instead of validating each individual write to a particle, the engine
+ * writes through the unchecked fast path and asks this monitor whether the 
+ * resulting state is still sane.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class NumericalHealthMonitor {
+
+    /**
+     * The maximum allowed relative correction of the total kinetic energy 
+     * applied by the velocity normalization in one step.
+     */
+    private final double maximumKineticEnergyCorrection;
+
+    /**
+     * The number of steps rolled back so far.
+     */
+    private long numberOfRollbacks;
+
+    NumericalHealthMonitor(double maximumKineticEnergyCorrection) {
+        checkNonNaN(maximumKineticEnergyCorrection,
+                    "The maximum kinetic energy correction is NaN.");
+        checkNonNegative(maximumKineticEnergyCorrection,
+                         "The maximum kinetic energy correction is " + 
+                         "negative: " + maximumKineticEnergyCorrection);
+        checkNonInfinite(maximumKineticEnergyCorrection,
+                         "The maximum kinetic energy correction is infinite.");
+        this.maximumKineticEnergyCorrection = maximumKineticEnergyCorrection;
+    }
+
+    /**
+     * Checks that no particle has a NaN or infinite coordinate or velocity 
+     * component. The loop body is branch-free: {@code v - v} is zero for every
+     * finite {@code v} and NaN otherwise, so a single comparison after the 
+     * loop decides the outcome.
+     * 
+     * @param particles the particles to scan.
+     * @return {@code true} if the state of all particles is finite.
+     */
+    boolean isFinite(List<Particle> particles) {
+        double accumulator = 0.0;
+
+        for (int i = 0, size = particles.size(); i < size; ++i) {
+            Particle particle = particles.get(i);
+            double x = particle.getX();
+            double y = particle.getY();
+            double velocityX = particle.getVelocityX();
+            double velocityY = particle.getVelocityY();
+            accumulator += (x - x) + (y - y) + 
+                           (velocityX - velocityX) + (velocityY - velocityY);
+        }
+
+        return accumulator == 0.0;
+    }
+
+    /**
+     * Checks that the relative kinetic energy correction is within bounds.
+     * 
+     * @param kineticEnergyCorrection the relative correction of the kinetic
+     *                                energy.
+     * @return {@code true} if the correction is acceptable.
+     */
+    boolean isEnergySane(double kineticEnergyCorrection) {
+        return Math.abs(kineticEnergyCorrection) 
+                <= maximumKineticEnergyCorrection;
+    }
+
+    void recordRollback() {
+        ++numberOfRollbacks;
+    }
+
+    long getNumberOfRollbacks() {
+        return numberOfRollbacks;
+    }
+}
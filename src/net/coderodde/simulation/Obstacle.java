@@ -0,0 +1,26 @@
+package net.coderodde.simulation;
+
+/**
+ * This interface defines the API for static obstacles. Every obstacle is 
+ * described by a set of line segments and circles, against which the 
+ * particles bounce.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public interface Obstacle {
+
+    /**
+     * Returns the line segments of this obstacle.
+     * 
+     * @return the array of {@code x1, y1, x2, y2} quadruples.
+     */
+    public double[] getSegments();
+
+    /**
+     * Returns the circles of this obstacle.
+     * 
+     * @return the array of {@code centerX, centerY, radius} triples.
+     */
+    public double[] getCircles();
+}
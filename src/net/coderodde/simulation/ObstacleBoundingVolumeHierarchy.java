@@ -0,0 +1,620 @@
+package net.coderodde.simulation;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.List;
+import static net.coderodde.simulation.Configuration.PIXELS_PER_UNIT_LENGTH;
+
+/**
+ * This class indexes the line segments and circles of a set of static 
+ * obstacles in a bounding volume hierarchy of axis-aligned boxes. The 
+ * hierarchy is built once by recursive median splits along the longer axis,
+ * after which a swept-disc query visits only the O(log m) subtrees whose 
+ * boxes the sweep touches.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class ObstacleBoundingVolumeHierarchy {
+
+    /**
+     * Describes the earliest contact found by a sweep.
+     */
+    static final class Hit {
+
+        /**
+         * The fraction of the sweep at which the contact happens.
+         */
+        double time;
+
+        /**
+         * The unit normal of the obstacle surface at the contact, pointing 
+         * towards the particle.
+         */
+        double normalX;
+        double normalY;
+    }
+
+    /**
+     * The maximum number of primitives in a leaf.
+     */
+    private static final int LEAF_SIZE = 4;
+
+    private static final Color OBSTACLE_COLOR = Color.GRAY;
+
+    /**
+     * The number of primitives. The primitives are stored in leaf order; a 
+     * primitive is a circle if its {@code circle} entry is {@code true}.
+     */
+    private final int size;
+    private final boolean[] circle;
+
+    /**
+     * The geometry of each primitive: {@code x1, y1, x2, y2} for a segment and
+     * {@code centerX, centerY, radius, 0} for a circle.
+     */
+    private final double[] geometry;
+
+    /**
+     * The bounds of each node as {@code minX, minY, maxX, maxY}.
+     */
+    private final double[] nodeBounds;
+
+    /**
+     * The index of the left child of each node, or -1 for a leaf. The right 
+     * child of an inner node {@code i} is {@code nodeRight[i]}.
+     */
+    private final int[] nodeLeft;
+    private final int[] nodeRight;
+
+    /**
+     * The primitive range {@code [nodeStart[i], nodeEnd[i])} of each leaf.
+     */
+    private final int[] nodeStart;
+    private final int[] nodeEnd;
+    private int numberOfNodes;
+
+    /**
+     * The traversal stacks, reused between calls. The sweeps run on the 
+     * simulation thread and the drawing on the event dispatch thread, so each
+     * has its own stack.
+     */
+    private int[] sweepStack = new int[64];
+    private int[] drawStack = new int[64];
+
+    /**
+     * Builds the hierarchy of the given obstacles.
+     * 
+     * @param obstacles the obstacles.
+     */
+    public ObstacleBoundingVolumeHierarchy(List<Obstacle> obstacles) {
+        int segments = 0;
+        int circles = 0;
+
+        for (Obstacle obstacle : obstacles) {
+            segments += obstacle.getSegments().length / 4;
+            circles += obstacle.getCircles().length / 3;
+        }
+
+        size = segments + circles;
+        double[] unsortedGeometry = new double[4 * size];
+        boolean[] unsortedCircle = new boolean[size];
+        int primitive = 0;
+
+        for (Obstacle obstacle : obstacles) {
+            double[] obstacleSegments = obstacle.getSegments();
+
+            for (int i = 0; i + 3 < obstacleSegments.length; i += 4) {
+                System.arraycopy(obstacleSegments, 
+                                 i, 
+                                 unsortedGeometry, 
+                                 4 * primitive, 
+                                 4);
+                ++primitive;
+            }
+
+            double[] obstacleCircles = obstacle.getCircles();
+
+            for (int i = 0; i + 2 < obstacleCircles.length; i += 3) {
+                System.arraycopy(obstacleCircles, 
+                                 i, 
+                                 unsortedGeometry, 
+                                 4 * primitive, 
+                                 3);
+                unsortedCircle[primitive] = true;
+                ++primitive;
+            }
+        }
+
+        int[] order = new int[size];
+        double[] centroids = new double[2 * size];
+        double[] bounds = new double[4 * size];
+
+        for (int i = 0; i < size; ++i) {
+            order[i] = i;
+            computeBounds(unsortedGeometry, unsortedCircle[i], i, bounds, i);
+            centroids[2 * i] = 0.5 * (bounds[4 * i] + bounds[4 * i + 2]);
+            centroids[2 * i + 1] = 0.5 * (bounds[4 * i + 1] + bounds[4 * i + 3]);
+        }
+
+        int maximumNodes = Math.max(1, 2 * size);
+        nodeBounds = new double[4 * maximumNodes];
+        nodeLeft = new int[maximumNodes];
+        nodeRight = new int[maximumNodes];
+        nodeStart = new int[maximumNodes];
+        nodeEnd = new int[maximumNodes];
+        build(order, 0, size, centroids, bounds);
+
+        // Store the primitives in leaf order for locality.
+        geometry = new double[4 * size];
+        circle = new boolean[size];
+
+        for (int i = 0; i < size; ++i) {
+            System.arraycopy(unsortedGeometry, 4 * order[i], geometry, 4 * i, 4);
+            circle[i] = unsortedCircle[order[i]];
+        }
+    }
+
+    public int getNumberOfPrimitives() {
+        return size;
+    }
+
+    /**
+     * Finds the earliest contact of a disc moving from {@code (x, y)} to 
+     * {@code (x + dx, y + dy)} with any obstacle. Contacts with surfaces the
+     * disc moves away from are ignored, so a disc that ended up slightly 
+     * inside an obstacle is allowed to leave it.
+     * 
+     * @param x      the initial x-coordinate of the disc center.
+     * @param y      the initial y-coordinate of the disc center.
+     * @param dx     the horizontal displacement.
+     * @param dy     the vertical displacement.
+     * @param radius the radius of the disc.
+     * @param hit    the object receiving the contact data.
+     * @return {@code true} if there is a contact.
+     */
+    boolean sweep(double x, 
+                  double y, 
+                  double dx, 
+                  double dy, 
+                  double radius, 
+                  Hit hit) {
+        if (size == 0) {
+            return false;
+        }
+
+        double minX = Math.min(x, x + dx) - radius;
+        double minY = Math.min(y, y + dy) - radius;
+        double maxX = Math.max(x, x + dx) + radius;
+        double maxY = Math.max(y, y + dy) + radius;
+        int[] stack = sweepStack;
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        hit.time = Double.POSITIVE_INFINITY;
+
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+
+            if (!intersects(node, minX, minY, maxX, maxY)) {
+                continue;
+            }
+
+            if (nodeLeft[node] < 0) {
+                for (int i = nodeStart[node]; i < nodeEnd[node]; ++i) {
+                    if (circle[i]) {
+                        sweepCircle(i, x, y, dx, dy, radius, hit);
+                    } else {
+                        sweepSegment(i, x, y, dx, dy, radius, hit);
+                    }
+                }
+            } else {
+                if (stackSize + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                    sweepStack = stack;
+                }
+
+                stack[stackSize++] = nodeLeft[node];
+                stack[stackSize++] = nodeRight[node];
+            }
+        }
+
+        return hit.time <= 1.0;
+    }
+
+    /**
+     * Checks whether a disc touches any obstacle. Not thread-safe; meant for
+     * placing the particles before the simulation starts.
+     * 
+     * @param x      the x-coordinate of the disc center.
+     * @param y      the y-coordinate of the disc center.
+     * @param radius the radius of the disc.
+     * @return {@code true} if the disc touches an obstacle.
+     */
+    boolean overlaps(double x, double y, double radius) {
+        if (size == 0) {
+            return false;
+        }
+
+        int[] stack = sweepStack;
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+
+            if (!intersects(node, x - radius, y - radius, 
+                                  x + radius, y + radius)) {
+                continue;
+            }
+
+            if (nodeLeft[node] >= 0) {
+                if (stackSize + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                    sweepStack = stack;
+                }
+
+                stack[stackSize++] = nodeLeft[node];
+                stack[stackSize++] = nodeRight[node];
+                continue;
+            }
+
+            for (int i = nodeStart[node]; i < nodeEnd[node]; ++i) {
+                if (getDistance(i, x, y) < radius) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Draws the obstacles intersecting the clip rectangle.
+     * 
+     * @param g    the graphics context.
+     * @param clip the clip rectangle in pixels.
+     */
+    void draw(Graphics g, Rectangle clip) {
+        if (size == 0) {
+            return;
+        }
+
+        double scale = PIXELS_PER_UNIT_LENGTH;
+        double minX = clip.x / scale;
+        double minY = clip.y / scale;
+        double maxX = (clip.x + clip.width) / scale;
+        double maxY = (clip.y + clip.height) / scale;
+        int[] stack = drawStack;
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        g.setColor(OBSTACLE_COLOR);
+
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+
+            if (!intersects(node, minX, minY, maxX, maxY)) {
+                continue;
+            }
+
+            if (nodeLeft[node] >= 0) {
+                if (stackSize + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                    drawStack = stack;
+                }
+
+                stack[stackSize++] = nodeLeft[node];
+                stack[stackSize++] = nodeRight[node];
+                continue;
+            }
+
+            for (int i = nodeStart[node]; i < nodeEnd[node]; ++i) {
+                int offset = 4 * i;
+
+                if (circle[i]) {
+                    int radius = (int)(geometry[offset + 2] * scale);
+                    g.fillOval((int)(geometry[offset] * scale) - radius,
+                               (int)(geometry[offset + 1] * scale) - radius,
+                               2 * radius,
+                               2 * radius);
+                } else {
+                    g.drawLine((int)(geometry[offset] * scale),
+                               (int)(geometry[offset + 1] * scale),
+                               (int)(geometry[offset + 2] * scale),
+                               (int)(geometry[offset + 3] * scale));
+                }
+            }
+        }
+    }
+
+    private int build(int[] order, 
+                      int start, 
+                      int end, 
+                      double[] centroids, 
+                      double[] bounds) {
+        int node = numberOfNodes++;
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        double centroidMinX = Double.POSITIVE_INFINITY;
+        double centroidMinY = Double.POSITIVE_INFINITY;
+        double centroidMaxX = Double.NEGATIVE_INFINITY;
+        double centroidMaxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = start; i < end; ++i) {
+            int primitive = order[i];
+            minX = Math.min(minX, bounds[4 * primitive]);
+            minY = Math.min(minY, bounds[4 * primitive + 1]);
+            maxX = Math.max(maxX, bounds[4 * primitive + 2]);
+            maxY = Math.max(maxY, bounds[4 * primitive + 3]);
+            centroidMinX = Math.min(centroidMinX, centroids[2 * primitive]);
+            centroidMinY = Math.min(centroidMinY, centroids[2 * primitive + 1]);
+            centroidMaxX = Math.max(centroidMaxX, centroids[2 * primitive]);
+            centroidMaxY = Math.max(centroidMaxY, centroids[2 * primitive + 1]);
+        }
+
+        nodeBounds[4 * node] = minX;
+        nodeBounds[4 * node + 1] = minY;
+        nodeBounds[4 * node + 2] = maxX;
+        nodeBounds[4 * node + 3] = maxY;
+
+        if (end - start <= LEAF_SIZE) {
+            nodeLeft[node] = -1;
+            nodeStart[node] = start;
+            nodeEnd[node] = end;
+            return node;
+        }
+
+        int axis = centroidMaxX - centroidMinX >= centroidMaxY - centroidMinY ?
+                   0 : 
+                   1;
+        int middle = (start + end) >>> 1;
+        select(order, start, end - 1, middle, centroids, axis);
+        nodeLeft[node] = build(order, start, middle, centroids, bounds);
+        nodeRight[node] = build(order, middle, end, centroids, bounds);
+        return node;
+    }
+
+    /**
+     * Partially sorts {@code order[left..right]} by the centroid coordinate 
+     * along {@code axis} such that the k-th element is in place (quickselect).
+     */
+    private static void select(int[] order, 
+                               int left, 
+                               int right, 
+                               int k, 
+                               double[] centroids, 
+                               int axis) {
+        while (left < right) {
+            double pivot = centroids[2 * order[(left + right) >>> 1] + axis];
+            int i = left;
+            int j = right;
+
+            while (i <= j) {
+                while (centroids[2 * order[i] + axis] < pivot) {
+                    ++i;
+                }
+
+                while (centroids[2 * order[j] + axis] > pivot) {
+                    --j;
+                }
+
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    ++i;
+                    --j;
+                }
+            }
+
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void computeBounds(double[] geometry,
+                                      boolean circle,
+                                      int primitive,
+                                      double[] bounds,
+                                      int index) {
+        int offset = 4 * primitive;
+
+        if (circle) {
+            double radius = geometry[offset + 2];
+            bounds[4 * index]     = geometry[offset] - radius;
+            bounds[4 * index + 1] = geometry[offset + 1] - radius;
+            bounds[4 * index + 2] = geometry[offset] + radius;
+            bounds[4 * index + 3] = geometry[offset + 1] + radius;
+        } else {
+            bounds[4 * index]     = Math.min(geometry[offset], 
+                                             geometry[offset + 2]);
+            bounds[4 * index + 1] = Math.min(geometry[offset + 1], 
+                                             geometry[offset + 3]);
+            bounds[4 * index + 2] = Math.max(geometry[offset], 
+                                             geometry[offset + 2]);
+            bounds[4 * index + 3] = Math.max(geometry[offset + 1], 
+                                             geometry[offset + 3]);
+        }
+    }
+
+    private boolean intersects(int node, 
+                               double minX, 
+                               double minY, 
+                               double maxX, 
+                               double maxY) {
+        int offset = 4 * node;
+        return nodeBounds[offset] <= maxX 
+            && nodeBounds[offset + 1] <= maxY
+            && nodeBounds[offset + 2] >= minX
+            && nodeBounds[offset + 3] >= minY;
+    }
+
+    /**
+     * Computes the distance from a point to the surface of a circle, or to a
+     * segment. Points inside a circle get a negative distance.
+     */
+    private double getDistance(int primitive, double x, double y) {
+        int offset = 4 * primitive;
+
+        if (circle[primitive]) {
+            double dx = x - geometry[offset];
+            double dy = y - geometry[offset + 1];
+            return Math.sqrt(dx * dx + dy * dy) - geometry[offset + 2];
+        }
+
+        double ax = geometry[offset];
+        double ay = geometry[offset + 1];
+        double ux = geometry[offset + 2] - ax;
+        double uy = geometry[offset + 3] - ay;
+        double lengthSquared = ux * ux + uy * uy;
+        double t = lengthSquared > 0.0 ?
+                   ((x - ax) * ux + (y - ay) * uy) / lengthSquared :
+                   0.0;
+        t = Math.max(0.0, Math.min(1.0, t));
+        double dx = x - (ax + t * ux);
+        double dy = y - (ay + t * uy);
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private void sweepCircle(int primitive,
+                             double x,
+                             double y,
+                             double dx,
+                             double dy,
+                             double radius,
+                             Hit hit) {
+        int offset = 4 * primitive;
+        sweepPoint(geometry[offset], 
+                   geometry[offset + 1], 
+                   geometry[offset + 2] + radius,
+                   x, 
+                   y, 
+                   dx, 
+                   dy, 
+                   hit);
+    }
+
+    /**
+     * Sweeps the disc against the capsule obtained by inflating the segment by
+     * the disc radius: the two sides of the segment and its two end caps.
+     */
+    private void sweepSegment(int primitive,
+                              double x,
+                              double y,
+                              double dx,
+                              double dy,
+                              double radius,
+                              Hit hit) {
+        int offset = 4 * primitive;
+        double ax = geometry[offset];
+        double ay = geometry[offset + 1];
+        double bx = geometry[offset + 2];
+        double by = geometry[offset + 3];
+        double ux = bx - ax;
+        double uy = by - ay;
+        double length = Math.sqrt(ux * ux + uy * uy);
+
+        if (length > 0.0) {
+            ux /= length;
+            uy /= length;
+            double nx = -uy;
+            double ny = ux;
+            double side = (x - ax) * nx + (y - ay) * ny;
+            double along = (x - ax) * ux + (y - ay) * uy;
+            double approach = dx * nx + dy * ny;
+
+            if (side < 0.0) {
+                nx = -nx;
+                ny = -ny;
+                side = -side;
+                approach = -approach;
+            }
+
+            if (approach < 0.0) {
+                double time;
+
+                if (side < radius) {
+                    // Already touching the side; only block further approach.
+                    time = along >= 0.0 && along <= length ? 0.0 : -1.0;
+                } else {
+                    time = (side - radius) / -approach;
+                }
+
+                double alongAtTime = along + time * (dx * ux + dy * uy);
+
+                if (time >= 0.0 
+                        && time < hit.time 
+                        && alongAtTime >= 0.0 
+                        && alongAtTime <= length) {
+                    hit.time = time;
+                    hit.normalX = nx;
+                    hit.normalY = ny;
+                }
+            }
+        }
+
+        sweepPoint(ax, ay, radius, x, y, dx, dy, hit);
+        sweepPoint(bx, by, radius, x, y, dx, dy, hit);
+    }
+
+    /**
+     * Sweeps a point against a circle.
+     */
+    private static void sweepPoint(double centerX,
+                                   double centerY,
+                                   double circleRadius,
+                                   double x,
+                                   double y,
+                                   double dx,
+                                   double dy,
+                                   Hit hit) {
+        double mx = x - centerX;
+        double my = y - centerY;
+        double b = mx * dx + my * dy;
+
+        if (b >= 0.0) {
+            // Moving away from the circle.
+            return;
+        }
+
+        double c = mx * mx + my * my - circleRadius * circleRadius;
+        double time;
+
+        if (c <= 0.0) {
+            time = 0.0;
+        } else {
+            double a = dx * dx + dy * dy;
+            double discriminant = b * b - a * c;
+
+            if (discriminant < 0.0) {
+                return;
+            }
+
+            time = (-b - Math.sqrt(discriminant)) / a;
+        }
+
+        if (time < 0.0 || time >= hit.time || time > 1.0) {
+            return;
+        }
+
+        double contactX = mx + time * dx;
+        double contactY = my + time * dy;
+        double distance = Math.sqrt(contactX * contactX + contactY * contactY);
+
+        if (distance == 0.0) {
+            return;
+        }
+
+        hit.time = time;
+        hit.normalX = contactX / distance;
+        hit.normalY = contactY / distance;
+    }
+}
@@ -0,0 +1,395 @@
+package net.coderodde.simulation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class implements force kernels operating directly on the columns of an
+ * {@link OffHeapParticleStore}, without materializing any {@link Particle} 
+ * objects. The direct sum visits every pair; the cell list visits only the 
+ * pairs closer than a cutoff and runs in linear time for a uniform density.
+ * The cell list keeps its scratch buffers off the heap as well, in a 
+ * {@link Workspace} that may be reused between calls.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class OffHeapForceKernel {
+
+    private OffHeapForceKernel() {}
+
+    /**
+     * Computes the inverse-square pair forces 
+     * {@code forceConstant * m1 * m2 / d^2} acting on every particle in the 
+     * store, the same forces as {@link DefaultParticlePairForce} for a 
+     * positive {@code forceConstant}. A positive constant repels, a negative
+     * one attracts. Each pair is visited once, and Newton's third law gives 
+     * the force on the other particle.
+     * 
+     * @param store         the particle store.
+     * @param forceConstant the force constant.
+     * @param forceX        receives the horizontal force components.
+     * @param forceY        receives the vertical force components.
+     */
+    public static void computeInverseSquareForces(OffHeapParticleStore store,
+                                                  double forceConstant,
+                                                  DoubleBuffer forceX,
+                                                  DoubleBuffer forceY) {
+        int size = store.size();
+
+        if (forceX.capacity() < size || forceY.capacity() < size) {
+            throw new IllegalArgumentException(
+                    "The force buffers are too small for " + size + 
+                    " particles.");
+        }
+
+        DoubleBuffer masses = store.getMassColumn();
+        DoubleBuffer xs = store.getXColumn();
+        DoubleBuffer ys = store.getYColumn();
+
+        for (int i = 0; i < size; ++i) {
+            forceX.put(i, 0.0);
+            forceY.put(i, 0.0);
+        }
+
+        for (int i = 0; i < size; ++i) {
+            double x = xs.get(i);
+            double y = ys.get(i);
+            double mass = masses.get(i);
+            double fx = 0.0;
+            double fy = 0.0;
+
+            for (int j = i + 1; j < size; ++j) {
+                double dx = x - xs.get(j);
+                double dy = y - ys.get(j);
+                double distanceSquared = dx * dx + dy * dy;
+                double distance = Math.sqrt(distanceSquared);
+                double scale = forceConstant * mass * masses.get(j) 
+                             / (distanceSquared * distance);
+                fx += scale * dx;
+                fy += scale * dy;
+                forceX.put(j, forceX.get(j) - scale * dx);
+                forceY.put(j, forceY.get(j) - scale * dy);
+            }
+
+            forceX.put(i, forceX.get(i) + fx);
+            forceY.put(i, forceY.get(i) + fy);
+        }
+    }
+
+    /**
+     * Holds the scratch buffers of the cell-list kernels outside the Java 
+     * heap, so that repeated calls on a large store neither allocate nor 
+     * leave garbage behind. The buffers grow on demand.
+     */
+    public static final class Workspace {
+
+        /**
+         * The cell of each particle.
+         */
+        private IntBuffer cells = allocateInts(0);
+
+        /**
+         * The particle indices sorted by their cells.
+         */
+        private IntBuffer sortedIndices = allocateInts(0);
+
+        /**
+         * The index into {@code sortedIndices} of the first particle of each 
+         * cell, followed by the total count.
+         */
+        private IntBuffer cellStarts = allocateInts(1);
+
+        /**
+         * The fill pointer of each cell during the counting sort.
+         */
+        private IntBuffer cellEnds = allocateInts(0);
+
+        private int columns;
+        private int rows;
+        private double minX;
+        private double minY;
+
+        /**
+         * Bins the particles of the store into square cells of side 
+         * {@code cutoff} by a counting sort.
+         */
+        private void bin(OffHeapParticleStore store, double cutoff) {
+            int size = store.size();
+            DoubleBuffer xs = store.getXColumn();
+            DoubleBuffer ys = store.getYColumn();
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            minX = Double.POSITIVE_INFINITY;
+            minY = Double.POSITIVE_INFINITY;
+
+            for (int i = 0; i < size; ++i) {
+                minX = Math.min(minX, xs.get(i));
+                minY = Math.min(minY, ys.get(i));
+                maxX = Math.max(maxX, xs.get(i));
+                maxY = Math.max(maxY, ys.get(i));
+            }
+
+            columns = (int)((maxX - minX) / cutoff) + 1;
+            rows = (int)((maxY - minY) / cutoff) + 1;
+            int cellCount = Math.multiplyExact(columns, rows);
+
+            if (cells.capacity() < size) {
+                cells = allocateInts(size);
+                sortedIndices = allocateInts(size);
+            }
+
+            if (cellEnds.capacity() < cellCount) {
+                cellStarts = allocateInts(cellCount + 1);
+                cellEnds = allocateInts(cellCount);
+            }
+
+            for (int cell = 0; cell <= cellCount; ++cell) {
+                cellStarts.put(cell, 0);
+            }
+
+            for (int i = 0; i < size; ++i) {
+                int column = (int)((xs.get(i) - minX) / cutoff);
+                int row = (int)((ys.get(i) - minY) / cutoff);
+                int cell = row * columns + column;
+                cells.put(i, cell);
+                cellStarts.put(cell + 1, cellStarts.get(cell + 1) + 1);
+            }
+
+            for (int cell = 0; cell < cellCount; ++cell) {
+                cellStarts.put(cell + 1, 
+                               cellStarts.get(cell + 1) + 
+                               cellStarts.get(cell));
+                cellEnds.put(cell, cellStarts.get(cell));
+            }
+
+            for (int i = 0; i < size; ++i) {
+                int cell = cells.get(i);
+                int end = cellEnds.get(cell);
+                sortedIndices.put(end, i);
+                cellEnds.put(cell, end + 1);
+            }
+        }
+
+        private static IntBuffer allocateInts(int capacity) {
+            return ByteBuffer.allocateDirect(capacity * Integer.BYTES)
+                             .order(ByteOrder.nativeOrder())
+                             .asIntBuffer();
+        }
+    }
+
+    /**
+     * Computes the inverse-square pair forces like 
+     * {@link #computeInverseSquareForces(OffHeapParticleStore, double, 
+     * DoubleBuffer, DoubleBuffer)}, but only between the particles closer 
+     * than {@code cutoff}, the same forces as {@link CellListForceSolver}. 
+     * The particles are binned into a uniform grid of cells no smaller than
+     * the cutoff by a counting sort, so only the 3 x 3 neighbourhood of each
+     * cell is scanned.
+     * 
+     * @param store         the particle store.
+     * @param forceConstant the force constant.
+     * @param cutoff        the cutoff distance.
+     * @param forceX        receives the horizontal force components.
+     * @param forceY        receives the vertical force components.
+     */
+    public static void computeInverseSquareForces(OffHeapParticleStore store,
+                                                  double forceConstant,
+                                                  double cutoff,
+                                                  DoubleBuffer forceX,
+                                                  DoubleBuffer forceY) {
+        computeInverseSquareForces(store, 
+                                   forceConstant, 
+                                   cutoff, 
+                                   forceX, 
+                                   forceY, 
+                                   new Workspace());
+    }
+
+    /**
+     * Computes the cutoff inverse-square pair forces like 
+     * {@link #computeInverseSquareForces(OffHeapParticleStore, double, 
+     * double, DoubleBuffer, DoubleBuffer)}, keeping the scratch buffers in the
+     * given workspace.
+     * 
+     * @param store         the particle store.
+     * @param forceConstant the force constant.
+     * @param cutoff        the cutoff distance.
+     * @param forceX        receives the horizontal force components.
+     * @param forceY        receives the vertical force components.
+     * @param workspace     the scratch buffers.
+     */
+    public static void computeInverseSquareForces(OffHeapParticleStore store,
+                                                  double forceConstant,
+                                                  double cutoff,
+                                                  DoubleBuffer forceX,
+                                                  DoubleBuffer forceY,
+                                                  Workspace workspace) {
+        checkCutoff(cutoff);
+        int size = store.size();
+
+        if (forceX.capacity() < size || forceY.capacity() < size) {
+            throw new IllegalArgumentException(
+                    "The force buffers are too small for " + size + 
+                    " particles.");
+        }
+
+        if (size == 0) {
+            return;
+        }
+
+        workspace.bin(store, cutoff);
+        DoubleBuffer masses = store.getMassColumn();
+        DoubleBuffer xs = store.getXColumn();
+        DoubleBuffer ys = store.getYColumn();
+        IntBuffer cells = workspace.cells;
+        IntBuffer cellStarts = workspace.cellStarts;
+        IntBuffer sortedIndices = workspace.sortedIndices;
+        int columns = workspace.columns;
+        int rows = workspace.rows;
+        double cutoffSquared = cutoff * cutoff;
+
+        for (int i = 0; i < size; ++i) {
+            double x = xs.get(i);
+            double y = ys.get(i);
+            double mass = masses.get(i);
+            int column = cells.get(i) % columns;
+            int row = cells.get(i) / columns;
+            double fx = 0.0;
+            double fy = 0.0;
+
+            for (int r = Math.max(0, row - 1); 
+                     r <= Math.min(rows - 1, row + 1); 
+                     ++r) {
+                for (int c = Math.max(0, column - 1); 
+                         c <= Math.min(columns - 1, column + 1); 
+                         ++c) {
+                    int neighbourCell = r * columns + c;
+
+                    for (int k = cellStarts.get(neighbourCell); 
+                             k < cellStarts.get(neighbourCell + 1); 
+                             ++k) {
+                        int j = sortedIndices.get(k);
+
+                        if (i == j) {
+                            continue;
+                        }
+
+                        double dx = x - xs.get(j);
+                        double dy = y - ys.get(j);
+                        double distanceSquared = dx * dx + dy * dy;
+
+                        if (distanceSquared >= cutoffSquared) {
+                            continue;
+                        }
+
+                        double distance = Math.sqrt(distanceSquared);
+                        double scale = forceConstant * mass * masses.get(j) 
+                                     / (distanceSquared * distance);
+                        fx += scale * dx;
+                        fy += scale * dy;
+                    }
+                }
+            }
+
+            forceX.put(i, fx);
+            forceY.put(i, fy);
+        }
+    }
+
+    /**
+     * Computes the potential energy {@code forceConstant * m1 * m2 / d} summed
+     * over the pairs closer than {@code cutoff}, the potential of the forces 
+     * of {@link #computeInverseSquareForces(OffHeapParticleStore, double, 
+     * double, DoubleBuffer, DoubleBuffer, Workspace)} up to the constant 
+     * offset of the truncation.
+     * 
+     * @param store         the particle store.
+     * @param forceConstant the force constant.
+     * @param cutoff        the cutoff distance.
+     * @param workspace     the scratch buffers.
+     * @return the potential energy.
+     */
+    public static double computeInverseSquarePotentialEnergy(
+            OffHeapParticleStore store,
+            double forceConstant,
+            double cutoff,
+            Workspace workspace) {
+        checkCutoff(cutoff);
+        int size = store.size();
+
+        if (size == 0) {
+            return 0.0;
+        }
+
+        workspace.bin(store, cutoff);
+        DoubleBuffer masses = store.getMassColumn();
+        DoubleBuffer xs = store.getXColumn();
+        DoubleBuffer ys = store.getYColumn();
+        IntBuffer cells = workspace.cells;
+        IntBuffer cellStarts = workspace.cellStarts;
+        IntBuffer sortedIndices = workspace.sortedIndices;
+        int columns = workspace.columns;
+        int rows = workspace.rows;
+        double cutoffSquared = cutoff * cutoff;
+        double potentialEnergy = 0.0;
+
+        for (int i = 0; i < size; ++i) {
+            double x = xs.get(i);
+            double y = ys.get(i);
+            double mass = masses.get(i);
+            int column = cells.get(i) % columns;
+            int row = cells.get(i) / columns;
+
+            for (int r = Math.max(0, row - 1); 
+                     r <= Math.min(rows - 1, row + 1); 
+                     ++r) {
+                for (int c = Math.max(0, column - 1); 
+                         c <= Math.min(columns - 1, column + 1); 
+                         ++c) {
+                    int neighbourCell = r * columns + c;
+
+                    for (int k = cellStarts.get(neighbourCell); 
+                             k < cellStarts.get(neighbourCell + 1); 
+                             ++k) {
+                        int j = sortedIndices.get(k);
+
+                        // Count each pair once.
+                        if (j <= i) {
+                            continue;
+                        }
+
+                        double dx = x - xs.get(j);
+                        double dy = y - ys.get(j);
+                        double distanceSquared = dx * dx + dy * dy;
+
+                        if (distanceSquared >= cutoffSquared) {
+                            continue;
+                        }
+
+                        potentialEnergy += forceConstant * mass * 
+                                           masses.get(j) / 
+                                           Math.sqrt(distanceSquared);
+                    }
+                }
+            }
+        }
+
+        return potentialEnergy;
+    }
+
+    private static void checkCutoff(double cutoff) {
+        checkNonNaN(cutoff, "The cutoff is NaN.");
+        checkNonNegative(cutoff, "The cutoff is negative: " + cutoff);
+        checkNonInfinite(cutoff, "The cutoff is infinite.");
+
+        if (cutoff == 0.0) {
+            throw new IllegalArgumentException("The cutoff is zero.");
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package net.coderodde.simulation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class stores the state of particles outside the Java heap in a 
+ * structure-of-arrays layout: one column per particle attribute, each column
+ * aligned to a cache line. The store is either backed by direct memory, or by 
+ * a memory-mapped file, in which case it may be checkpointed with 
+ * {@link #force()} and reopened later without copying. 
+ * {@link OffHeapSimulationEngine} runs the simulation on the columns of a 
+ * store directly; {@link SimulationEngine} uses it as a checkpoint target.
+ * <p>
+ * The file starts with a header of {@link #HEADER_SIZE} bytes holding the 
+ * magic number, the format version, the particle count and the capacity. The
+ * columns follow in the order mass, radius, x, y, velocityX and velocityY, 
+ * each padded to a multiple of {@link #ALIGNMENT} bytes and stored in the
+ * native byte order, so that the kernels read them without swapping bytes.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class OffHeapParticleStore implements Closeable {
+
+    /**
+     * The alignment of each column in bytes.
+     */
+    public static final int ALIGNMENT = 64;
+
+    /**
+     * The size of the file header in bytes. A multiple of 
+     * {@link #ALIGNMENT}.
+     */
+    public static final int HEADER_SIZE = 64;
+
+    private static final long MAGIC = 0x4350534f46464850L; // "CPSOFFHP"
+    private static final int VERSION = 1;
+    private static final int COLUMNS = 6;
+    private static final int MASS = 0;
+    private static final int RADIUS = 1;
+    private static final int X = 2;
+    private static final int Y = 3;
+    private static final int VELOCITY_X = 4;
+    private static final int VELOCITY_Y = 5;
+
+    /**
+     * The maximum capacity; a column must fit in a single buffer.
+     */
+    private static final int MAXIMUM_CAPACITY = 
+            (Integer.MAX_VALUE - ALIGNMENT) / Double.BYTES;
+
+    private final int capacity;
+    private final ByteBuffer header;
+    private final DoubleBuffer[] columns = new DoubleBuffer[COLUMNS];
+    private final FileChannel channel;
+
+    /**
+     * The mapped column buffers of a file-backed store, or {@code null}.
+     */
+    private final MappedByteBuffer[] mappedColumns;
+    private int size;
+
+    private OffHeapParticleStore(int capacity, 
+                                 ByteBuffer header, 
+                                 ByteBuffer[] columnBuffers,
+                                 FileChannel channel,
+                                 MappedByteBuffer[] mappedColumns) {
+        this.capacity = capacity;
+        this.header = header;
+        this.channel = channel;
+        this.mappedColumns = mappedColumns;
+
+        for (int column = 0; column < COLUMNS; ++column) {
+            columns[column] = columnBuffers[column]
+                                      .order(ByteOrder.nativeOrder())
+                                      .asDoubleBuffer();
+        }
+    }
+
+    /**
+     * Allocates a store in direct memory.
+     * 
+     * @param capacity the maximum number of particles.
+     * @return the new store.
+     */
+    public static OffHeapParticleStore allocate(int capacity) {
+        checkCapacity(capacity);
+        int columnSize = getColumnSize(capacity);
+        ByteBuffer[] columnBuffers = new ByteBuffer[COLUMNS];
+
+        for (int column = 0; column < COLUMNS; ++column) {
+            columnBuffers[column] = 
+                    ByteBuffer.allocateDirect(columnSize + ALIGNMENT)
+                              .alignedSlice(ALIGNMENT);
+        }
+
+        ByteBuffer header = ByteBuffer.allocateDirect(HEADER_SIZE);
+        OffHeapParticleStore store = 
+                new OffHeapParticleStore(capacity, 
+                                         header, 
+                                         columnBuffers, 
+                                         null, 
+                                         null);
+        store.writeHeader();
+        return store;
+    }
+
+    /**
+     * Creates a new store backed by a memory-mapped file. An existing file is
+     * overwritten.
+     * 
+     * @param path     the path of the file.
+     * @param capacity the maximum number of particles.
+     * @return the new store.
+     * @throws IOException if the file cannot be created.
+     */
+    public static OffHeapParticleStore create(Path path, int capacity) 
+    throws IOException {
+        checkCapacity(capacity);
+        FileChannel channel = FileChannel.open(path,
+                                               StandardOpenOption.CREATE,
+                                               StandardOpenOption.TRUNCATE_EXISTING,
+                                               StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+        OffHeapParticleStore store = map(channel, capacity);
+        store.writeHeader();
+        return store;
+    }
+
+    /**
+     * Reopens a store previously created by {@link #create(Path, int)}.
+     * 
+     * @param path the path of the file.
+     * @return the store.
+     * @throws IOException if the file cannot be opened or is not a particle 
+     *                     store.
+     */
+    public static OffHeapParticleStore open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                                               StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Keep reading.
+            }
+
+            header.flip();
+
+            if (header.remaining() < HEADER_SIZE
+                    || header.getLong() != MAGIC 
+                    || header.getInt() != VERSION) {
+                throw new IOException("Not a particle store: " + path + ".");
+            }
+
+            int size = header.getInt();
+            int capacity = header.getInt();
+
+            if (capacity < 0 || capacity > MAXIMUM_CAPACITY 
+                    || size < 0 || size > capacity) {
+                throw new IOException("Corrupted particle store: " + path);
+            }
+
+            OffHeapParticleStore store = map(channel, capacity);
+            store.size = size;
+            return store;
+        } catch (IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public double getMass(int index) {
+        return columns[MASS].get(checkIndex(index));
+    }
+
+    public double getRadius(int index) {
+        return columns[RADIUS].get(checkIndex(index));
+    }
+
+    public double getX(int index) {
+        return columns[X].get(checkIndex(index));
+    }
+
+    public double getY(int index) {
+        return columns[Y].get(checkIndex(index));
+    }
+
+    public double getVelocityX(int index) {
+        return columns[VELOCITY_X].get(checkIndex(index));
+    }
+
+    public double getVelocityY(int index) {
+        return columns[VELOCITY_Y].get(checkIndex(index));
+    }
+
+    /**
+     * Returns the mass column. The first {@link #size()} entries are valid.
+     * The column is shared with this store, so kernels may read and write it
+     * in place.
+     * 
+     * @return the mass column.
+     */
+    public DoubleBuffer getMassColumn() {
+        return columns[MASS].duplicate();
+    }
+
+    public DoubleBuffer getRadiusColumn() {
+        return columns[RADIUS].duplicate();
+    }
+
+    public DoubleBuffer getXColumn() {
+        return columns[X].duplicate();
+    }
+
+    public DoubleBuffer getYColumn() {
+        return columns[Y].duplicate();
+    }
+
+    public DoubleBuffer getVelocityXColumn() {
+        return columns[VELOCITY_X].duplicate();
+    }
+
+    public DoubleBuffer getVelocityYColumn() {
+        return columns[VELOCITY_Y].duplicate();
+    }
+
+    /**
+     * Appends a particle to this store.
+     * 
+     * @param particle the particle to append.
+     */
+    public void add(Particle particle) {
+        if (size == capacity) {
+            throw new IllegalStateException(
+                    "The particle store is full: " + capacity + ".");
+        }
+
+        set(size++, particle);
+        writeHeader();
+    }
+
+    /**
+     * Copies the state of a particle into the given slot.
+     * 
+     * @param index    the slot.
+     * @param particle the particle.
+     */
+    public void set(int index, Particle particle) {
+        if (index < 0 || index >= capacity) {
+            throw new IndexOutOfBoundsException(
+                    "Index " + index + ", capacity " + capacity + ".");
+        }
+
+        columns[MASS].put(index, particle.getMass());
+        columns[RADIUS].put(index, particle.getRadius());
+        columns[X].put(index, particle.getX());
+        columns[Y].put(index, particle.getY());
+        columns[VELOCITY_X].put(index, particle.getVelocityX());
+        columns[VELOCITY_Y].put(index, particle.getVelocityY());
+    }
+
+    /**
+     * Replaces the content of this store with the state of the given 
+     * particles.
+     * 
+     * @param particles the particles.
+     */
+    public void copyFrom(List<Particle> particles) {
+        if (particles.size() > capacity) {
+            throw new IllegalArgumentException(
+                    particles.size() + " particles do not fit into a store " + 
+                    "of capacity " + capacity + ".");
+        }
+
+        for (int i = 0; i < particles.size(); ++i) {
+            set(i, particles.get(i));
+        }
+
+        size = particles.size();
+        writeHeader();
+    }
+
+    /**
+     * Writes the masses, radii, positions and velocities held by this store 
+     * to the given particles, which must be as many as there are particles 
+     * in this store.
+     * 
+     * @param particles the particles.
+     */
+    public void copyTo(List<Particle> particles) {
+        if (particles.size() != size) {
+            throw new IllegalArgumentException(
+                    "The store holds " + size + " particles, " + 
+                    particles.size() + " given.");
+        }
+
+        for (int i = 0; i < size; ++i) {
+            Particle particle = particles.get(i);
+            particle.setMassAndRadius(columns[MASS].get(i), 
+                                      columns[RADIUS].get(i));
+            particle.setX(columns[X].get(i));
+            particle.setY(columns[Y].get(i));
+            particle.setVelocityX(columns[VELOCITY_X].get(i));
+            particle.setVelocityY(columns[VELOCITY_Y].get(i));
+        }
+    }
+
+    /**
+     * Creates heap particles from the content of this store.
+     * 
+     * @return the list of new particles.
+     */
+    public List<Particle> toParticles() {
+        List<Particle> particles = new ArrayList<>(size);
+
+        for (int i = 0; i < size; ++i) {
+            Particle particle = new Particle(columns[MASS].get(i),
+                                            columns[RADIUS].get(i));
+            particle.setX(columns[X].get(i));
+            particle.setY(columns[Y].get(i));
+            particle.setVelocityX(columns[VELOCITY_X].get(i));
+            particle.setVelocityY(columns[VELOCITY_Y].get(i));
+            particles.add(particle);
+        }
+
+        return particles;
+    }
+
+    /**
+     * Flushes the content of a file-backed store to the disk. Does nothing 
+     * for a store in direct memory.
+     */
+    public void force() {
+        if (channel == null) {
+            return;
+        }
+
+        ((MappedByteBuffer) header).force();
+
+        for (MappedByteBuffer buffer : mappedColumns) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            force();
+            channel.close();
+        }
+    }
+
+    private static OffHeapParticleStore map(FileChannel channel, int capacity) 
+    throws IOException {
+        int columnSize = getColumnSize(capacity);
+        MappedByteBuffer header = 
+                channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        MappedByteBuffer[] columnBuffers = new MappedByteBuffer[COLUMNS];
+
+        for (int column = 0; column < COLUMNS; ++column) {
+            // Each column is mapped separately, since a single mapping is
+            // limited to 2 GiB.
+            columnBuffers[column] = 
+                    channel.map(FileChannel.MapMode.READ_WRITE,
+                                HEADER_SIZE + (long) column * columnSize,
+                                columnSize);
+        }
+
+        return new OffHeapParticleStore(capacity, 
+                                        header, 
+                                        columnBuffers, 
+                                        channel,
+                                        columnBuffers);
+    }
+
+    private void writeHeader() {
+        header.putLong(0, MAGIC);
+        header.putInt(8, VERSION);
+        header.putInt(12, size);
+        header.putInt(16, capacity);
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(
+                    "Index " + index + ", size " + size + ".");
+        }
+
+        return index;
+    }
+
+    private static int getColumnSize(int capacity) {
+        int bytes = capacity * Double.BYTES;
+        return (bytes + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static void checkCapacity(int capacity) {
+        if (capacity < 0 || capacity > MAXIMUM_CAPACITY) {
+            throw new IllegalArgumentException(
+                    "Invalid capacity: " + capacity + ".");
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package net.coderodde.simulation;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.util.Objects;
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class runs the simulation directly on the columns of an
+ * {@link OffHeapParticleStore}. No {@link Particle} objects are created, the
+ * forces come from the cell-list kernel of {@link OffHeapForceKernel}, and
+ * the force and scratch buffers live outside the Java heap as well, so the
+ * heap stays small and the garbage collector idle no matter how many
+ * particles are simulated.
+ * <p>
+ * A step follows {@link SimulationEngine}: the velocities are kicked by the
+ * inverse-square forces, the particles drift and bounce off the world
+ * borders, and the velocities are rescaled so that the total energy stays
+ * at its initial value. The potential energy is summed over the pairs within
+ * the cutoff, like the forces, so both cost linear time for a uniform
+ * density. Obstacles, merging, multiple time stepping and rollbacks are not
+ * supported: a rollback would need a second copy of the whole state, so a
+ * step leaving the state non-finite fails with an exception instead.
+ * <p>
+ * With a file-backed store, {@link OffHeapParticleStore#force()}
+ * checkpoints the run, and the store may be reopened and run further.
+ *
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class OffHeapSimulationEngine {
+
+    private final OffHeapParticleStore store;
+    private final double forceConstant;
+    private final double cutoff;
+    private final double worldWidth;
+    private final double worldHeight;
+    private final double timeStep;
+    private final int size;
+    private final DoubleBuffer forceX;
+    private final DoubleBuffer forceY;
+    private final OffHeapForceKernel.Workspace workspace =
+            new OffHeapForceKernel.Workspace();
+
+    /**
+     * The total energy the velocities are rescaled to.
+     */
+    private double totalEnergy;
+    private double simulatedTime;
+    private long numberOfSteps;
+
+    /**
+     * The relative kinetic energy correction applied by the latest step.
+     */
+    private double kineticEnergyCorrection;
+
+    /**
+     * Constructs an engine running on the given store. The current state of
+     * the store becomes the energy baseline.
+     *
+     * @param store         the particle store; it is modified in place.
+     * @param forceConstant the force constant of the inverse-square forces;
+     *                      positive repels, negative attracts.
+     * @param cutoff        the distance beyond which the particles do not
+     *                      interact.
+     * @param worldWidth    the width of the world.
+     * @param worldHeight   the height of the world.
+     * @param timeStep      the time step.
+     */
+    public OffHeapSimulationEngine(OffHeapParticleStore store,
+                                   double forceConstant,
+                                   double cutoff,
+                                   double worldWidth,
+                                   double worldHeight,
+                                   double timeStep) {
+        this.store = Objects.requireNonNull(store, "The store is null.");
+        checkNonNaN(forceConstant, "The force constant is NaN.");
+        checkNonInfinite(forceConstant, "The force constant is infinite.");
+        this.forceConstant = forceConstant;
+        this.cutoff = checkPositive(cutoff, "cutoff");
+        this.worldWidth = checkPositive(worldWidth, "world width");
+        this.worldHeight = checkPositive(worldHeight, "world height");
+        this.timeStep = checkPositive(timeStep, "time step");
+        this.size = store.size();
+        this.forceX = allocateDoubles(size);
+        this.forceY = allocateDoubles(size);
+        this.totalEnergy = computeTotalEnergy();
+    }
+
+    public OffHeapParticleStore getStore() {
+        return store;
+    }
+
+    public double getSimulatedTime() {
+        return simulatedTime;
+    }
+
+    public long getNumberOfSteps() {
+        return numberOfSteps;
+    }
+
+    /**
+     * Returns the total energy the velocities are rescaled to.
+     *
+     * @return the total energy.
+     */
+    public double getTotalEnergy() {
+        return totalEnergy;
+    }
+
+    /**
+     * Returns the relative correction the latest step applied to the total
+     * kinetic energy in order to restore the total energy.
+     *
+     * @return the relative kinetic energy correction.
+     */
+    public double getKineticEnergyCorrection() {
+        return kineticEnergyCorrection;
+    }
+
+    /**
+     * Runs the given number of steps.
+     *
+     * @param steps the number of steps.
+     */
+    public void runHeadless(long steps) {
+        for (long step = 0; step < steps; ++step) {
+            step();
+        }
+    }
+
+    /**
+     * Computes the kinetic energy plus the potential energy of the pairs
+     * within the cutoff.
+     *
+     * @return the total energy.
+     */
+    public double computeTotalEnergy() {
+        checkSize();
+        return computeTotalKineticEnergy() +
+               OffHeapForceKernel.computeInverseSquarePotentialEnergy(
+                       store,
+                       forceConstant,
+                       cutoff,
+                       workspace);
+    }
+
+    /**
+     * Performs a single step.
+     */
+    public void step() {
+        checkSize();
+        OffHeapForceKernel.computeInverseSquareForces(store,
+                                                      forceConstant,
+                                                      cutoff,
+                                                      forceX,
+                                                      forceY,
+                                                      workspace);
+        DoubleBuffer masses = store.getMassColumn();
+        DoubleBuffer radii = store.getRadiusColumn();
+        DoubleBuffer xs = store.getXColumn();
+        DoubleBuffer ys = store.getYColumn();
+        DoubleBuffer velocitiesX = store.getVelocityXColumn();
+        DoubleBuffer velocitiesY = store.getVelocityYColumn();
+        boolean finite = true;
+
+        for (int i = 0; i < size; ++i) {
+            double inverseMass = 1.0 / masses.get(i);
+            double radius = radii.get(i);
+            double velocityX =
+                    velocitiesX.get(i) + forceX.get(i) * inverseMass * timeStep;
+            double velocityY =
+                    velocitiesY.get(i) + forceY.get(i) * inverseMass * timeStep;
+            double x = xs.get(i) + velocityX * timeStep;
+            double y = ys.get(i) + velocityY * timeStep;
+
+            // The same border handling as in SimulationEngine.
+            if (y - radius <= 0.0) {
+                velocityY = -velocityY;
+                y = radius;
+            } else if (y + radius >= worldHeight) {
+                velocityY = -velocityY;
+                y = worldHeight - radius;
+            }
+
+            if (x - radius <= 0.0) {
+                x = radius;
+            } else if (x + radius >= worldWidth) {
+                x = worldWidth - radius;
+            }
+
+            finite &= Double.isFinite(x)
+                   && Double.isFinite(y)
+                   && Double.isFinite(velocityX)
+                   && Double.isFinite(velocityY);
+            xs.put(i, x);
+            ys.put(i, y);
+            velocitiesX.put(i, velocityX);
+            velocitiesY.put(i, velocityY);
+        }
+
+        if (!finite) {
+            throw new IllegalStateException(
+                    "The system state is not finite after " +
+                    "the step at time " + simulatedTime + ".");
+        }
+
+        normalizeVelocities();
+        simulatedTime += timeStep;
+        ++numberOfSteps;
+    }
+
+    /**
+     * Rescales the velocities so that the total energy returns to its
+     * initial value.
+     */
+    private void normalizeVelocities() {
+        double totalKineticEnergy = computeTotalKineticEnergy();
+        double potentialEnergy =
+                OffHeapForceKernel.computeInverseSquarePotentialEnergy(
+                        store,
+                        forceConstant,
+                        cutoff,
+                        workspace);
+        double totalEnergyDelta =
+                totalEnergy - totalKineticEnergy - potentialEnergy;
+        kineticEnergyCorrection =
+                totalKineticEnergy > 0.0 ?
+                totalEnergyDelta / totalKineticEnergy :
+                0.0;
+        double aux = kineticEnergyCorrection + 1.0;
+
+        if (aux < 0.0) {
+            // The kinetic energy cannot absorb the error; leave the
+            // velocities as they are.
+            return;
+        }
+
+        double factor = Math.sqrt(aux);
+        DoubleBuffer velocitiesX = store.getVelocityXColumn();
+        DoubleBuffer velocitiesY = store.getVelocityYColumn();
+
+        for (int i = 0; i < size; ++i) {
+            velocitiesX.put(i, factor * velocitiesX.get(i));
+            velocitiesY.put(i, factor * velocitiesY.get(i));
+        }
+    }
+
+    private double computeTotalKineticEnergy() {
+        DoubleBuffer masses = store.getMassColumn();
+        DoubleBuffer velocitiesX = store.getVelocityXColumn();
+        DoubleBuffer velocitiesY = store.getVelocityYColumn();
+        double kineticEnergy = 0.0;
+
+        for (int i = 0; i < size; ++i) {
+            double velocityX = velocitiesX.get(i);
+            double velocityY = velocitiesY.get(i);
+            kineticEnergy += 0.5 * masses.get(i) *
+                             (velocityX * velocityX + velocityY * velocityY);
+        }
+
+        return kineticEnergy;
+    }
+
+    private void checkSize() {
+        if (store.size() != size) {
+            throw new IllegalStateException(
+                    "The store held " + size + " particles when the engine " +
+                    "was created, now " + store.size() + ".");
+        }
+    }
+
+    private static DoubleBuffer allocateDoubles(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Double.BYTES)
+                         .order(ByteOrder.nativeOrder())
+                         .asDoubleBuffer();
+    }
+
+    private static double checkPositive(double value, String name) {
+        checkNonNaN(value, "The " + name + " is NaN.");
+        checkNonNegative(value, "The " + name + " is negative: " + value);
+        checkNonInfinite(value, "The " + name + " is infinite.");
+
+        if (value == 0.0) {
+            throw new IllegalArgumentException("The " + name + " is zero.");
+        }
+
+        return value;
+    }
+}
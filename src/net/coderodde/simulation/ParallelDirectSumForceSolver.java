@@ -0,0 +1,35 @@
+package net.coderodde.simulation;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * This class computes the forces exactly like {@link DirectSumForceSolver}, 
+ * but distributes the particles over the threads of the common fork/join 
+ * pool. The force implementation must be thread safe.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class ParallelDirectSumForceSolver implements ForceSolver {
+
+    @Override
+    public void computeForces(List<Particle> particles,
+                              ParticlePairForce particlePairForce,
+                              double[] forceX,
+                              double[] forceY) {
+        IntStream.range(0, particles.size())
+                 .parallel()
+                 .forEach((i) -> 
+                         DirectSumForceSolver.computeForce(particles,
+                                                           particlePairForce,
+                                                           i,
+                                                           forceX,
+                                                           forceY));
+    }
+
+    @Override
+    public String getName() {
+        return "parallel direct sum";
+    }
+}
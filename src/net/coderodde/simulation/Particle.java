@@ -1,5 +1,6 @@
 package net.coderodde.simulation;
 
+import static net.coderodde.simulation.Configuration.RADIUS_FACTOR;
 import static net.coderodde.simulation.Utils.checkNonInfinite;
 import static net.coderodde.simulation.Utils.checkNonNaN;
 import static net.coderodde.simulation.Utils.checkNonNegative;
@@ -13,8 +14,8 @@ import static net.coderodde.simulation.Utils.checkNonNegative;
  */
 public final class Particle {
 
-    private final double mass;
-    private final double radius;
+    private double mass;
+    private double radius;
     private double x;
     private double y;
     
@@ -30,6 +31,19 @@ public final class Particle {
      */
     private double velocityY;
 
+    /**
+     * The stable identifier assigned by the simulation engine. Unlike the 
+     * position of the particle in the engine's storage, the identifier never
+     * changes.
+     */
+    private int id = -1;
+
+    /**
+     * Is set when this particle has merged into another one and no longer 
+     * takes part in the simulation.
+     */
+    private boolean absorbed;
+
     /**
      * Constructs a new particle.
      * 
@@ -64,6 +78,63 @@ public final class Particle {
         return radius;
     }
 
+    /**
+     * Returns the identifier of this particle, or -1 if this particle has not
+     * been added to a simulation engine.
+     * 
+     * @return the identifier of this particle.
+     */
+    public int getId() {
+        return id;
+    }
+
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns {@code true} if this particle has been merged into another 
+     * particle and is no longer simulated.
+     * 
+     * @return {@code true} if this particle is absorbed.
+     */
+    public boolean isAbsorbed() {
+        return absorbed;
+    }
+
+    /**
+     * Merges the given particle into this one. The merged particle is placed
+     * at the center of mass of the two and conserves their total mass and 
+     * momentum. Its radius is recomputed from the new mass. The other particle
+     * is marked as absorbed.
+     * 
+     * @param other the particle to absorb.
+     */
+    void absorb(Particle other) {
+        double totalMass = mass + other.mass;
+        double weight = mass / totalMass;
+        double otherWeight = other.mass / totalMass;
+        x = weight * x + otherWeight * other.x;
+        y = weight * y + otherWeight * other.y;
+        velocityX = weight * velocityX + otherWeight * other.velocityX;
+        velocityY = weight * velocityY + otherWeight * other.velocityY;
+        mass = totalMass;
+        radius = RADIUS_FACTOR * totalMass;
+        other.absorbed = true;
+    }
+
+    /**
+     * Restores the mass and the radius of this particle, for example from a
+     * checkpoint taken before a merge changed them.
+     * 
+     * @param mass   the new mass.
+     * @param radius the new radius.
+     */
+    void setMassAndRadius(double mass, double radius) {
+        this.mass = checkMass(mass);
+        this.radius = checkRadius(radius);
+    }
+
     public void setX(double x) {
         this.x = checkX(x);
     }
@@ -80,6 +151,31 @@ public final class Particle {
         this.velocityY = checkVelocityY(velocityY);
     }
 
+    /**
+     * Sets the position of this particle without validating the coordinates.
+     * This is the fast path used by the simulation engine; the numerical 
+     * health of the entire system is verified once per step by 
+     * {@link NumericalHealthMonitor}.
+     * 
+     * @param x the new x-coordinate.
+     * @param y the new y-coordinate.
+     */
+    void setPositionUnchecked(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Sets the velocity of this particle without validating the components.
+     * 
+     * @param velocityX the new horizontal velocity.
+     * @param velocityY the new vertical velocity.
+     */
+    void setVelocityUnchecked(double velocityX, double velocityY) {
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+    }
+
     public double getSpeed() {
         double vxSquared = velocityX * velocityX;
         double vySquared = velocityY * velocityY;
@@ -0,0 +1,199 @@
+package net.coderodde.simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class loads and saves particle sets. Two formats are supported:
+ * <ul>
+ *   <li>CSV, one particle per line: 
+ *       {@code mass,radius,x,y,velocityX,velocityY}. Empty lines, lines 
+ *       starting with {@code #} and a non-numeric header line are 
+ *       skipped.</li>
+ *   <li>Binary: the magic number, the number of particles, and then six 
+ *       big-endian doubles per particle in the same order as in CSV.</li>
+ * </ul>
+ * Both formats are parsed in a streaming fashion, so the only memory taken is
+ * that of the resulting particles.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class ParticleFileLoader {
+
+    /**
+     * The magic number starting a binary particle file.
+     */
+    private static final int BINARY_MAGIC = 0x50415254; // "PART"
+
+    /**
+     * The number of fields describing a particle.
+     */
+    private static final int FIELDS = 6;
+
+    private static final String CSV_HEADER = 
+            "mass,radius,x,y,velocityX,velocityY";
+
+    private ParticleFileLoader() {}
+
+    public static List<Particle> loadCsv(Path path) throws IOException {
+        List<Particle> particles = new ArrayList<>();
+        double[] fields = new double[FIELDS];
+
+        try (BufferedReader reader = 
+                Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+
+            while ((line = reader.readLine()) != null) {
+                ++lineNumber;
+                line = line.trim();
+
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                if (particles.isEmpty() && isHeader(line)) {
+                    continue;
+                }
+
+                parseCsvLine(line, lineNumber, fields);
+                particles.add(createParticle(fields));
+            }
+        }
+
+        return particles;
+    }
+
+    public static void saveCsv(List<Particle> particles, Path path) 
+    throws IOException {
+        try (BufferedWriter writer = 
+                Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(CSV_HEADER);
+            writer.newLine();
+
+            for (Particle particle : particles) {
+                writer.write(particle.getMass() + "," + 
+                             particle.getRadius() + "," + 
+                             particle.getX() + "," + 
+                             particle.getY() + "," + 
+                             particle.getVelocityX() + "," + 
+                             particle.getVelocityY());
+                writer.newLine();
+            }
+        }
+    }
+
+    public static List<Particle> loadBinary(Path path) throws IOException {
+        try (DataInputStream in = 
+                new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != BINARY_MAGIC) {
+                throw new IOException(
+                        "Not a binary particle file: " + path + ".");
+            }
+
+            int size = in.readInt();
+
+            if (size < 0) {
+                throw new IOException(
+                        "Negative particle count in " + path + ".");
+            }
+
+            List<Particle> particles = new ArrayList<>(size);
+            double[] fields = new double[FIELDS];
+
+            for (int i = 0; i < size; ++i) {
+                for (int field = 0; field < FIELDS; ++field) {
+                    fields[field] = in.readDouble();
+                }
+
+                particles.add(createParticle(fields));
+            }
+
+            return particles;
+        }
+    }
+
+    public static void saveBinary(List<Particle> particles, Path path) 
+    throws IOException {
+        try (DataOutputStream out = 
+                new DataOutputStream(
+                        new BufferedOutputStream(
+                                Files.newOutputStream(path)))) {
+            out.writeInt(BINARY_MAGIC);
+            out.writeInt(particles.size());
+
+            for (Particle particle : particles) {
+                out.writeDouble(particle.getMass());
+                out.writeDouble(particle.getRadius());
+                out.writeDouble(particle.getX());
+                out.writeDouble(particle.getY());
+                out.writeDouble(particle.getVelocityX());
+                out.writeDouble(particle.getVelocityY());
+            }
+        }
+    }
+
+    private static boolean isHeader(String line) {
+        char first = line.charAt(0);
+        return !(Character.isDigit(first) 
+                || first == '-' 
+                || first == '+' 
+                || first == '.');
+    }
+
+    private static void parseCsvLine(String line, 
+                                     int lineNumber, 
+                                     double[] fields) throws IOException {
+        int start = 0;
+
+        for (int field = 0; field < FIELDS; ++field) {
+            int end = line.indexOf(',', start);
+
+            if (end < 0) {
+                if (field != FIELDS - 1) {
+                    throw new IOException(
+                            "Line " + lineNumber + ": expected " + FIELDS + 
+                            " fields.");
+                }
+
+                end = line.length();
+            }
+
+            try {
+                fields[field] = 
+                        Double.parseDouble(line.substring(start, end).trim());
+            } catch (NumberFormatException ex) {
+                throw new IOException(
+                        "Line " + lineNumber + ": " + ex.getMessage(), ex);
+            }
+
+            start = end + 1;
+        }
+
+        if (start <= line.length()) {
+            throw new IOException(
+                    "Line " + lineNumber + ": too many fields.");
+        }
+    }
+
+    private static Particle createParticle(double[] fields) {
+        Particle particle = new Particle(fields[0], fields[1]);
+        particle.setX(fields[2]);
+        particle.setY(fields[3]);
+        particle.setVelocityX(fields[4]);
+        particle.setVelocityY(fields[5]);
+        return particle;
+    }
+}
@@ -0,0 +1,94 @@
+package net.coderodde.simulation;
+
+import java.util.List;
+
+/**
+ * This class checks that no two particles overlap, taking their radii into 
+ * account. The particles are binned into a uniform grid with cells as wide as
+ * the largest particle, so each particle is compared only against the 
+ * particles in the adjacent cells, and the whole check runs in expected linear
+ * time.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class ParticleOverlapValidator {
+
+    private ParticleOverlapValidator() {}
+
+    /**
+     * Checks that there is no two different particles overlapping.
+     * 
+     * @param particles the particles to check.
+     * @throws IllegalStateException if two particles overlap.
+     */
+    public static void checkParticlesDoNotOverlap(List<Particle> particles) {
+        int[] overlap = findOverlap(particles);
+
+        if (overlap != null) {
+            throw new IllegalStateException(
+                    "Particles " + overlap[0] + " and " + overlap[1] + 
+                    " overlap: " + particles.get(overlap[0]) + ", " + 
+                    particles.get(overlap[1]) + ".");
+        }
+    }
+
+    /**
+     * Finds a pair of overlapping particles.
+     * 
+     * @param particles the particles to check.
+     * @return the indices of two overlapping particles, or {@code null} if 
+     *         there is no such pair.
+     */
+    public static int[] findOverlap(List<Particle> particles) {
+        double maximumRadius = Utils.getMaximumRadius(particles);
+        UniformCellGrid grid = 
+                new UniformCellGrid(maximumRadius > 0.0 ? 
+                                    2.0 * maximumRadius : 
+                                    1.0);
+        grid.build(particles);
+
+        int[] cellStarts = grid.getCellStarts();
+        int[] sortedIndices = grid.getSortedIndices();
+        int columns = grid.getColumns();
+        int rows = grid.getRows();
+
+        for (int i = 0; i < particles.size(); ++i) {
+            Particle particle = particles.get(i);
+            int cell = grid.getCellOfParticle(i);
+            int column = cell % columns;
+            int row = cell / columns;
+
+            for (int r = Math.max(0, row - 1); 
+                     r <= Math.min(rows - 1, row + 1); 
+                     ++r) {
+                for (int c = Math.max(0, column - 1); 
+                         c <= Math.min(columns - 1, column + 1); 
+                         ++c) {
+                    int neighbourCell = r * columns + c;
+
+                    for (int k = cellStarts[neighbourCell]; 
+                             k < cellStarts[neighbourCell + 1]; 
+                             ++k) {
+                        int j = sortedIndices[k];
+
+                        if (j > i && overlap(particle, particles.get(j))) {
+                            return new int[]{ i, j };
+                        }
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private static boolean overlap(Particle particle1, Particle particle2) {
+        double dx = particle1.getX() - particle2.getX();
+        double dy = particle1.getY() - particle2.getY();
+        double distanceSquared = dx * dx + dy * dy;
+        double radiusSum = particle1.getRadius() + particle2.getRadius();
+        return distanceSquared == 0.0 
+            || distanceSquared < radiusSum * radiusSum;
+    }
+}
@@ -0,0 +1,28 @@
+package net.coderodde.simulation;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This interface defines the API for algorithms placing particles in the 
+ * world.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public interface ParticlePositionGenerator {
+
+    /**
+     * Sets the positions of all the given particles such that each particle 
+     * lies completely inside the world.
+     * 
+     * @param particles   the particles to place.
+     * @param worldWidth  the width of the world.
+     * @param worldHeight the height of the world.
+     * @param random      the random number generator.
+     */
+    public void assignPositions(List<Particle> particles,
+                                double worldWidth,
+                                double worldHeight,
+                                Random random);
+}
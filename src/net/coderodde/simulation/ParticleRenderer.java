@@ -22,12 +22,24 @@ public final class ParticleRenderer {
         this.color = Objects.requireNonNull(color, "The input color is null.");
     }
 
+    Particle getParticle() {
+        return particle;
+    }
+
+    Color getColor() {
+        return color;
+    }
+
     /**
      * Draws this particle on a canvas.
      * 
      * @param g the graphics context.
      */
     public void draw(Graphics g) {
+        if (particle.isAbsorbed()) {
+            return;
+        }
+
         int effectiveX = (int)(particle.getX() * PIXELS_PER_UNIT_LENGTH);
         int effectiveY = (int)(particle.getY() * PIXELS_PER_UNIT_LENGTH);
         int radius = (int)(particle.getRadius() *  PIXELS_PER_UNIT_LENGTH);
@@ -0,0 +1,75 @@
+package net.coderodde.simulation;
+
+import java.util.List;
+
+/**
+ * This class holds a cheap in-memory copy of the dynamic state (positions and
+ * velocities) of a list of particles. The internal arrays are reused between
+ * captures so that taking a snapshot every step does not produce garbage.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class ParticleStateSnapshot {
+
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] velocityX = new double[0];
+    private double[] velocityY = new double[0];
+
+    /**
+     * The number of particles in the latest capture.
+     */
+    private int size;
+
+    /**
+     * Copies the state of all the given particles into this snapshot.
+     * 
+     * @param particles the particles to capture.
+     */
+    void capture(List<Particle> particles) {
+        size = particles.size();
+        ensureCapacity(size);
+
+        for (int i = 0; i < size; ++i) {
+            Particle particle = particles.get(i);
+            x[i] = particle.getX();
+            y[i] = particle.getY();
+            velocityX[i] = particle.getVelocityX();
+            velocityY[i] = particle.getVelocityY();
+        }
+    }
+
+    /**
+     * Writes the captured state back to the particles. The particle list must
+     * be the same, in the same order, as the one that was captured.
+     * 
+     * @param particles the particles to restore.
+     */
+    void restore(List<Particle> particles) {
+        if (particles.size() != size) {
+            throw new IllegalStateException(
+                    "The snapshot holds " + size + " particles, " + 
+                    particles.size() + " requested.");
+        }
+
+        for (int i = 0; i < size; ++i) {
+            Particle particle = particles.get(i);
+            particle.setPositionUnchecked(x[i], y[i]);
+            particle.setVelocityUnchecked(velocityX[i], velocityY[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (x.length < capacity) {
+            x = new double[capacity];
+            y = new double[capacity];
+            velocityX = new double[capacity];
+            velocityY = new double[capacity];
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package net.coderodde.simulation;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This interface defines the API for algorithms assigning initial velocities
+ * to particles.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public interface ParticleVelocityGenerator {
+
+    /**
+     * Sets the velocities of all the given particles.
+     * 
+     * @param particles the particles.
+     * @param random    the random number generator.
+     */
+    public void assignVelocities(List<Particle> particles, Random random);
+}
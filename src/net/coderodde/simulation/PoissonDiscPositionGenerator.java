@@ -0,0 +1,282 @@
+package net.coderodde.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class places particles by Poisson-disc sampling (Bridson's algorithm).
+ * The particle centers are at least twice the maximum particle radius apart,
+ * so no two particles overlap, while the positions still look uniformly 
+ * random. Runs in time linear in the number of generated samples. Optionally,
+ * the samples touching a static obstacle are discarded.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class PoissonDiscPositionGenerator 
+implements ParticlePositionGenerator {
+
+    /**
+     * The number of candidates tried around an active sample before the sample
+     * is retired.
+     */
+    private static final int CANDIDATES_PER_SAMPLE = 30;
+
+    /**
+     * Used for choosing the initial sample spacing such that a maximal 
+     * sampling holds about 50% more samples than there are particles.
+     */
+    private static final double SPACING_FACTOR = 0.7;
+
+    /**
+     * The factor by which the spacing shrinks when a maximal sampling does not
+     * hold all the particles.
+     */
+    private static final double SPACING_SHRINK_FACTOR = 0.9;
+
+    /**
+     * The obstacles the particles must not touch, or {@code null}.
+     */
+    private final ObstacleBoundingVolumeHierarchy obstacles;
+
+    public PoissonDiscPositionGenerator() {
+        this(null);
+    }
+
+    /**
+     * Constructs a generator that keeps the particles off the given 
+     * obstacles.
+     * 
+     * @param obstacles the obstacles, or {@code null} for none.
+     */
+    public PoissonDiscPositionGenerator(
+            ObstacleBoundingVolumeHierarchy obstacles) {
+        this.obstacles = obstacles;
+    }
+
+    @Override
+    public void assignPositions(List<Particle> particles,
+                                double worldWidth,
+                                double worldHeight,
+                                Random random) {
+        if (particles.isEmpty()) {
+            return;
+        }
+
+        double maximumRadius = Utils.getMaximumRadius(particles);
+        double width = worldWidth - 2.0 * maximumRadius;
+        double height = worldHeight - 2.0 * maximumRadius;
+
+        if (width <= 0.0 || height <= 0.0) {
+            throw new IllegalArgumentException(
+                    "The world is too small for the particles.");
+        }
+
+        double minimumSpacing = 2.0 * maximumRadius;
+        double spacing = 
+                Math.max(minimumSpacing, 
+                         SPACING_FACTOR * 
+                                 Math.sqrt(width * height / particles.size()));
+
+        while (true) {
+            Samples samples = sample(width, height, spacing, random);
+
+            if (obstacles != null) {
+                removeObstructedSamples(samples, maximumRadius);
+            }
+
+            if (samples.size >= particles.size()) {
+                int[] order = shuffledIndices(samples.size, random);
+
+                for (int i = 0; i < particles.size(); ++i) {
+                    Particle particle = particles.get(i);
+                    particle.setX(maximumRadius + samples.x[order[i]]);
+                    particle.setY(maximumRadius + samples.y[order[i]]);
+                }
+
+                return;
+            }
+
+            if (spacing == minimumSpacing) {
+                throw new IllegalArgumentException(
+                        "Cannot fit " + particles.size() + " particles into " + 
+                        "the world without overlaps.");
+            }
+
+            spacing = Math.max(minimumSpacing, 
+                               SPACING_SHRINK_FACTOR * spacing);
+        }
+    }
+
+    /**
+     * Holds the sample coordinates in growable primitive arrays.
+     */
+    private static final class Samples {
+        double[] x = new double[16];
+        double[] y = new double[16];
+        int size;
+
+        void add(double sampleX, double sampleY) {
+            if (size == x.length) {
+                x = Arrays.copyOf(x, 2 * size);
+                y = Arrays.copyOf(y, 2 * size);
+            }
+
+            x[size] = sampleX;
+            y[size] = sampleY;
+            ++size;
+        }
+    }
+
+    /**
+     * Computes a maximal Poisson-disc sampling of the rectangle 
+     * {@code [0, width) x [0, height)}.
+     */
+    private static Samples sample(double width, 
+                                  double height,
+                                  double spacing,
+                                  Random random) {
+        double cellSize = spacing / Math.sqrt(2.0);
+        int columns = (int) Math.ceil(width / cellSize);
+        int rows = (int) Math.ceil(height / cellSize);
+        
+        // Each cell holds at most one sample; -1 denotes an empty cell.
+        int[] grid = new int[Math.multiplyExact(columns, rows)];
+        Arrays.fill(grid, -1);
+
+        Samples samples = new Samples();
+        int[] active = new int[16];
+        int activeSize = 0;
+        double spacingSquared = spacing * spacing;
+
+        samples.add(width * random.nextDouble(), height * random.nextDouble());
+        grid[getCell(samples, 0, columns, cellSize)] = 0;
+        active[activeSize++] = 0;
+
+        while (activeSize > 0) {
+            int activeIndex = random.nextInt(activeSize);
+            int sample = active[activeIndex];
+            boolean found = false;
+
+            for (int k = 0; k < CANDIDATES_PER_SAMPLE; ++k) {
+                double angle = 2.0 * Math.PI * random.nextDouble();
+                double distance = spacing * (1.0 + random.nextDouble());
+                double x = samples.x[sample] + distance * Math.cos(angle);
+                double y = samples.y[sample] + distance * Math.sin(angle);
+
+                if (x < 0.0 || x >= width || y < 0.0 || y >= height) {
+                    continue;
+                }
+
+                if (isFarEnough(x, y, samples, grid, columns, rows, 
+                                cellSize, spacingSquared)) {
+                    int index = samples.size;
+                    samples.add(x, y);
+                    grid[getCell(samples, index, columns, cellSize)] = index;
+
+                    if (activeSize == active.length) {
+                        active = Arrays.copyOf(active, 2 * activeSize);
+                    }
+
+                    active[activeSize++] = index;
+                    found = true;
+                    break;
+                }
+            }
+
+            if (!found) {
+                // Swap-remove the exhausted sample.
+                active[activeIndex] = active[--activeSize];
+            }
+        }
+
+        return samples;
+    }
+
+    private static int getCell(Samples samples, 
+                               int index, 
+                               int columns, 
+                               double cellSize) {
+        int column = (int)(samples.x[index] / cellSize);
+        int row = (int)(samples.y[index] / cellSize);
+        return row * columns + column;
+    }
+
+    private static boolean isFarEnough(double x,
+                                       double y,
+                                       Samples samples,
+                                       int[] grid,
+                                       int columns,
+                                       int rows,
+                                       double cellSize,
+                                       double spacingSquared) {
+        int column = (int)(x / cellSize);
+        int row = (int)(y / cellSize);
+        
+        // The spacing is sqrt(2) cells, so two cells in each direction 
+        // suffice.
+        int column0 = Math.max(0, column - 2);
+        int column1 = Math.min(columns - 1, column + 2);
+        int row0 = Math.max(0, row - 2);
+        int row1 = Math.min(rows - 1, row + 2);
+
+        for (int r = row0; r <= row1; ++r) {
+            for (int c = column0; c <= column1; ++c) {
+                int index = grid[r * columns + c];
+
+                if (index < 0) {
+                    continue;
+                }
+
+                double dx = samples.x[index] - x;
+                double dy = samples.y[index] - y;
+
+                if (dx * dx + dy * dy < spacingSquared) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes the samples at which a particle of the given radius would touch
+     * an obstacle. The samples are offset by the radius from the world 
+     * origin.
+     */
+    private void removeObstructedSamples(Samples samples, double radius) {
+        int size = 0;
+
+        for (int i = 0; i < samples.size; ++i) {
+            double x = radius + samples.x[i];
+            double y = radius + samples.y[i];
+
+            if (!obstacles.overlaps(x, y, radius)) {
+                samples.x[size] = samples.x[i];
+                samples.y[size] = samples.y[i];
+                ++size;
+            }
+        }
+
+        samples.size = size;
+    }
+
+    private static int[] shuffledIndices(int size, Random random) {
+        int[] indices = new int[size];
+
+        for (int i = 0; i < size; ++i) {
+            indices[i] = i;
+        }
+
+        for (int i = size - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int tmp = indices[i];
+            indices[i] = indices[j];
+            indices[j] = tmp;
+        }
+
+        return indices;
+    }
+}
@@ -0,0 +1,59 @@
+package net.coderodde.simulation;
+
+import static net.coderodde.simulation.SegmentObstacle.checkCoordinate;
+
+/**
+ * This class implements a polygonal obstacle. The polygon may be open, in 
+ * which case it describes a polyline such as a channel wall, or closed.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class PolygonObstacle implements Obstacle {
+
+    private static final double[] NO_CIRCLES = {};
+
+    private final double[] segments;
+
+    /**
+     * Constructs a new polygon obstacle.
+     * 
+     * @param xs     the x-coordinates of the vertices.
+     * @param ys     the y-coordinates of the vertices.
+     * @param closed whether the last vertex is connected to the first one.
+     */
+    public PolygonObstacle(double[] xs, double[] ys, boolean closed) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException(
+                    "The coordinate arrays differ in length: " + xs.length + 
+                    " vs. " + ys.length + ".");
+        }
+
+        if (xs.length < 2) {
+            throw new IllegalArgumentException(
+                    "A polygon needs at least two vertices.");
+        }
+
+        int vertices = xs.length;
+        int edges = closed && vertices > 2 ? vertices : vertices - 1;
+        segments = new double[4 * edges];
+
+        for (int i = 0; i < edges; ++i) {
+            int j = (i + 1) % vertices;
+            segments[4 * i]     = checkCoordinate(xs[i]);
+            segments[4 * i + 1] = checkCoordinate(ys[i]);
+            segments[4 * i + 2] = checkCoordinate(xs[j]);
+            segments[4 * i + 3] = checkCoordinate(ys[j]);
+        }
+    }
+
+    @Override
+    public double[] getSegments() {
+        return segments.clone();
+    }
+
+    @Override
+    public double[] getCircles() {
+        return NO_CIRCLES;
+    }
+}
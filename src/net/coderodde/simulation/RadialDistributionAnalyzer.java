@@ -0,0 +1,448 @@
+package net.coderodde.simulation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class accumulates the radial distribution function {@code g(r)} of the
+ * particles while the simulation runs, and derives the static structure factor
+ * {@code S(q)} from it.
+ * <p>
+ * At every {@code samplingInterval}-th step, the particles are binned into a 
+ * uniform grid with cells no smaller than the maximum radius, so only the 
+ * pairs in neighbouring cells are visited. The pairs are counted in parallel
+ * into per-task histograms, which are summed afterwards. Each sample is 
+ * normalized by the pair count of an ideal gas of the same number of 
+ * particles in the same rectangular world, so the number of particles may 
+ * change between samples. The ideal count accounts for the walls via the 
+ * isotropic set covariance of the world rectangle, the mean over the 
+ * directions {@code theta} of 
+ * {@code (W - r |cos theta|)+ (H - r |sin theta|)+},
+ * so {@code g(r)} is not biased at distances comparable to the world size. Up
+ * to {@code min(W, H)}, the covariance is 
+ * {@code W H - 2 r (W + H) / pi + r^2 / pi}; beyond, only the directions in
+ * which the rectangle is still longer than {@code r} contribute, and it 
+ * vanishes at the diagonal.
+ * <p>
+ * In two dimensions, {@code S(q) = 1 + 2 pi rho 
+ * integral (g(r) - 1) J0(q r) r dr}, where {@code J0} is the Bessel function 
+ * of the first kind of order zero.
+ * <p>
+ * If an output file is given, the current averages are written to it after 
+ * every {@code exportInterval}-th sample. The file is replaced atomically, so
+ * it can be read at any time.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class RadialDistributionAnalyzer 
+        implements SimulationStepListener {
+
+    private static final String CSV_HEADER = "r,g,q,S";
+
+    /**
+     * The number of histogram tasks per worker thread.
+     */
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final double maximumRadius;
+    private final int binCount;
+    private final double binWidth;
+    private final int samplingInterval;
+    private final Path outputFile;
+    private final int exportInterval;
+    private final UniformCellGrid grid;
+
+    /**
+     * The sum of the per-sample radial distribution functions.
+     */
+    private final double[] radialDistributionSum;
+    private double densitySum;
+    private int numberOfSamples;
+    private long samplingNanos;
+
+    /**
+     * Constructs an analyzer.
+     * 
+     * @param maximumRadius    the largest distance of interest.
+     * @param binCount         the number of histogram bins.
+     * @param samplingInterval the number of steps between two samples.
+     * @param outputFile       the CSV file to export to, or {@code null}.
+     * @param exportInterval   the number of samples between two exports.
+     */
+    public RadialDistributionAnalyzer(double maximumRadius,
+                                      int binCount,
+                                      int samplingInterval,
+                                      Path outputFile,
+                                      int exportInterval) {
+        checkNonNaN(maximumRadius, "The maximum radius is NaN.");
+        checkNonNegative(maximumRadius, 
+                         "The maximum radius is negative: " + maximumRadius);
+        checkNonInfinite(maximumRadius, "The maximum radius is infinite.");
+
+        if (maximumRadius == 0.0) {
+            throw new IllegalArgumentException("The maximum radius is zero.");
+        }
+
+        if (binCount < 1 || samplingInterval < 1 || exportInterval < 1) {
+            throw new IllegalArgumentException(
+                    "The bin count, the sampling interval and the export " + 
+                    "interval must be positive.");
+        }
+
+        this.maximumRadius = maximumRadius;
+        this.binCount = binCount;
+        this.binWidth = maximumRadius / binCount;
+        this.samplingInterval = samplingInterval;
+        this.outputFile = outputFile;
+        this.exportInterval = exportInterval;
+        this.grid = new UniformCellGrid(maximumRadius);
+        this.radialDistributionSum = new double[binCount];
+    }
+
+    @Override
+    public void onStep(SimulationEngine engine, long stepNumber) {
+        if (stepNumber % samplingInterval != 0) {
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        sample(engine.getParticles(), 
+               engine.getWorldWidth(), 
+               engine.getWorldHeight());
+        samplingNanos += System.nanoTime() - startTime;
+
+        if (outputFile != null && numberOfSamples % exportInterval == 0) {
+            try {
+                export(outputFile);
+            } catch (IOException ex) {
+                System.err.println("Cannot export the radial distribution: " 
+                                   + ex.getMessage());
+            }
+        }
+    }
+
+    public double getBinWidth() {
+        return binWidth;
+    }
+
+    public int getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+    /**
+     * Returns the total wall-clock time spent sampling.
+     * 
+     * @return the time in nanoseconds.
+     */
+    public long getSamplingNanos() {
+        return samplingNanos;
+    }
+
+    /**
+     * Returns the average radial distribution function. The {@code k}th entry
+     * is the value at the center of the {@code k}th bin.
+     * 
+     * @return the radial distribution function.
+     */
+    public double[] getRadialDistribution() {
+        double[] radialDistribution = new double[binCount];
+
+        if (numberOfSamples == 0) {
+            return radialDistribution;
+        }
+
+        for (int bin = 0; bin < binCount; ++bin) {
+            radialDistribution[bin] = 
+                    radialDistributionSum[bin] / numberOfSamples;
+        }
+
+        return radialDistribution;
+    }
+
+    /**
+     * Returns the wave number of the {@code k}th entry of the structure 
+     * factor.
+     * 
+     * @param k the index of the entry.
+     * @return the wave number.
+     */
+    public double getWaveNumber(int k) {
+        // From the longest resolvable wavelength to the Nyquist limit.
+        double minimumWaveNumber = 2.0 * Math.PI / maximumRadius;
+        double maximumWaveNumber = Math.PI / binWidth;
+        return minimumWaveNumber + 
+               (maximumWaveNumber - minimumWaveNumber) * k / 
+               Math.max(1, binCount - 1);
+    }
+
+    /**
+     * Returns the static structure factor at the wave numbers given by 
+     * {@link #getWaveNumber(int)}.
+     * 
+     * @return the structure factor.
+     */
+    public double[] getStructureFactor() {
+        double[] radialDistribution = getRadialDistribution();
+        double[] structureFactor = new double[binCount];
+
+        if (numberOfSamples == 0) {
+            return structureFactor;
+        }
+
+        double density = densitySum / numberOfSamples;
+
+        for (int k = 0; k < binCount; ++k) {
+            double q = getWaveNumber(k);
+            double integral = 0.0;
+
+            for (int bin = 0; bin < binCount; ++bin) {
+                double r = (bin + 0.5) * binWidth;
+                integral += (radialDistribution[bin] - 1.0) * 
+                            besselJ0(q * r) * r * binWidth;
+            }
+
+            structureFactor[k] = 1.0 + 2.0 * Math.PI * density * integral;
+        }
+
+        return structureFactor;
+    }
+
+    /**
+     * Writes the current averages as CSV, replacing the file atomically.
+     * 
+     * @param path the target file.
+     * @throws IOException if writing fails.
+     */
+    public void export(Path path) throws IOException {
+        double[] radialDistribution = getRadialDistribution();
+        double[] structureFactor = getStructureFactor();
+        Path absolutePath = path.toAbsolutePath();
+        Path temporaryFile = 
+                absolutePath.resolveSibling(absolutePath.getFileName() + 
+                                            ".tmp");
+
+        try (BufferedWriter writer = 
+                Files.newBufferedWriter(temporaryFile, 
+                                        StandardCharsets.UTF_8)) {
+            writer.write(CSV_HEADER);
+            writer.newLine();
+
+            for (int bin = 0; bin < binCount; ++bin) {
+                writer.write(String.format(Locale.ROOT,
+                                           "%s,%s,%s,%s",
+                                           (bin + 0.5) * binWidth,
+                                           radialDistribution[bin],
+                                           getWaveNumber(bin),
+                                           structureFactor[bin]));
+                writer.newLine();
+            }
+        }
+
+        try {
+            Files.move(temporaryFile, 
+                       absolutePath, 
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            Files.move(temporaryFile, 
+                       absolutePath, 
+                       StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void sample(List<Particle> particles, 
+                        double worldWidth, 
+                        double worldHeight) {
+        int size = particles.size();
+
+        if (size < 2) {
+            return;
+        }
+
+        grid.build(particles);
+        int tasks = TASKS_PER_THREAD * 
+                    ForkJoinPool.commonPool().getParallelism();
+        int chunkSize = (size + tasks - 1) / tasks;
+        long[] histogram = 
+                IntStream.range(0, tasks)
+                         .parallel()
+                         .mapToObj((task) -> 
+                                 countPairs(particles,
+                                            task * chunkSize,
+                                            Math.min(size, 
+                                                     (task + 1) * chunkSize)))
+                         .reduce(RadialDistributionAnalyzer::add)
+                         .get();
+
+        double area = worldWidth * worldHeight;
+        double density = size / area;
+
+        for (int bin = 0; bin < binCount; ++bin) {
+            double innerRadius = bin * binWidth;
+            double outerRadius = innerRadius + binWidth;
+            double r = innerRadius + 0.5 * binWidth;
+            double annulusArea = Math.PI * (outerRadius * outerRadius - 
+                                            innerRadius * innerRadius);
+            double setCovariance = 
+                    getIsotropicSetCovariance(r, worldWidth, worldHeight);
+
+            if (setCovariance <= 0.0) {
+                // No pair of points in the world is this far apart.
+                continue;
+            }
+
+            double idealPairs = 0.5 * size * (size - 1) * annulusArea * 
+                                setCovariance / (area * area);
+            radialDistributionSum[bin] += histogram[bin] / idealPairs;
+        }
+
+        densitySum += density;
+        ++numberOfSamples;
+    }
+
+    /**
+     * Computes the isotropic set covariance of a rectangle, the area of the 
+     * intersection of the rectangle with its copy translated by {@code r}, 
+     * averaged over the directions. By symmetry, it suffices to average 
+     * {@code (width - r cos theta) (height - r sin theta)} over the angles 
+     * {@code theta} within {@code [0, pi / 2]} at which both factors are 
+     * positive.
+     * 
+     * @param r      the translation distance.
+     * @param width  the width of the rectangle.
+     * @param height the height of the rectangle.
+     * @return the isotropic set covariance.
+     */
+    static double getIsotropicSetCovariance(double r, 
+                                            double width, 
+                                            double height) {
+        double minimumAngle = r > width ? Math.acos(width / r) : 0.0;
+        double maximumAngle = 
+                r > height ? Math.asin(height / r) : 0.5 * Math.PI;
+
+        if (minimumAngle >= maximumAngle) {
+            return 0.0;
+        }
+
+        return 2.0 / Math.PI * 
+               (getCovarianceAntiderivative(maximumAngle, r, width, height) -
+                getCovarianceAntiderivative(minimumAngle, r, width, height));
+    }
+
+    /**
+     * An antiderivative of 
+     * {@code (width - r cos theta) (height - r sin theta)} with respect to 
+     * {@code theta}.
+     */
+    private static double getCovarianceAntiderivative(double theta,
+                                                      double r,
+                                                      double width,
+                                                      double height) {
+        double sin = Math.sin(theta);
+        return width * height * theta 
+             + width * r * Math.cos(theta) 
+             - height * r * sin 
+             + 0.5 * r * r * sin * sin;
+    }
+
+    /**
+     * Counts the pairs within the maximum radius whose smaller index is within
+     * {@code [begin, end)}.
+     */
+    private long[] countPairs(List<Particle> particles, int begin, int end) {
+        long[] histogram = new long[binCount];
+        int[] cellStarts = grid.getCellStarts();
+        int[] sortedIndices = grid.getSortedIndices();
+        int columns = grid.getColumns();
+        int rows = grid.getRows();
+        double maximumRadiusSquared = maximumRadius * maximumRadius;
+
+        for (int i = begin; i < end; ++i) {
+            Particle particle = particles.get(i);
+            int cell = grid.getCellOfParticle(i);
+            int column = cell % columns;
+            int row = cell / columns;
+
+            for (int r = Math.max(0, row - 1); 
+                     r <= Math.min(rows - 1, row + 1); 
+                     ++r) {
+                for (int c = Math.max(0, column - 1); 
+                         c <= Math.min(columns - 1, column + 1); 
+                         ++c) {
+                    int neighbourCell = r * columns + c;
+
+                    for (int k = cellStarts[neighbourCell]; 
+                             k < cellStarts[neighbourCell + 1]; 
+                             ++k) {
+                        int j = sortedIndices[k];
+
+                        if (j <= i) {
+                            continue;
+                        }
+
+                        Particle other = particles.get(j);
+                        double dx = particle.getX() - other.getX();
+                        double dy = particle.getY() - other.getY();
+                        double distanceSquared = dx * dx + dy * dy;
+
+                        if (distanceSquared < maximumRadiusSquared) {
+                            int bin = (int)(Math.sqrt(distanceSquared) / 
+                                            binWidth);
+                            ++histogram[Math.min(binCount - 1, bin)];
+                        }
+                    }
+                }
+            }
+        }
+
+        return histogram;
+    }
+
+    private static long[] add(long[] histogram1, long[] histogram2) {
+        for (int bin = 0; bin < histogram1.length; ++bin) {
+            histogram1[bin] += histogram2[bin];
+        }
+
+        return histogram1;
+    }
+
+    /**
+     * Computes the Bessel function of the first kind of order zero via the 
+     * polynomial approximations 9.4.1 and 9.4.3 of Abramowitz and Stegun. The
+     * absolute error is about {@code 1e-7}.
+     * 
+     * @param x the argument.
+     * @return the value of the function.
+     */
+    static double besselJ0(double x) {
+        double ax = Math.abs(x);
+
+        if (ax <= 3.0) {
+            double t = (ax / 3.0) * (ax / 3.0);
+            return 1.0 + t * (-2.2499997 + t * (1.2656208 + t * (-0.3163866 
+                       + t * (0.0444479 + t * (-0.0039444 
+                       + t * 0.0002100)))));
+        }
+
+        double t = 3.0 / ax;
+        double f = 0.79788456 + t * (-0.00000077 + t * (-0.00552740 
+                 + t * (-0.00009512 + t * (0.00137237 + t * (-0.00072805 
+                 + t * 0.00014476)))));
+        double theta = ax - 0.78539816 + t * (-0.04166397 + t * (-0.00003954 
+                     + t * (0.00262573 + t * (-0.00054125 + t * (-0.00029333 
+                     + t * 0.00013558)))));
+        return f * Math.cos(theta) / Math.sqrt(ax);
+    }
+}
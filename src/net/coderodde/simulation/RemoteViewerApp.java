@@ -0,0 +1,79 @@
+package net.coderodde.simulation;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.io.IOException;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import static net.coderodde.simulation.Configuration.PIXELS_PER_UNIT_LENGTH;
+
+/**
+ * This class implements a thin Swing viewer for a simulation streamed by a 
+ * {@link FrameStreamServer}.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class RemoteViewerApp {
+
+    private static final String FRAME_TITLE = "Closed system simulation viewer";
+
+    /**
+     * Defines the entry point of the viewer.
+     * 
+     * @param args the host and the port of the server.
+     * @throws IOException if connecting to the server fails.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: <host> <port>");
+            return;
+        }
+
+        RemoteViewPanel panel = new RemoteViewPanel();
+        FrameStreamClient client = 
+                new FrameStreamClient(args[0], 
+                                      Integer.parseInt(args[1]), 
+                                      panel::repaint);
+        panel.client = client;
+
+        SwingUtilities.invokeLater(() -> {
+            JFrame frame = new JFrame(FRAME_TITLE);
+            frame.setSize(
+                    (int)(client.getWorldWidth() * PIXELS_PER_UNIT_LENGTH),
+                    (int)(client.getWorldHeight() * PIXELS_PER_UNIT_LENGTH));
+            frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+            frame.getContentPane().add(panel);
+            frame.setVisible(true);
+        });
+    }
+
+    private static final class RemoteViewPanel extends JPanel {
+
+        private volatile FrameStreamClient client;
+
+        @Override
+        public void paintComponent(Graphics g) {
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, getWidth(), getHeight());
+
+            if (client == null) {
+                return;
+            }
+
+            for (ParticleRenderer particleRenderer 
+                    : client.getParticleRenderers()) {
+                particleRenderer.draw(g);
+            }
+
+            String status = "Step: " + client.getStepNumber() + 
+                            ", time: " + String.format("%.3f", 
+                                                client.getSimulatedTime()) +
+                            ", received: " + 
+                            client.getReceivedBytes() / 1024 + " KiB";
+            g.setColor(Color.WHITE);
+            g.drawChars(status.toCharArray(), 0, status.length(), 0, 20);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package net.coderodde.simulation;
+
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+
+/**
+ * This class implements a wall in the form of a line segment.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class SegmentObstacle implements Obstacle {
+
+    private static final double[] NO_CIRCLES = {};
+
+    private final double[] segment;
+
+    public SegmentObstacle(double x1, double y1, double x2, double y2) {
+        this.segment = new double[]{ checkCoordinate(x1), 
+                                     checkCoordinate(y1),
+                                     checkCoordinate(x2), 
+                                     checkCoordinate(y2) };
+    }
+
+    @Override
+    public double[] getSegments() {
+        return segment.clone();
+    }
+
+    @Override
+    public double[] getCircles() {
+        return NO_CIRCLES;
+    }
+
+    static double checkCoordinate(double coordinate) {
+        checkNonNaN(coordinate, "The obstacle coordinate is NaN.");
+        checkNonInfinite(coordinate, "The obstacle coordinate is infinite.");
+        return coordinate;
+    }
+}
@@ -3,17 +3,36 @@ package net.coderodde.simulation;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Toolkit;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
+import static net.coderodde.simulation.Configuration.BARNES_HUT_OPENING_ANGLE;
+import static net.coderodde.simulation.Configuration.CELL_LIST_CUTOFF;
+import static net.coderodde.simulation.Configuration.DEFAULT_EXPORT_INTERVAL;
 import static net.coderodde.simulation.Configuration.DEFAULT_NUMBER_OF_PARTICLES;
+import static net.coderodde.simulation.Configuration.ENERGY_ERROR_TOLERANCE;
+import static net.coderodde.simulation.Configuration.FORCE_ERROR_TOLERANCE;
+import static net.coderodde.simulation.Configuration.FORCE_SOLVER_RECALIBRATION_INTERVAL;
 import static net.coderodde.simulation.Configuration.MAXIMUM_PARTICLE_MASS;
+import static net.coderodde.simulation.Configuration.MAXIMUM_TIME_STEP;
 import static net.coderodde.simulation.Configuration.MAX_INITIAL_VELOCITY;
 import static net.coderodde.simulation.Configuration.MINIMUM_PARTICLE_MASS;
+import static net.coderodde.simulation.Configuration.MINIMUM_TIME_STEP;
 import static net.coderodde.simulation.Configuration.PIXELS_PER_UNIT_LENGTH;
 import static net.coderodde.simulation.Configuration.SLEEP_TIME;
+import static net.coderodde.simulation.Configuration.SPATIAL_QUERY_INTERVAL;
 import static net.coderodde.simulation.Configuration.TIME_STEP;
+import static net.coderodde.simulation.Configuration.TIME_STEP_SAFETY_FACTOR;
+import static net.coderodde.simulation.Configuration.TRAJECTORY_KEY_FRAME_INTERVAL;
+import static net.coderodde.simulation.Configuration.TRAJECTORY_POSITION_RESOLUTION;
+import static net.coderodde.simulation.Configuration.TRAJECTORY_QUEUE_CAPACITY;
+import static net.coderodde.simulation.Configuration.TRAJECTORY_VELOCITY_QUANTUM;
 
 /**
  * This class implements the entire simulation program.
@@ -34,11 +53,89 @@ public final class SimulationApp {
     private static final int COLOR_CHANNEL_MAX = 256;
 
     /**
-     * Defines the entry point of the program.
+     * The command line flag requesting the headless frame export.
+     */
+    private static final String EXPORT_FLAG = "--export";
+
+    /**
+     * The command line flag requesting headless streaming to remote viewers.
+     */
+    private static final String SERVE_FLAG = "--serve";
+
+    /**
+     * The command line flag letting the streaming server accept viewers from
+     * other hosts. Without it, the server listens at the loopback address 
+     * only.
+     */
+    private static final String REMOTE_FLAG = "--remote";
+
+    /**
+     * The command line flag requesting headless trajectory recording.
+     */
+    private static final String RECORD_FLAG = "--record";
+
+    /**
+     * The command line flag requesting the attractive (gravitational) mode in
+     * which colliding particles merge.
+     */
+    private static final String GRAVITY_FLAG = "--gravity";
+
+    /**
+     * The command line flag requesting a set of static obstacles.
+     */
+    private static final String OBSTACLES_FLAG = "--obstacles";
+
+    /**
+     * The radius of the obstacle pillars relative to the world height.
+     */
+    private static final double PILLAR_RADIUS_FACTOR = 0.08;
+
+    /**
+     * The width of the exported frames in pixels.
+     */
+    private static final int EXPORT_FRAME_WIDTH = 1280;
+
+    /**
+     * The height of the exported frames in pixels.
+     */
+    private static final int EXPORT_FRAME_HEIGHT = 720;
+
+    /**
+     * Defines the entry point of the program. Run with 
+     * {@code --export <directory> <steps> [interval] [particles]} in order to
+     * run the simulation headless and export every {@code interval}th frame
+     * to {@code directory} as PNG files. Run with 
+     * {@code --serve <port> [particles] [--remote]} in order to run the 
+     * simulation headless and stream it to {@link RemoteViewerApp}s; the 
+     * stream is served to the local host only, unless {@code --remote} is 
+     * given. Run with 
+     * {@code --record <file> <steps> [interval] [particles]} in order to run
+     * the simulation headless and record every {@code interval}th step to a
+     * compressed trajectory file. Run with {@code --gravity} in order to 
+     * make the particles attract each other and merge on collision, and with
+     * {@code --obstacles} in order to add static obstacles. The last two 
+     * flags may be combined.
      * 
      * @param args the command line arguments.
+     * @throws IOException if the streaming server cannot be started or the 
+     *                     trajectory cannot be written.
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals(EXPORT_FLAG)) {
+            runHeadlessExport(args);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals(SERVE_FLAG)) {
+            runHeadlessServer(args);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals(RECORD_FLAG)) {
+            runHeadlessRecording(args);
+            return;
+        }
+
         Dimension screenDimension = Toolkit.getDefaultToolkit().getScreenSize();
         screenDimension.height -= TITLE_BAR_RESERVED_HEIGHT;
 
@@ -53,10 +150,17 @@ public final class SimulationApp {
 
         System.out.println("Seed = " + seed);
 
+        List<String> flags = Arrays.asList(args);
+        ObstacleBoundingVolumeHierarchy obstacles = 
+                flags.contains(OBSTACLES_FLAG) ?
+                createObstacles(worldWidth, worldHeight) :
+                null;
+
         List<ParticleData> particleData = 
                 getParticles(DEFAULT_NUMBER_OF_PARTICLES, 
                              worldWidth,
                              worldHeight,
+                             obstacles,
                              random);
 
         SimulationPanel simulationPanel = new SimulationPanel();
@@ -64,9 +168,14 @@ public final class SimulationApp {
         List<ParticleRenderer> particleRenderers = 
                 extractRenderers(particleData);
         
-        ParticlePairForce particlePairForce = new DefaultParticlePairForce();
+        boolean gravity = flags.contains(GRAVITY_FLAG);
+        ParticlePairForce particlePairForce = 
+                gravity ? 
+                new AttractingParticlePairForce() :
+                new DefaultParticlePairForce();
         ParticlePairPotentialEnergy particlePairPotentialEnergy =
-//                new AttractingParticlePairPotentialEnergy();
+                gravity ?
+                new AttractingParticlePairPotentialEnergy() :
                 new RepellingParticlePairPotentialEnergy();
         
         SimulationEngine simulator = new SimulationEngine(particles,
@@ -78,6 +187,10 @@ public final class SimulationApp {
                                             TIME_STEP,
                                             SLEEP_TIME);
 
+        simulator.setTimeStepController(createTimeStepController());
+        simulator.setForceSolver(createForceSolver());
+        simulator.setCollisionMerging(gravity);
+        simulator.setObstacles(obstacles);
         simulationPanel.setParticleRenderers(particleRenderers);
         simulationPanel.setSimulator(simulator);
         SimulationFrame simulationFrame = 
@@ -85,6 +198,12 @@ public final class SimulationApp {
                                     screenDimension.width,
                                     screenDimension.height);
 
+        SpatialQueryService spatialQueryService = 
+                new SpatialQueryService(SPATIAL_QUERY_INTERVAL);
+        spatialQueryService.rebuild(simulator);
+        simulator.addStepListener(spatialQueryService);
+        simulationPanel.setSpatialQueryService(spatialQueryService);
+
         SimulationFrameKeyListener keyListener = 
                 new SimulationFrameKeyListener(simulator);
 
@@ -92,6 +211,201 @@ public final class SimulationApp {
         simulator.run();
     }
     
+    private static void runHeadlessExport(String[] args) {
+        if (args.length < 3) {
+            System.err.println(
+                    "Usage: " + EXPORT_FLAG + 
+                    " <directory> <steps> [interval] [particles]");
+            return;
+        }
+
+        Path directory = Paths.get(args[1]);
+        long steps = Long.parseLong(args[2]);
+        int interval = args.length > 3 ? 
+                       Integer.parseInt(args[3]) : 
+                       DEFAULT_EXPORT_INTERVAL;
+        int numberOfParticles = args.length > 4 ?
+                                Integer.parseInt(args[4]) :
+                                DEFAULT_NUMBER_OF_PARTICLES;
+
+        double worldWidth = (1.0 * EXPORT_FRAME_WIDTH) 
+                                 / PIXELS_PER_UNIT_LENGTH;
+
+        double worldHeight = (1.0 * EXPORT_FRAME_HEIGHT)
+                                  / PIXELS_PER_UNIT_LENGTH;
+
+        long seed = System.currentTimeMillis();
+        Random random = new Random(seed);
+
+        System.out.println("Seed = " + seed);
+
+        List<ParticleData> particleData = getParticles(numberOfParticles,
+                                                       worldWidth,
+                                                       worldHeight,
+                                                       random);
+
+        SimulationPanel simulationPanel = new SimulationPanel();
+        SimulationEngine simulator = 
+                new SimulationEngine(extractParticles(particleData),
+                                     new DefaultParticlePairForce(),
+                                     new RepellingParticlePairPotentialEnergy(),
+                                     worldWidth,
+                                     worldHeight,
+                                     TIME_STEP);
+
+        simulator.setTimeStepController(createTimeStepController());
+        simulator.setForceSolver(createForceSolver());
+        simulationPanel.setParticleRenderers(extractRenderers(particleData));
+        simulationPanel.setSimulator(simulator);
+        simulator.addStepListener(new FrameExporter(simulationPanel,
+                                                    directory,
+                                                    interval,
+                                                    EXPORT_FRAME_WIDTH,
+                                                    EXPORT_FRAME_HEIGHT));
+        simulator.runHeadless(steps);
+    }
+    
+    private static void runHeadlessServer(String[] args) throws IOException {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        boolean remote = arguments.remove(REMOTE_FLAG);
+
+        if (arguments.size() < 2) {
+            System.err.println(
+                    "Usage: " + SERVE_FLAG + " <port> [particles] [" + 
+                    REMOTE_FLAG + "]");
+            return;
+        }
+
+        int port = Integer.parseInt(arguments.get(1));
+        int numberOfParticles = arguments.size() > 2 ?
+                                Integer.parseInt(arguments.get(2)) :
+                                DEFAULT_NUMBER_OF_PARTICLES;
+
+        double worldWidth = (1.0 * EXPORT_FRAME_WIDTH) 
+                                 / PIXELS_PER_UNIT_LENGTH;
+
+        double worldHeight = (1.0 * EXPORT_FRAME_HEIGHT)
+                                  / PIXELS_PER_UNIT_LENGTH;
+
+        long seed = System.currentTimeMillis();
+        Random random = new Random(seed);
+
+        System.out.println("Seed = " + seed);
+
+        List<ParticleData> particleData = getParticles(numberOfParticles,
+                                                       worldWidth,
+                                                       worldHeight,
+                                                       random);
+
+        List<ParticleRenderer> particleRenderers = 
+                extractRenderers(particleData);
+        // No panel: the frames go to the clients only. The sleep time still
+        // paces the stream.
+        SimulationEngine simulator = 
+                new SimulationEngine(extractParticles(particleData),
+                                     new DefaultParticlePairForce(),
+                                     new RepellingParticlePairPotentialEnergy(),
+                                     null,
+                                     worldWidth,
+                                     worldHeight,
+                                     TIME_STEP,
+                                     SLEEP_TIME);
+
+        simulator.setTimeStepController(createTimeStepController());
+        simulator.setForceSolver(createForceSolver());
+
+        FrameStreamServer server = 
+                new FrameStreamServer(port,
+                                      remote ? 
+                                      null : 
+                                      InetAddress.getLoopbackAddress(),
+                                      particleRenderers,
+                                      worldWidth,
+                                      worldHeight,
+                                      1);
+        System.out.println("Streaming at " + server.getAddress() + 
+                           ", port " + server.getPort());
+        simulator.addStepListener(server);
+        simulator.togglePause();
+        simulator.run();
+    }
+    
+    private static void runHeadlessRecording(String[] args) 
+    throws IOException {
+        if (args.length < 3) {
+            System.err.println(
+                    "Usage: " + RECORD_FLAG + 
+                    " <file> <steps> [interval] [particles]");
+            return;
+        }
+
+        Path file = Paths.get(args[1]);
+        long steps = Long.parseLong(args[2]);
+        int interval = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        int numberOfParticles = args.length > 4 ?
+                                Integer.parseInt(args[4]) :
+                                DEFAULT_NUMBER_OF_PARTICLES;
+
+        double worldWidth = (1.0 * EXPORT_FRAME_WIDTH) 
+                                 / PIXELS_PER_UNIT_LENGTH;
+
+        double worldHeight = (1.0 * EXPORT_FRAME_HEIGHT)
+                                  / PIXELS_PER_UNIT_LENGTH;
+
+        long seed = System.currentTimeMillis();
+        Random random = new Random(seed);
+
+        System.out.println("Seed = " + seed);
+
+        List<ParticleData> particleData = getParticles(numberOfParticles,
+                                                       worldWidth,
+                                                       worldHeight,
+                                                       random);
+
+        SimulationEngine simulator = 
+                new SimulationEngine(extractParticles(particleData),
+                                     new DefaultParticlePairForce(),
+                                     new RepellingParticlePairPotentialEnergy(),
+                                     worldWidth,
+                                     worldHeight,
+                                     TIME_STEP);
+
+        simulator.setTimeStepController(createTimeStepController());
+        simulator.setForceSolver(createForceSolver());
+
+        try (TrajectoryWriter writer = 
+                new TrajectoryWriter(file,
+                                     worldWidth,
+                                     worldHeight,
+                                     TRAJECTORY_POSITION_RESOLUTION,
+                                     TRAJECTORY_VELOCITY_QUANTUM,
+                                     TRAJECTORY_KEY_FRAME_INTERVAL,
+                                     interval,
+                                     TRAJECTORY_QUEUE_CAPACITY)) {
+            simulator.addStepListener(writer);
+            simulator.runHeadless(steps);
+        }
+    }
+
+    private static AdaptiveTimeStepController createTimeStepController() {
+        return new AdaptiveTimeStepController(MINIMUM_TIME_STEP,
+                                              MAXIMUM_TIME_STEP,
+                                              TIME_STEP_SAFETY_FACTOR,
+                                              ENERGY_ERROR_TOLERANCE);
+    }
+
+    private static ForceSolver createForceSolver() {
+        List<ForceSolver> candidates = 
+                Arrays.asList(new ParallelDirectSumForceSolver(),
+                              new BarnesHutForceSolver(
+                                      BARNES_HUT_OPENING_ANGLE),
+                              new CellListForceSolver(CELL_LIST_CUTOFF));
+
+        return new CalibratingForceSolver(candidates,
+                                          FORCE_ERROR_TOLERANCE,
+                                          FORCE_SOLVER_RECALIBRATION_INTERVAL);
+    }
+
     private static List<Particle> extractParticles(List<ParticleData> data) {
         return data.stream()
                    .map((datum) -> datum.particle)
@@ -109,17 +423,60 @@ public final class SimulationApp {
                                                    double worldWidth,
                                                    double worldHeight,
                                                    Random random) {
+        return getParticles(particles, worldWidth, worldHeight, null, random);
+    }
+
+    private static List<ParticleData> getParticles(
+            int particles,
+            double worldWidth,
+            double worldHeight,
+            ObstacleBoundingVolumeHierarchy obstacles,
+            Random random) {
         List<ParticleData> particleList = new ArrayList<>(particles);
 
         for (int i = 0; i < particles; ++i) {
-            particleList.add(createRandomParticle(random,
-                                                  worldWidth,
-                                                  worldHeight));
+            particleList.add(createRandomParticle(random));
         }
 
+        List<Particle> particleObjects = extractParticles(particleList);
+        new PoissonDiscPositionGenerator(obstacles)
+                .assignPositions(particleObjects,
+                                 worldWidth,
+                                 worldHeight,
+                                 random);
+        new UniformVelocityGenerator(MAX_INITIAL_VELOCITY)
+                .assignVelocities(particleObjects, random);
         return particleList;
     }
 
+    /**
+     * Creates a row of three round pillars across the middle of the world and
+     * a wall with a gap in the middle below them.
+     */
+    private static ObstacleBoundingVolumeHierarchy 
+        createObstacles(double worldWidth, double worldHeight) {
+        double pillarRadius = PILLAR_RADIUS_FACTOR * worldHeight;
+        double wallY = 0.75 * worldHeight;
+        double gap = 0.1 * worldWidth;
+        List<Obstacle> obstacles = new ArrayList<>();
+
+        for (int i = 1; i <= 3; ++i) {
+            obstacles.add(new CircleObstacle(0.25 * i * worldWidth, 
+                                             0.4 * worldHeight,
+                                             pillarRadius));
+        }
+
+        obstacles.add(new SegmentObstacle(0.0, 
+                                          wallY, 
+                                          0.5 * (worldWidth - gap), 
+                                          wallY));
+        obstacles.add(new SegmentObstacle(0.5 * (worldWidth + gap), 
+                                          wallY, 
+                                          worldWidth, 
+                                          wallY));
+        return new ObstacleBoundingVolumeHierarchy(obstacles);
+    }
+
     private static final class ParticleData {
         Particle particle;
         ParticleRenderer particleRenderer;
@@ -130,9 +487,7 @@ public final class SimulationApp {
         }
     }
     
-    private static ParticleData createRandomParticle(Random random,
-                                                     double worldWidth,
-                                                     double worldHeight) {
+    private static ParticleData createRandomParticle(Random random) {
         double mass = MINIMUM_PARTICLE_MASS + 
                      (MAXIMUM_PARTICLE_MASS - MINIMUM_PARTICLE_MASS) * 
                       random.nextDouble();
@@ -142,13 +497,7 @@ public final class SimulationApp {
                                 random.nextInt(COLOR_CHANNEL_MAX),
                                 random.nextInt(COLOR_CHANNEL_MAX));
 
-        
         Particle particle = new Particle(mass, radius);
-        particle.setX(worldWidth  * random.nextDouble());
-        particle.setY(worldHeight * random.nextDouble());
-        particle.setVelocityX(MAX_INITIAL_VELOCITY * random.nextDouble());
-        particle.setVelocityY(MAX_INITIAL_VELOCITY * random.nextDouble());
-        
         ParticleRenderer particleRenderer = new ParticleRenderer(particle,
                                                                  color);
         return new ParticleData(particle, particleRenderer);
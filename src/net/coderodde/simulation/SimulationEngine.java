@@ -2,10 +2,13 @@ package net.coderodde.simulation;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Objects;
+import static net.coderodde.simulation.Configuration.MAXIMUM_KINETIC_ENERGY_CORRECTION;
+import static net.coderodde.simulation.Configuration.MAXIMUM_OBSTACLE_BOUNCES;
+import static net.coderodde.simulation.Configuration.MAXIMUM_STEP_RETRIES;
+import static net.coderodde.simulation.Configuration.OBSTACLE_CONTACT_EPSILON;
 import static net.coderodde.simulation.Utils.checkNonInfinite;
 import static net.coderodde.simulation.Utils.checkNonNaN;
 import static net.coderodde.simulation.Utils.checkNonNegative;
@@ -19,34 +22,125 @@ import static net.coderodde.simulation.Utils.checkNonNegative;
 public final class SimulationEngine {
 
     /**
-     * The list of particles.
+     * Holds a particle list together with the matching identifier to slot 
+     * mapping. Neither is modified after publication.
      */
-    private final List<Particle> particles = new ArrayList<>();
+    private static final class ParticleStorage {
+        final List<Particle> particles;
+        final int[] idToSlot;
+
+        ParticleStorage(List<Particle> particles, int[] idToSlot) {
+            this.particles = particles;
+            this.idToSlot = idToSlot;
+        }
+    }
+
+    /**
+     * The list of particles, as used by the simulation thread. Merging and 
+     * reordering replace the list instead of modifying it.
+     */
+    private List<Particle> particles = new ArrayList<>();
+
+    /**
+     * The particle list and the identifier to slot mapping as published to 
+     * the readers on other threads. Both are replaced through this single 
+     * volatile field, so a reader never pairs a list with a mapping of another
+     * list.
+     */
+    private volatile ParticleStorage storage;
     
     /**
      * Holds the object computing the force between two particles.
      */
     private final ParticlePairForce particlePairForce;
     
+    /**
+     * Computes the total force acting on each particle.
+     */
+    private ForceSolver forceSolver = new DirectSumForceSolver();
+
+    /**
+     * The multiple time stepping configuration, or {@code null} if all 
+     * forces are evaluated at every step.
+     */
+    private MultipleTimeStepping multipleTimeStepping;
+
+    /**
+     * The short-range part of {@code particlePairForce} under multiple time
+     * stepping.
+     */
+    private ParticlePairForce nearForce;
+
+    /**
+     * The long-range part of {@code particlePairForce} under multiple time
+     * stepping.
+     */
+    private ParticlePairForce farForce;
+
+    /**
+     * Computes the short-range forces under multiple time stepping.
+     */
+    private ForceSolver nearForceSolver;
+
+    /**
+     * The number of steps until the long-range forces are evaluated again.
+     */
+    private int stepsUntilFarForce;
+
     /**
      * Holds the object computing the potential energy between two particles.
      */
     private final ParticlePairPotentialEnergy particlePairPotentialEnergy;
 
     /**
-     * Holds the canvas for drawing the system.
+     * Holds the canvas for drawing the system. Is {@code null} in headless 
+     * mode.
      */
     private final SimulationPanel simulationPanel;
 
     /**
-     * The time quant.
+     * The time quant. If a time step controller is set, this is only the time
+     * step of the very first step.
      */
     private final double timeStep;
 
     /**
-     * The total energy of the simulated system.
+     * The time step of the latest completed step.
      */
-    private final double totalEnergy;
+    private volatile double currentTimeStep;
+
+    /**
+     * The amount of simulated time elapsed so far.
+     */
+    private volatile double simulatedTime;
+
+    /**
+     * The simulated time no step may overshoot, or infinity.
+     */
+    private double stepDeadline = Double.POSITIVE_INFINITY;
+
+    /**
+     * Whether the current step, or under multiple time stepping the current
+     * cycle, has been shortened to end exactly at {@code stepDeadline}.
+     */
+    private boolean endsAtDeadline;
+
+    /**
+     * Chooses the time step of each step, or is {@code null} for using the
+     * fixed {@code timeStep}.
+     */
+    private AdaptiveTimeStepController timeStepController;
+
+    /**
+     * The total energy of the simulated system. Only changes when particles
+     * merge, since merging is inelastic.
+     */
+    private double totalEnergy;
+
+    /**
+     * The total energy of the system after the latest step.
+     */
+    private volatile double currentTotalEnergy;
 
     /**
      * The width of the system.
@@ -74,11 +168,157 @@ public final class SimulationEngine {
     private volatile boolean pause = true;
 
     /**
-     * Used for mapping the particles to their respective force vectors.
+     * The horizontal force components. The i-th entry is the force acting on 
+     * the i-th particle in {@code particles}.
+     */
+    private double[] forceX;
+
+    /**
+     * The vertical force components.
+     */
+    private double[] forceY;
+
+    /**
+     * The horizontal components of the long-range forces under multiple time
+     * stepping.
+     */
+    private double[] farForceX;
+
+    /**
+     * The vertical components of the long-range forces under multiple time 
+     * stepping.
      */
-    private final Map<Particle, Vector> particleToForceVectorMap = 
-            new HashMap<>();
+    private double[] farForceY;
+
+    /**
+     * Whether the long-range forces are up to date for the current positions
+     * and slots. They are evaluated at the end of each cycle and reused at the
+     * start of the next one.
+     */
+    private boolean farForcesValid;
+
+    /**
+     * The record of the latest force evaluation, or {@code null} if the forces
+     * are not recorded. Under multiple time stepping, it holds the short-range
+     * forces.
+     */
+    private ForceRecord forceRecord;
+
+    /**
+     * The record of the latest long-range force evaluation under multiple 
+     * time stepping, or {@code null} if the forces are not recorded.
+     */
+    private ForceRecord farForceRecord;
+
+    /**
+     * The sum of the absolute relative kinetic energy corrections applied by 
+     * the velocity normalization over all the accepted substeps.
+     */
+    private double accumulatedEnergyCorrection;
+
+    /**
+     * The sum of the absolute relative kinetic energy corrections of the 
+     * latest integration attempt.
+     */
+    private double attemptEnergyCorrection;
+
+    /**
+     * Holds the last state that passed the numerical health check.
+     */
+    private final ParticleStateSnapshot lastGoodState = 
+            new ParticleStateSnapshot();
+
+    /**
+     * Checks the numerical health of the system after each step.
+     */
+    private final NumericalHealthMonitor healthMonitor = 
+            new NumericalHealthMonitor(MAXIMUM_KINETIC_ENERGY_CORRECTION);
+
+    /**
+     * The static obstacles, or {@code null} if there are none.
+     */
+    private volatile ObstacleBoundingVolumeHierarchy obstacles;
+
+    /**
+     * Receives the contacts found by the obstacle sweeps.
+     */
+    private final ObstacleBoundingVolumeHierarchy.Hit obstacleHit = 
+            new ObstacleBoundingVolumeHierarchy.Hit();
+
+    /**
+     * Maps the identifier of each particle to its slot in {@code particles}, 
+     * or to -1 for an absorbed particle. Replaced together with 
+     * {@code particles}.
+     */
+    private int[] idToSlot;
+
+    /**
+     * Reorders the particles along the Morton curve, or is {@code null}.
+     */
+    private MortonReorderer mortonReorderer;
+
+    /**
+     * The listeners notified after each completed step.
+     */
+    private final List<SimulationStepListener> stepListeners = 
+            new ArrayList<>();
+
+    /**
+     * The number of steps completed so far.
+     */
+    private long numberOfSteps;
+
+    /**
+     * If set, colliding particles merge into one.
+     */
+    private boolean collisionMerging;
+
+    /**
+     * Finds the colliding particles, or is {@code null} if they have not been
+     * searched for yet.
+     */
+    private UniformCellGrid collisionGrid;
+
+    /**
+     * The number of particle merges so far.
+     */
+    private long numberOfMerges;
+
+    /**
+     * Constructs a headless simulation engine that does not draw anything. 
+     * Such an engine is driven by {@link #runHeadless(long)}.
+     */
+    public SimulationEngine(List<Particle> particles,
+                     ParticlePairForce particlePairForce,
+                     ParticlePairPotentialEnergy particlePairPotentialEnergy,
+                     double worldWidth,
+                     double worldHeight,
+                     double timeStep) {
+        this(particles,
+             particlePairForce,
+             particlePairPotentialEnergy,
+             null,
+             worldWidth,
+             worldHeight,
+             timeStep,
+             1);
+    }
 
+    /**
+     * Constructs a simulation engine.
+     * 
+     * @param particles                   the particles to simulate.
+     * @param particlePairForce           the force between two particles.
+     * @param particlePairPotentialEnergy the matching potential energy.
+     * @param simulationCanvas            the canvas for drawing the system, 
+     *                                    or {@code null} for a headless 
+     *                                    engine.
+     * @param worldWidth                  the width of the world.
+     * @param worldHeight                 the height of the world.
+     * @param timeStep                    the time step.
+     * @param sleepTime                   the number of milliseconds between
+     *                                    two steps in {@link #run()}.
+     */
     public SimulationEngine(List<Particle> particles,
                      ParticlePairForce particlePairForce,
                      ParticlePairPotentialEnergy particlePairPotentialEnergy,
@@ -98,19 +338,29 @@ public final class SimulationEngine {
                         "The particle pair potential energy is null.");
         
         checkNotEmpty(particles);
-        checkParticlesDoNotOverlap(particles);
+        ParticleOverlapValidator.checkParticlesDoNotOverlap(particles);
         
         this.particles.addAll(particles);
-        this.simulationPanel = 
-                Objects.requireNonNull(
-                        simulationCanvas,
-                        "The simulation canvas is null.");
+        this.idToSlot = new int[particles.size()];
+
+        for (int i = 0; i < this.particles.size(); ++i) {
+            this.particles.get(i).setId(i);
+            this.idToSlot[i] = i;
+        }
+
+        this.storage = new ParticleStorage(this.particles, this.idToSlot);
+
+        this.simulationPanel = simulationCanvas;
 
         this.worldWidth = checkWorldWidth(worldWidth);
         this.worldHeight = checkWorldHeight(worldHeight);
         this.timeStep = checkTimeStep(timeStep);
+        this.currentTimeStep = this.timeStep;
         this.sleepTime = checkSleepTime(sleepTime);
+        this.forceX = new double[particles.size()];
+        this.forceY = new double[particles.size()];
         totalEnergy = computeTotalEnergy();
+        currentTotalEnergy = totalEnergy;
     }
 
     public void togglePause() {
@@ -120,16 +370,378 @@ public final class SimulationEngine {
     public void run() {
         while (!exit) {
             if (!pause) {
-                performStep();
-                simulationPanel.repaint();
+                step();
+
+                if (simulationPanel != null) {
+                    simulationPanel.requestRepaint();
+                }
             }
 
             sleep(sleepTime);
         }
     }
 
+    /**
+     * Performs {@code steps} simulation steps as fast as possible without 
+     * sleeping or repainting.
+     * 
+     * @param steps the number of steps to perform.
+     */
+    public void runHeadless(long steps) {
+        for (long i = 0; i < steps && !exit; ++i) {
+            step();
+        }
+    }
+
+    /**
+     * Performs simulation steps as fast as possible until the simulated time
+     * reaches {@code time}. The last step, or under multiple time stepping
+     * every step of the last cycle, is shortened so that the simulated time 
+     * ends up exactly at {@code time}. The shortened steps are not reported to
+     * the time step controller. A cycle begun before the call is completed
+     * unshortened.
+     * 
+     * @param time the simulated time to reach.
+     */
+    public void runHeadlessUntil(double time) {
+        stepDeadline = time;
+
+        try {
+            while (simulatedTime < time && !exit) {
+                step();
+            }
+        } finally {
+            stepDeadline = Double.POSITIVE_INFINITY;
+            endsAtDeadline = false;
+        }
+    }
+
+    /**
+     * Sets the static obstacles. Must not be called while the simulation is 
+     * running.
+     * 
+     * @param obstacles the obstacle hierarchy, or {@code null} for none.
+     */
+    public void setObstacles(ObstacleBoundingVolumeHierarchy obstacles) {
+        this.obstacles = obstacles;
+    }
+
+    public ObstacleBoundingVolumeHierarchy getObstacles() {
+        return obstacles;
+    }
+
+    /**
+     * Sets the object deciding when to reorder the particle storage along the
+     * Morton curve. Must not be called while the simulation is running.
+     * 
+     * @param mortonReorderer the reorderer, or {@code null} for keeping the 
+     *                        storage order intact.
+     */
+    public void setMortonReorderer(MortonReorderer mortonReorderer) {
+        this.mortonReorderer = mortonReorderer;
+    }
+
+    /**
+     * Sets the algorithm computing the forces. Must not be called while the 
+     * simulation is running.
+     * 
+     * @param forceSolver the force solver.
+     */
+    public void setForceSolver(ForceSolver forceSolver) {
+        this.forceSolver = Objects.requireNonNull(forceSolver, 
+                                                  "The force solver is null.");
+        this.farForcesValid = false;
+    }
+
+    public ForceSolver getForceSolver() {
+        return forceSolver;
+    }
+
+    /**
+     * Enables or disables the RESPA multiple time stepping. Must not be called
+     * while the simulation is running.
+     * 
+     * @param multipleTimeStepping the configuration, or {@code null} for 
+     *                             evaluating all forces at every step.
+     */
+    public void setMultipleTimeStepping(
+            MultipleTimeStepping multipleTimeStepping) {
+        this.multipleTimeStepping = multipleTimeStepping;
+        this.stepsUntilFarForce = 0;
+        this.farForcesValid = false;
+
+        if (multipleTimeStepping == null) {
+            nearForce = null;
+            farForce = null;
+            nearForceSolver = null;
+            farForceX = null;
+            farForceY = null;
+        } else {
+            nearForce = multipleTimeStepping.createNearForce(particlePairForce);
+            farForce = multipleTimeStepping.createFarForce(particlePairForce);
+            nearForceSolver = multipleTimeStepping.createNearForceSolver();
+            farForceX = new double[forceX.length];
+            farForceY = new double[forceY.length];
+        }
+    }
+
+    public MultipleTimeStepping getMultipleTimeStepping() {
+        return multipleTimeStepping;
+    }
+
+    /**
+     * Enables or disables merging of colliding particles. When two particles 
+     * overlap after a step, the lighter one is absorbed by the heavier one, 
+     * and the storage is compacted so that later steps only pay for the 
+     * surviving particles. Must not be called while the simulation is 
+     * running.
+     * 
+     * @param collisionMerging whether to merge colliding particles.
+     */
+    public void setCollisionMerging(boolean collisionMerging) {
+        this.collisionMerging = collisionMerging;
+    }
+
+    public boolean getCollisionMerging() {
+        return collisionMerging;
+    }
+
+    /**
+     * Returns the number of particle merges so far.
+     * 
+     * @return the number of merges.
+     */
+    public long getNumberOfMerges() {
+        return numberOfMerges;
+    }
+
+    /**
+     * Returns the number of particles still simulated.
+     * 
+     * @return the number of particles.
+     */
+    public int getNumberOfParticles() {
+        return storage.particles.size();
+    }
+
+    /**
+     * Sets the object choosing the time step of each step. Must not be called
+     * while the simulation is running.
+     * 
+     * @param timeStepController the controller, or {@code null} for using the
+     *                           fixed time step given at construction.
+     */
+    public void setTimeStepController(
+            AdaptiveTimeStepController timeStepController) {
+        this.timeStepController = timeStepController;
+    }
+
+    /**
+     * Returns the time step of the latest completed step.
+     * 
+     * @return the current time step.
+     */
+    public double getCurrentTimeStep() {
+        return currentTimeStep;
+    }
+
+    /**
+     * Returns the amount of simulated time elapsed so far. With an adaptive
+     * time step, this is not proportional to the number of steps.
+     * 
+     * @return the simulated time.
+     */
+    public double getSimulatedTime() {
+        return simulatedTime;
+    }
+
+    /**
+     * Returns the particle with the given identifier.
+     * 
+     * @param id the identifier of the particle.
+     * @return the particle.
+     */
+    public Particle getParticle(int id) {
+        ParticleStorage storage = this.storage;
+        return storage.particles.get(getSlot(storage, id));
+    }
+
+    /**
+     * Returns the current slot of the particle with the given identifier in 
+     * the list returned by {@link #getParticles()}. The slot changes whenever
+     * the storage is reordered.
+     * 
+     * @param id the identifier of the particle.
+     * @return the slot of the particle.
+     */
+    public int getSlot(int id) {
+        return getSlot(storage, id);
+    }
+
+    private static int getSlot(ParticleStorage storage, int id) {
+        int[] idToSlot = storage.idToSlot;
+
+        if (id < 0 || id >= idToSlot.length || idToSlot[id] < 0) {
+            throw new IllegalArgumentException(
+                    "No particle with identifier " + id + ".");
+        }
+
+        return idToSlot[id];
+    }
+
+    /**
+     * Writes the state of all particles to an off-heap store in the order of
+     * their identifiers. Together with {@link OffHeapParticleStore#force()}, 
+     * this checkpoints the simulation. The store may also be run further by 
+     * an {@link OffHeapSimulationEngine}, which keeps no state on the heap.
+     * 
+     * @param store the target store.
+     */
+    public void saveState(OffHeapParticleStore store) {
+        store.copyFrom(getParticlesInIdOrder());
+    }
+
+    /**
+     * Restores the masses, radii, positions and velocities of all particles 
+     * from an off-heap store written by 
+     * {@link #saveState(OffHeapParticleStore)}. The restored state becomes 
+     * the new energy baseline, and under multiple time stepping the next step
+     * starts a new cycle. Particles absorbed by merges cannot be revived, so
+     * the store must hold as many particles as are currently simulated.
+     * 
+     * @param store the source store.
+     */
+    public void loadState(OffHeapParticleStore store) {
+        store.copyTo(getParticlesInIdOrder());
+        totalEnergy = computeTotalEnergy();
+        currentTotalEnergy = totalEnergy;
+        stepsUntilFarForce = 0;
+        farForcesValid = false;
+        accumulatedEnergyCorrection = 0.0;
+    }
+
+    public void addStepListener(SimulationStepListener listener) {
+        stepListeners.add(
+                Objects.requireNonNull(listener, 
+                                       "The step listener is null."));
+    }
+
+    public void removeStepListener(SimulationStepListener listener) {
+        stepListeners.remove(listener);
+    }
+
+    public long getNumberOfSteps() {
+        return numberOfSteps;
+    }
+
+    public double getWorldWidth() {
+        return worldWidth;
+    }
+
+    public double getWorldHeight() {
+        return worldHeight;
+    }
+
+    /**
+     * Returns the total energy of the system as of the latest step. Unlike 
+     * {@link #computeTotalEnergy()}, runs in constant time.
+     * 
+     * @return the total energy.
+     */
+    public double getTotalEnergy() {
+        return currentTotalEnergy;
+    }
+
+    /**
+     * Returns the sum of the absolute relative corrections the velocity 
+     * normalization has applied to the kinetic energy since the start or the
+     * latest {@link #loadState(OffHeapParticleStore)}. The normalization 
+     * keeps the total energy constant, so this, rather than the total energy,
+     * shows how much energy the integration would have gained or lost.
+     * 
+     * @return the accumulated energy correction.
+     */
+    public double getAccumulatedEnergyCorrection() {
+        return accumulatedEnergyCorrection;
+    }
+
+    /**
+     * Enables or disables recording of the force evaluations, for measuring
+     * the error of the forces this engine integrates.
+     * 
+     * @param recording whether to record the forces.
+     */
+    void setForceRecording(boolean recording) {
+        forceRecord = recording ? new ForceRecord() : null;
+        farForceRecord = recording ? new ForceRecord() : null;
+    }
+
+    /**
+     * Returns the record of the latest force evaluation; under multiple time
+     * stepping, of the short-range forces.
+     * 
+     * @return the record, or {@code null} if the forces are not recorded.
+     */
+    ForceRecord getForceRecord() {
+        return forceRecord;
+    }
+
+    /**
+     * Returns the record of the latest long-range force evaluation under 
+     * multiple time stepping.
+     * 
+     * @return the record, or {@code null} if the forces are not recorded.
+     */
+    ForceRecord getFarForceRecord() {
+        return farForceRecord;
+    }
+
     List<Particle> getParticles() {
-        return Collections.<Particle>unmodifiableList(particles);
+        return Collections.<Particle>unmodifiableList(storage.particles);
+    }
+
+    /**
+     * Returns the particles ordered by their identifiers. Unlike the storage
+     * order, this order does not change when the storage is reordered. The
+     * absorbed particles are skipped.
+     * 
+     * @return the particles in identifier order.
+     */
+    List<Particle> getParticlesInIdOrder() {
+        ParticleStorage storage = this.storage;
+        List<Particle> particles = storage.particles;
+        int[] idToSlot = storage.idToSlot;
+        List<Particle> particlesInIdOrder = new ArrayList<>(particles.size());
+
+        for (int id = 0; id < idToSlot.length; ++id) {
+            if (idToSlot[id] >= 0) {
+                particlesInIdOrder.add(particles.get(idToSlot[id]));
+            }
+        }
+
+        return particlesInIdOrder;
+    }
+
+    /**
+     * Performs one step and notifies the step listeners.
+     */
+    private void step() {
+        if (mortonReorderer != null 
+                && mortonReorderer.shouldReorder(numberOfSteps, particles)) {
+            reorderParticles();
+        }
+
+        performStep();
+
+        if (collisionMerging) {
+            mergeCollidingParticles();
+        }
+
+        ++numberOfSteps;
+
+        for (SimulationStepListener listener : stepListeners) {
+            listener.onStep(this, numberOfSteps);
+        }
     }
 
     /**
@@ -144,122 +756,535 @@ public final class SimulationEngine {
     }
 
     /**
-     * Performs one simulation step.
+     * Returns the number of steps that failed the numerical health check and 
+     * were rolled back.
+     * 
+     * @return the number of rollbacks.
      */
-    private void performStep() {
-        // Compute the force vectors of all partices:
-        computeForceVectors();
-        updateParticleVelocities();
-        moveParticles();
-        resolveWorldBorderCollisions();
-        normalizeVelocityVectors();
-        particleToForceVectorMap.clear();
+    public long getNumberOfRollbacks() {
+        return healthMonitor.getNumberOfRollbacks();
     }
 
     /**
-     * Computes all the repelling force vectors for each particle.
+     * Merges every pair of overlapping particles found after a step. The 
+     * candidate pairs come from a uniform grid whose cells are as wide as the
+     * largest particle, so each particle is only tested against its 
+     * neighbouring cells. A particle grown by a merge may overlap further 
+     * particles; those are merged after the next step.
      */
-    private void computeForceVectors() {
+    private void mergeCollidingParticles() {
+        double maximumRadius = 0.0;
+
         for (Particle particle : particles) {
-            Vector vector = new Vector();
+            maximumRadius = Math.max(maximumRadius, particle.getRadius());
+        }
+
+        if (collisionGrid == null) {
+            collisionGrid = new UniformCellGrid(2.0 * maximumRadius);
+        } else {
+            collisionGrid.setCellSize(2.0 * maximumRadius);
+        }
+
+        collisionGrid.build(particles);
+        int[] cellStarts = collisionGrid.getCellStarts();
+        int[] sortedIndices = collisionGrid.getSortedIndices();
+        int columns = collisionGrid.getColumns();
+        int rows = collisionGrid.getRows();
+        int merges = 0;
+
+        for (int i = 0, size = particles.size(); i < size; ++i) {
+            Particle particle = particles.get(i);
+            int cell = collisionGrid.getCellOfParticle(i);
+            int column = cell % columns;
+            int row = cell / columns;
+
+            for (int r = Math.max(0, row - 1); 
+                    r <= Math.min(rows - 1, row + 1) && !particle.isAbsorbed(); 
+                    ++r) {
+                for (int c = Math.max(0, column - 1); 
+                        c <= Math.min(columns - 1, column + 1) 
+                        && !particle.isAbsorbed(); 
+                        ++c) {
+                    int neighbourCell = r * columns + c;
+
+                    for (int k = cellStarts[neighbourCell]; 
+                            k < cellStarts[neighbourCell + 1]; 
+                            ++k) {
+                        int j = sortedIndices[k];
 
-            for (Particle other : particles) {
-                if (particle == other) {
-                    // Do not compute the force from and to itself.
-                    continue;
+                        if (j <= i) {
+                            continue;
+                        }
+
+                        Particle other = particles.get(j);
+
+                        if (other.isAbsorbed() || !overlap(particle, other)) {
+                            continue;
+                        }
+
+                        if (other.getMass() > particle.getMass()) {
+                            other.absorb(particle);
+                            ++merges;
+                            break;
+                        }
+
+                        particle.absorb(other);
+                        ++merges;
+                    }
                 }
+            }
+        }
 
-                Vector aux = computeForceVector(particle, other);
-                vector = vector.plus(aux);
+        if (merges > 0) {
+            numberOfMerges += merges;
+            compactParticles();
+        }
+    }
+
+    private static boolean overlap(Particle particle1, Particle particle2) {
+        double dx = particle1.getX() - particle2.getX();
+        double dy = particle1.getY() - particle2.getY();
+        double radiusSum = particle1.getRadius() + particle2.getRadius();
+        return dx * dx + dy * dy < radiusSum * radiusSum;
+    }
+
+    /**
+     * Removes the absorbed particles from the storage, shrinks the per 
+     * particle arrays and resets the energy baseline. Merging is inelastic, 
+     * so the velocity normalization must conserve the energy left after the
+     * merges rather than the initial one.
+     */
+    private void compactParticles() {
+        List<Particle> survivors = new ArrayList<>(particles.size());
+        int[] survivorIdToSlot = new int[idToSlot.length];
+        Arrays.fill(survivorIdToSlot, -1);
+
+        for (Particle particle : particles) {
+            if (!particle.isAbsorbed()) {
+                survivorIdToSlot[particle.getId()] = survivors.size();
+                survivors.add(particle);
             }
+        }
+
+        publish(survivors, survivorIdToSlot);
+        forceX = new double[survivors.size()];
+        forceY = new double[survivors.size()];
+
+        if (multipleTimeStepping != null) {
+            farForceX = new double[survivors.size()];
+            farForceY = new double[survivors.size()];
+            farForcesValid = false;
+        }
 
-            particleToForceVectorMap.put(particle, vector);
+        totalEnergy = computeTotalEnergy();
+        currentTotalEnergy = totalEnergy;
+    }
+
+    /**
+     * Replaces the particle list and the identifier to slot mapping, for the
+     * simulation thread and for the readers on other threads at once.
+     */
+    private void publish(List<Particle> particles, int[] idToSlot) {
+        this.particles = particles;
+        this.idToSlot = idToSlot;
+        this.storage = new ParticleStorage(particles, idToSlot);
+    }
+
+    /**
+     * Reorders the particle storage along the Morton curve and updates the 
+     * identifier to slot mapping.
+     */
+    private void reorderParticles() {
+        int[] permutation = 
+                mortonReorderer.computePermutation(particles, 
+                                                   worldWidth, 
+                                                   worldHeight);
+        List<Particle> reordered = new ArrayList<>(particles.size());
+        int[] reorderedIdToSlot = idToSlot.clone();
+
+        for (int slot = 0; slot < particles.size(); ++slot) {
+            Particle particle = particles.get(permutation[slot]);
+            reordered.add(particle);
+            reorderedIdToSlot[particle.getId()] = slot;
         }
+
+        publish(reordered, reorderedIdToSlot);
+
+        // The long-range forces are stored by slot.
+        farForcesValid = false;
+        mortonReorderer.reordered(particles);
     }
 
     /**
-     * Computes a repelling force vector from {@code other} to {@code target}.
+     * Performs one simulation step. If the resulting state is not numerically
+     * healthy, the system is rolled back to the state preceding the step, and
+     * the step is retried as a sequence of smaller steps covering the same 
+     * time interval.
+     * <p>
+     * Under multiple time stepping, the long-range forces are applied as two
+     * kicks, each covering half of the cycle: one with the forces at the 
+     * start of the cycle before its first step, and one with the forces 
+     * re-evaluated at the end of the cycle after its last step. The forces of
+     * the closing kick open the next cycle. The time step may change only at
+     * the first step of a cycle.
+     */
+    private void performStep() {
+        lastGoodState.capture(particles);
+        double timeStep;
+        boolean forcesComputed = false;
+        boolean cycleStart = 
+                multipleTimeStepping != null && stepsUntilFarForce == 0;
+
+        if (multipleTimeStepping != null && !cycleStart) {
+            timeStep = currentTimeStep;
+        } else {
+            timeStep = this.timeStep;
+
+            if (timeStepController != null) {
+                computeForceVectors();
+                forcesComputed = true;
+                timeStep = timeStepController.selectTimeStep(particles, 
+                                                             forceX, 
+                                                             forceY);
+            }
+
+            int stepsPerCycle = 
+                    multipleTimeStepping == null ? 
+                    1 :
+                    multipleTimeStepping.getFarForceInterval();
+            double remainingTime = stepDeadline - simulatedTime;
+
+            if (timeStep * stepsPerCycle >= remainingTime) {
+                timeStep = remainingTime / stepsPerCycle;
+                endsAtDeadline = true;
+            }
+        }
+
+        boolean cycleEnd = 
+                multipleTimeStepping != null &&
+                (cycleStart ? 
+                 multipleTimeStepping.getFarForceInterval() : 
+                 stepsUntilFarForce) == 1;
+        double halfCycleTime = 
+                multipleTimeStepping == null ? 
+                0.0 :
+                0.5 * timeStep * multipleTimeStepping.getFarForceInterval();
+
+        for (int retry = 0; retry <= MAXIMUM_STEP_RETRIES; ++retry) {
+            int substeps = 1 << retry;
+            boolean lastAttempt = retry == MAXIMUM_STEP_RETRIES;
+
+            if (cycleStart) {
+                if (!farForcesValid) {
+                    computeFarForceVectors();
+                    farForcesValid = true;
+                }
+
+                applyFarForceKick(halfCycleTime);
+            }
+
+            double energyError = integrate(timeStep / substeps, 
+                                           substeps, 
+                                           lastAttempt,
+                                           forcesComputed && retry == 0,
+                                           cycleEnd ? halfCycleTime : 0.0);
+
+            if (!Double.isNaN(energyError)) {
+                accumulatedEnergyCorrection += attemptEnergyCorrection;
+                currentTimeStep = timeStep;
+                simulatedTime += timeStep;
+
+                if (multipleTimeStepping != null) {
+                    stepsUntilFarForce = 
+                            (cycleStart ? 
+                             multipleTimeStepping.getFarForceInterval() : 
+                             stepsUntilFarForce) - 1;
+                }
+
+                if (timeStepController != null && !endsAtDeadline) {
+                    if (retry == 0) {
+                        timeStepController.accepted(timeStep, energyError);
+                    } else {
+                        timeStepController.rejected(timeStep);
+                    }
+                }
+
+                if (endsAtDeadline && (multipleTimeStepping == null 
+                                       || stepsUntilFarForce == 0)) {
+                    // Do not let the rounding errors of the shortened steps
+                    // leave a sliver of time to the deadline.
+                    simulatedTime = stepDeadline;
+                    endsAtDeadline = false;
+                }
+
+                return;
+            }
+
+            lastGoodState.restore(particles);
+            healthMonitor.recordRollback();
+
+            if (cycleEnd) {
+                // The closing kick may have evaluated the rejected state.
+                farForcesValid = false;
+            }
+
+            if (!lastAttempt) {
+                System.err.println(
+                        "Numerical failure, rolled back the step. " + 
+                        "Retrying with time step " + 
+                        timeStep / (2 * substeps) + ".");
+            }
+        }
+
+        throw new IllegalStateException(
+                "The system state is not finite even with the time step " + 
+                timeStep / (1 << MAXIMUM_STEP_RETRIES) + ".");
+    }
+
+    /**
+     * Integrates the system for {@code substeps} steps of length 
+     * {@code timeStep}.
      * 
-     * @param target the target particle.
-     * @param other  the particle exerting repelling force towards 
-     *               {@code target}.
-     * @return the force vector.
+     * @param timeStep    the length of a single substep.
+     * @param substeps    the number of substeps.
+     * @param lastAttempt    if {@code true}, only the finiteness of the state
+     *                       is required.
+     * @param forcesComputed if {@code true}, the forces acting in the current
+     *                       state are already computed.
+     * @param closingKickTime if positive, the long-range forces are 
+     *                        re-evaluated after the last substep and applied
+     *                        for this time, closing a multiple time stepping
+     *                        cycle.
+     * @return the largest relative kinetic energy correction of the substeps,
+     *         or {@code NaN} if the resulting state is not healthy.
      */
-    private Vector computeForceVector(Particle target, Particle other) {
-        double vectorLength = particlePairForce.getForce(target, other);
-        double dx = target.getX() - other.getX();
-        double dy = target.getY() - other.getY();
-        double angle = Math.atan2(dy, dx);
-        double xComponent = vectorLength * Math.cos(angle);
-        double yComponent = vectorLength * Math.sin(angle);
-        return new Vector(xComponent, yComponent);
+    private double integrate(double timeStep, 
+                             int substeps, 
+                             boolean lastAttempt,
+                             boolean forcesComputed,
+                             double closingKickTime) {
+        double energyError = 0.0;
+        attemptEnergyCorrection = 0.0;
+
+        for (int substep = 0; substep < substeps; ++substep) {
+            if (substep > 0 || !forcesComputed) {
+                computeForceVectors();
+            }
+
+            updateParticleVelocities(timeStep);
+            moveParticles(timeStep);
+            resolveWorldBorderCollisions();
+
+            if (closingKickTime > 0.0 && substep == substeps - 1) {
+                if (!healthMonitor.isFinite(particles)) {
+                    return Double.NaN;
+                }
+
+                computeFarForceVectors();
+                farForcesValid = true;
+                applyFarForceKick(closingKickTime);
+            }
+
+            double kineticEnergyCorrection = normalizeVelocityVectors();
+
+            if (!healthMonitor.isFinite(particles)) {
+                return Double.NaN;
+            }
+
+            if (!lastAttempt && 
+                    !healthMonitor.isEnergySane(kineticEnergyCorrection)) {
+                return Double.NaN;
+            }
+
+            energyError = Math.max(energyError, 
+                                   Math.abs(kineticEnergyCorrection));
+            attemptEnergyCorrection += Math.abs(kineticEnergyCorrection);
+        }
+
+        return energyError;
     }
 
     /**
-     * Updates the velocities of each particle.
+     * Computes all the repelling force vectors for each particle. Under 
+     * multiple time stepping, only the short-range forces are computed.
+     */
+    private void computeForceVectors() {
+        ParticlePairForce force = 
+                multipleTimeStepping != null ? nearForce : particlePairForce;
+
+        if (multipleTimeStepping != null) {
+            nearForceSolver.computeForces(particles, force, forceX, forceY);
+        } else {
+            forceSolver.computeForces(particles, force, forceX, forceY);
+        }
+
+        if (forceRecord != null) {
+            forceRecord.record(particles, force, forceX, forceY);
+        }
+    }
+
+    /**
+     * Computes the long-range force vectors for each particle.
      */
-    private void updateParticleVelocities() {
-        for (Map.Entry<Particle, Vector> e
-                : particleToForceVectorMap.entrySet()) {
-            Particle particle = e.getKey();
-            Vector vector = e.getValue();
-            // Make the force 'vector' a acceleration vector:
-            vector = vector.multiply(1.0 / particle.getMass());
+    private void computeFarForceVectors() {
+        forceSolver.computeForces(particles, farForce, farForceX, farForceY);
 
-            // Update the velocity components:
-            particle.setVelocityX(
-                    particle.getVelocityX() + vector.getX() * timeStep);
+        if (farForceRecord != null) {
+            farForceRecord.record(particles, farForce, farForceX, farForceY);
+        }
+    }
 
-            particle.setVelocityY(
-                    particle.getVelocityY() + vector.getY() * timeStep);
+    /**
+     * Applies the long-range forces to the velocities for the given time.
+     * 
+     * @param time the time the long-range forces act for.
+     */
+    private void applyFarForceKick(double time) {
+        for (int i = 0, size = particles.size(); i < size; ++i) {
+            Particle particle = particles.get(i);
+            double inverseMass = 1.0 / particle.getMass();
+            particle.setVelocityUnchecked(
+                    particle.getVelocityX() + 
+                            farForceX[i] * inverseMass * time,
+                    particle.getVelocityY() + 
+                            farForceY[i] * inverseMass * time);
+        }
+    }
+
+    /**
+     * Updates the velocities of each particle.
+     * 
+     * @param timeStep the time step.
+     */
+    private void updateParticleVelocities(double timeStep) {
+        for (int i = 0, size = particles.size(); i < size; ++i) {
+            Particle particle = particles.get(i);
+            // Make the force vector a acceleration vector:
+            double inverseMass = 1.0 / particle.getMass();
+            particle.setVelocityUnchecked(
+                    particle.getVelocityX() + 
+                            forceX[i] * inverseMass * timeStep,
+                    particle.getVelocityY() + 
+                            forceY[i] * inverseMass * timeStep);
         }
     }
 
     /**
      * Moves all the particles.
+     * 
+     * @param timeStep the time step.
      */
-    private void moveParticles() {
+    private void moveParticles(double timeStep) {
+        ObstacleBoundingVolumeHierarchy obstacles = this.obstacles;
+
+        if (obstacles != null) {
+            for (Particle particle : particles) {
+                moveParticle(particle, obstacles, timeStep);
+            }
+
+            return;
+        }
+
         for (Particle particle : particles) {
-            particle.setX(particle.getX() + particle.getVelocityX() * timeStep);
-            particle.setY(particle.getY() + particle.getVelocityY() * timeStep);
+            particle.setPositionUnchecked(
+                    particle.getX() + particle.getVelocityX() * timeStep,
+                    particle.getY() + particle.getVelocityY() * timeStep);
         }
     }
 
+    /**
+     * Moves a particle, reflecting it off every obstacle it hits on the way.
+     * 
+     * @param particle  the particle to move.
+     * @param obstacles the obstacles.
+     * @param timeStep  the time step.
+     */
+    private void moveParticle(Particle particle,
+                              ObstacleBoundingVolumeHierarchy obstacles,
+                              double timeStep) {
+        double x = particle.getX();
+        double y = particle.getY();
+        double velocityX = particle.getVelocityX();
+        double velocityY = particle.getVelocityY();
+        double radius = particle.getRadius();
+        double remainingTime = timeStep;
+
+        for (int bounce = 0; bounce <= MAXIMUM_OBSTACLE_BOUNCES; ++bounce) {
+            double dx = velocityX * remainingTime;
+            double dy = velocityY * remainingTime;
+
+            if (!obstacles.sweep(x, y, dx, dy, radius, obstacleHit)) {
+                x += dx;
+                y += dy;
+                break;
+            }
+
+            double normalX = obstacleHit.normalX;
+            double normalY = obstacleHit.normalY;
+            x += obstacleHit.time * dx + OBSTACLE_CONTACT_EPSILON * normalX;
+            y += obstacleHit.time * dy + OBSTACLE_CONTACT_EPSILON * normalY;
+
+            double normalVelocity = velocityX * normalX + velocityY * normalY;
+            velocityX -= 2.0 * normalVelocity * normalX;
+            velocityY -= 2.0 * normalVelocity * normalY;
+            remainingTime *= 1.0 - obstacleHit.time;
+        }
+
+        particle.setPositionUnchecked(x, y);
+        particle.setVelocityUnchecked(velocityX, velocityY);
+    }
+
     /**
      * Resolves all the border collisions.
      */
     private void resolveWorldBorderCollisions() {
         for (Particle particle : particles) {
-            if (particle.getY() - particle.getRadius() <= 0.0) {
-                particle.setVelocityY(-particle.getVelocityY());
-                particle.setY(particle.getRadius());
-            } else if (particle.getY() + particle.getRadius() >= worldHeight) {
-                particle.setVelocityY(-particle.getVelocityY());
-                particle.setY(worldHeight - particle.getRadius());
+            double x = particle.getX();
+            double y = particle.getY();
+            double velocityX = particle.getVelocityX();
+            double velocityY = particle.getVelocityY();
+            double radius = particle.getRadius();
+
+            if (y - radius <= 0.0) {
+                velocityY = -velocityY;
+                y = radius;
+            } else if (y + radius >= worldHeight) {
+                velocityY = -velocityY;
+                y = worldHeight - radius;
             }
             
-            if (particle.getX() - particle.getRadius() <= 0.0) {
-                particle.setVelocityX(particle.getVelocityX());
-                particle.setX(particle.getRadius());
-            } else if (particle.getX() + particle.getRadius() >= worldWidth) {
-                particle.setVelocityX(particle.getVelocityX());
-                particle.setX(worldWidth - particle.getRadius());
+            if (x - radius <= 0.0) {
+                x = radius;
+            } else if (x + radius >= worldWidth) {
+                x = worldWidth - radius;
             }
+
+            particle.setPositionUnchecked(x, y);
+            particle.setVelocityUnchecked(velocityX, velocityY);
         }
     }
 
     /**
      * Normalizes the current velocity vectors such that the total energy of the
      * system remains constant.
+     * 
+     * @return the relative correction applied to the total kinetic energy.
      */
-    private void normalizeVelocityVectors() {
+    private double normalizeVelocityVectors() {
         double totalEnergyDelta = computeTotalEnergyDelta();
-        double factor = getNormalizationFactor(totalEnergyDelta);
+        double totalKineticEnergy = computeTotalKineticEnergy();
+        double kineticEnergyCorrection = totalEnergyDelta / totalKineticEnergy;
+        double factor = getNormalizationFactor(kineticEnergyCorrection);
 
         for (Particle particle : particles) {
-            particle.setVelocityX(factor * particle.getVelocityX());
-            particle.setVelocityY(factor * particle.getVelocityY());
+            particle.setVelocityUnchecked(factor * particle.getVelocityX(),
+                                          factor * particle.getVelocityY());
         }
+
+        // Only the kinetic energy is scaled, by the square of the factor:
+        currentTotalEnergy = totalEnergy - totalEnergyDelta 
+                           + (factor * factor - 1.0) * totalKineticEnergy;
+        return kineticEnergyCorrection;
     }
 
     /**
@@ -278,17 +1303,17 @@ public final class SimulationEngine {
      * Computes such a velocity normalization constant, that the total energy of
      * the system remains constant.
      * 
-     * @param totalEnergyDelta the difference of initial and current total
-     *                         energies.
+     * @param kineticEnergyCorrection the difference of initial and current 
+     *                                total energies divided by the current 
+     *                                total kinetic energy.
      * @return the velocity normalization constant.
      */
-    private double getNormalizationFactor(double totalEnergyDelta) {
-        double aux = totalEnergyDelta / computeTotalKineticEnergy() + 1;
+    private double getNormalizationFactor(double kineticEnergyCorrection) {
+        double aux = kineticEnergyCorrection + 1;
 
         if (aux < 0.0) {
-            // Does not seem to happen any more but you never know..
-            System.err.println("Cannot compute normalization constant. " +
-                               "aux = " + aux);
+            // The health monitor rejects such a step unless it is the last 
+            // attempt, in which case we just leave the velocities as they are.
             return 1.0;
         }
 
@@ -336,25 +1361,6 @@ public final class SimulationEngine {
         return totalEnergy;
     }
 
-    /**
-     * Checks that there is no two different particles on the same spot.
-     */
-    private void checkParticlesDoNotOverlap(List<Particle> particles) {
-        for (int i = 0; i < particles.size(); ++i) {
-            Particle particle1 = particles.get(i);
-
-            for (int j = i + 1; j < particles.size(); ++j) {
-                Particle particle2 = particles.get(j);
-
-                if (particle1.getX() == particle2.getX()
-                        && particle1.getY() == particle2.getY()) {
-                    throw new IllegalStateException(
-                            "Two particles occupy the same spot.");
-                }
-            }
-        }
-    }
-
     private double checkTimeStep(double timeStep) {
         checkNonNaN(timeStep, "The time step is NaN.");
         checkNonNegative(timeStep,
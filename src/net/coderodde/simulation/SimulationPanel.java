@@ -2,9 +2,16 @@ package net.coderodde.simulation;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import javax.swing.JPanel;
+import static net.coderodde.simulation.Configuration.HEATMAP_CELL_SIZE;
+import static net.coderodde.simulation.Configuration.HEATMAP_PARTICLE_THRESHOLD;
+import static net.coderodde.simulation.Configuration.PIXELS_PER_UNIT_LENGTH;
 
 /**
  * This class implements a simple canvas for drawing the simulated particle 
@@ -15,39 +22,432 @@ import javax.swing.JPanel;
  */
 public final class SimulationPanel extends JPanel {
 
+    /**
+     * Specifies how the particles are rendered.
+     */
+    public enum RenderMode {
+
+        /**
+         * Choose the render mode by the particle count and zoom.
+         */
+        AUTO,
+
+        /**
+         * Draw each particle as a disc.
+         */
+        DISCS,
+
+        /**
+         * Blit a cached sprite for each particle, and repaint only the regions
+         * covering moved particles.
+         */
+        SPRITES,
+
+        /**
+         * Draw the particle density as a heatmap.
+         */
+        HEATMAP
+    }
+
     /**
      * The list of objects describing how to render each particle.
      */
     private List<ParticleRenderer> particleRenderers;
+    private SpriteBatchRenderer spriteBatchRenderer;
     private SimulationEngine simulator;
+    private volatile RenderMode renderMode = RenderMode.AUTO;
+    private final HeatmapRenderer heatmapRenderer = 
+            new HeatmapRenderer(HEATMAP_CELL_SIZE, 
+                                HeatmapRenderer.Mode.DENSITY);
+
+    /**
+     * Answers the mouse picks, or is {@code null} if picking is disabled.
+     */
+    private volatile SpatialQueryService spatialQueryService;
+
+    /**
+     * The identifier of the selected particle, or {@code -1}.
+     */
+    private volatile int selectedParticleId = -1;
+
+    /**
+     * The regions requested for repainting in the sprite mode and not painted
+     * yet. Guarded by itself.
+     */
+    private final List<Rectangle> pendingDirtyRegions = new ArrayList<>();
+
+    /**
+     * The region covered by the latest selection outline, or {@code null}.
+     */
+    private Rectangle selectionBounds;
+
+    /**
+     * The height of the strip at the top of the panel holding the energy 
+     * label.
+     */
+    private static final int LABEL_HEIGHT = 25;
+
+    /**
+     * The number of pending dirty regions beyond which they are dropped.
+     */
+    private static final int MAXIMUM_PENDING_DIRTY_REGIONS = 4096;
+
+    /**
+     * The fraction of the clip area beyond which the dirty regions are not 
+     * rendered one by one, but the whole clip is rendered at once.
+     */
+    private static final double MAXIMUM_DIRTY_AREA_FRACTION = 0.5;
+
+    /**
+     * The gap between a selected particle and its outline in pixels.
+     */
+    private static final int SELECTION_OUTLINE_GAP = 3;
+
+    public SimulationPanel() {
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent event) {
+                selectParticleAt(event.getX(), event.getY());
+            }
+        });
+    }
 
     @Override
     public void paintComponent(Graphics g) {
-        double totalEnergy = simulator.computeTotalEnergy();
-        String totalEnergyString = "Total energy: " + totalEnergy;
+        Rectangle clip = g.getClipBounds();
 
-        g.setColor(Color.BLACK);
-        g.fillRect(0, 0, getWidth(), getHeight());
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
 
-        for (ParticleRenderer particle : particleRenderers) {
-            particle.draw(g);
+        List<Rectangle> dirtyRegions;
+
+        synchronized (pendingDirtyRegions) {
+            dirtyRegions = new ArrayList<>(pendingDirtyRegions);
+            pendingDirtyRegions.clear();
+        }
+
+        // The render mode and the label are resolved once per paint, as the
+        // automatic mode costs a pass over all the particles.
+        RenderMode renderMode = selectRenderMode();
+        String label = createLabel();
+
+        // Swing merges all the repaint requests into a single clip rectangle,
+        // so only the pending regions are rendered, as long as they are all 
+        // that is asked for.
+        if (renderMode != RenderMode.SPRITES
+                || dirtyRegions.isEmpty() 
+                || !computeUnion(dirtyRegions).contains(clip)) {
+            renderFrame(g, clip, getWidth(), getHeight(), renderMode, label);
+            return;
+        }
+
+        List<Rectangle> regions = new ArrayList<>(dirtyRegions.size());
+        long dirtyArea = 0L;
+
+        for (Rectangle dirtyRegion : dirtyRegions) {
+            Rectangle region = dirtyRegion.intersection(clip);
+
+            if (!region.isEmpty()) {
+                regions.add(region);
+                dirtyArea += (long) region.width * region.height;
+            }
+        }
+
+        if (dirtyArea > 
+                MAXIMUM_DIRTY_AREA_FRACTION * clip.width * clip.height) {
+            // Most of the clip is dirty anyway, and a single pass over it is 
+            // cheaper than one per region.
+            renderFrame(g, clip, getWidth(), getHeight(), renderMode, label);
+            return;
+        }
+
+        ObstacleBoundingVolumeHierarchy obstacles = simulator.getObstacles();
+
+        for (Rectangle region : regions) {
+            g.setColor(Color.BLACK);
+            g.fillRect(region.x, region.y, region.width, region.height);
+            drawObstacles(g, obstacles, region);
+        }
+
+        // A single pass over the particles draws each of them into the 
+        // regions it overlaps.
+        spriteBatchRenderer.draw(g, regions);
+        drawSelection(g);
+        drawLabel(g, label);
+    }
+
+    public RenderMode getRenderMode() {
+        return renderMode;
+    }
+
+    public void setRenderMode(RenderMode renderMode) {
+        this.renderMode = Objects.requireNonNull(renderMode, 
+                                                 "The render mode is null.");
+        repaint();
+    }
+
+    public HeatmapRenderer getHeatmapRenderer() {
+        return heatmapRenderer;
+    }
+
+    /**
+     * Returns the identifier of the particle selected by the mouse.
+     * 
+     * @return the identifier, or {@code -1} if no particle is selected.
+     */
+    public int getSelectedParticleId() {
+        return selectedParticleId;
+    }
+
+    /**
+     * Renders an entire frame of the simulation.
+     * 
+     * @param g      the graphics context.
+     * @param width  the width of the frame in pixels.
+     * @param height the height of the frame in pixels.
+     */
+    void renderFrame(Graphics g, int width, int height) {
+        renderFrame(g, 
+                    new Rectangle(0, 0, width, height), 
+                    width, 
+                    height,
+                    selectRenderMode(),
+                    createLabel());
+    }
+
+    /**
+     * Requests repainting of the panel after a simulation step. In the sprite
+     * mode, only the region covering the old and new particle positions is
+     * repainted.
+     */
+    void requestRepaint() {
+        if (selectRenderMode() != RenderMode.SPRITES) {
+            repaint();
+            return;
         }
 
+        List<Rectangle> dirtyRegions = 
+                spriteBatchRenderer.computeDirtyRegions(getWidth(), 
+                                                        getHeight());
+        dirtyRegions.add(new Rectangle(0, 0, getWidth(), LABEL_HEIGHT));
+        Rectangle oldSelectionBounds = selectionBounds;
+        Rectangle newSelectionBounds = computeSelectionBounds();
+
+        if (oldSelectionBounds != null) {
+            dirtyRegions.add(oldSelectionBounds);
+        }
+
+        if (newSelectionBounds != null) {
+            dirtyRegions.add(newSelectionBounds);
+        }
+
+        synchronized (pendingDirtyRegions) {
+            if (pendingDirtyRegions.size() > MAXIMUM_PENDING_DIRTY_REGIONS) {
+                // The panel is not being painted; a later paint repaints the
+                // whole clip anyway.
+                pendingDirtyRegions.clear();
+            }
+
+            pendingDirtyRegions.addAll(dirtyRegions);
+        }
+
+        repaint(computeUnion(dirtyRegions));
+    }
+
+    private static Rectangle computeUnion(List<Rectangle> regions) {
+        Rectangle union = new Rectangle(regions.get(0));
+
+        for (int i = 1; i < regions.size(); ++i) {
+            union.add(regions.get(i));
+        }
+
+        return union;
+    }
+
+    /**
+     * Renders the part of a frame within the clip rectangle.
+     * 
+     * @param g      the graphics context.
+     * @param clip   the region to render.
+     * @param width      the width of the whole frame in pixels.
+     * @param height     the height of the whole frame in pixels.
+     * @param renderMode the resolved render mode.
+     * @param label      the text of the label.
+     */
+    private void renderFrame(Graphics g, 
+                             Rectangle clip, 
+                             int width, 
+                             int height,
+                             RenderMode renderMode,
+                             String label) {
+        ObstacleBoundingVolumeHierarchy obstacles = simulator.getObstacles();
+
+        switch (renderMode) {
+            case HEATMAP:
+                // The heatmap is sized to the whole frame so that partial
+                // repaints reuse its image; the clip of g limits the blit.
+                heatmapRenderer.draw(g, 
+                                     simulator.getParticles(),
+                                     width,
+                                     height);
+                drawObstacles(g, obstacles, clip);
+                break;
+
+            case SPRITES:
+                g.setColor(Color.BLACK);
+                g.fillRect(clip.x, clip.y, clip.width, clip.height);
+                drawObstacles(g, obstacles, clip);
+                spriteBatchRenderer.draw(g, clip);
+                break;
+
+            default:
+                g.setColor(Color.BLACK);
+                g.fillRect(clip.x, clip.y, clip.width, clip.height);
+                drawObstacles(g, obstacles, clip);
+
+                for (ParticleRenderer particle : particleRenderers) {
+                    particle.draw(g);
+                }
+        }
+
+        drawSelection(g);
+        drawLabel(g, label);
+    }
+
+    private String createLabel() {
+        double totalEnergy = simulator.getTotalEnergy();
+        String label = "Total energy: " + totalEnergy + 
+                       ", time: " + String.format(
+                               "%.3f", 
+                               simulator.getSimulatedTime());
+        int selectedParticleId = this.selectedParticleId;
+
+        if (selectedParticleId >= 0) {
+            label += ", selected: " + selectedParticleId;
+        }
+
+        return label;
+    }
+
+    private static void drawLabel(Graphics g, String label) {
         g.setColor(Color.WHITE);
-        g.drawChars(totalEnergyString.toCharArray(), 
-                    0, 
-                    totalEnergyString.length(),
-                    0,
-                    20);
+        g.drawChars(label.toCharArray(), 0, label.length(), 0, 20);
     }
 
     void setParticleRenderers(List<ParticleRenderer> particles) {
         this.particleRenderers = Objects.requireNonNull(
                 particles, 
                 "The particle representation list is null.");
+        this.spriteBatchRenderer = new SpriteBatchRenderer(particles);
     }
 
     void setSimulator(SimulationEngine simulator) {
         this.simulator = simulator;
     }
+
+    /**
+     * Sets the service answering the mouse picks.
+     * 
+     * @param spatialQueryService the service, or {@code null} for disabling
+     *                            picking.
+     */
+    void setSpatialQueryService(SpatialQueryService spatialQueryService) {
+        this.spatialQueryService = spatialQueryService;
+    }
+
+    private void selectParticleAt(int pixelX, int pixelY) {
+        SpatialQueryService spatialQueryService = this.spatialQueryService;
+
+        if (spatialQueryService == null) {
+            return;
+        }
+
+        selectedParticleId = 
+                spatialQueryService.pick(
+                        (1.0 * pixelX) / PIXELS_PER_UNIT_LENGTH,
+                        (1.0 * pixelY) / PIXELS_PER_UNIT_LENGTH);
+        repaint();
+    }
+
+    /**
+     * Computes the region of the outline of the selected particle. The 
+     * particle is looked up in the latest immutable snapshot of the spatial 
+     * query service rather than in the running engine, so the outline may lag
+     * the particle by the snapshot interval.
+     * 
+     * @return the region, or {@code null} if no particle is selected.
+     */
+    private Rectangle computeSelectionBounds() {
+        int selectedParticleId = this.selectedParticleId;
+        SpatialQueryService spatialQueryService = this.spatialQueryService;
+
+        if (selectedParticleId < 0 || spatialQueryService == null) {
+            return null;
+        }
+
+        KdTree tree = spatialQueryService.getTree();
+
+        if (tree == null || !tree.contains(selectedParticleId)) {
+            // The particle no longer exists.
+            this.selectedParticleId = -1;
+            return null;
+        }
+
+        int x = (int)(tree.getX(selectedParticleId) * PIXELS_PER_UNIT_LENGTH);
+        int y = (int)(tree.getY(selectedParticleId) * PIXELS_PER_UNIT_LENGTH);
+        int radius = (int)(tree.getRadius(selectedParticleId) 
+                           * PIXELS_PER_UNIT_LENGTH) 
+                   + SELECTION_OUTLINE_GAP;
+        return new Rectangle(x - radius, y - radius, 
+                             2 * radius + 1, 2 * radius + 1);
+    }
+
+    private void drawSelection(Graphics g) {
+        Rectangle bounds = computeSelectionBounds();
+        selectionBounds = bounds;
+
+        if (bounds != null) {
+            g.setColor(Color.WHITE);
+            g.drawOval(bounds.x, bounds.y, bounds.width - 1, bounds.height - 1);
+        }
+    }
+
+    private static void drawObstacles(Graphics g, 
+                                      ObstacleBoundingVolumeHierarchy obstacles,
+                                      Rectangle clip) {
+        if (obstacles != null) {
+            obstacles.draw(g, clip);
+        }
+    }
+
+    /**
+     * Resolves the automatic render mode. The heatmap is used when there are
+     * so many particles that drawing them one by one is too slow, or when the
+     * zoom is so small that the particles are narrower than a pixel.
+     * 
+     * @return the render mode to use for the current frame.
+     */
+    private RenderMode selectRenderMode() {
+        if (renderMode != RenderMode.AUTO) {
+            return renderMode;
+        }
+
+        List<Particle> particles = simulator.getParticles();
+
+        if (particles.size() >= HEATMAP_PARTICLE_THRESHOLD) {
+            return RenderMode.HEATMAP;
+        }
+
+        double radiusSum = 0.0;
+
+        for (Particle particle : particles) {
+            radiusSum += particle.getRadius();
+        }
+
+        double meanPixelRadius = 
+                PIXELS_PER_UNIT_LENGTH * radiusSum / particles.size();
+
+        return meanPixelRadius < 1.0 ? RenderMode.HEATMAP : RenderMode.SPRITES;
+    }
 }
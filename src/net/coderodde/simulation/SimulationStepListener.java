@@ -0,0 +1,20 @@
+package net.coderodde.simulation;
+
+/**
+ * This interface defines the API for objects that want to be notified after
+ * each completed simulation step. The listeners are called on the thread 
+ * running the simulation, so they should return quickly.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public interface SimulationStepListener {
+
+    /**
+     * Called after a simulation step is completed.
+     * 
+     * @param engine     the engine that performed the step.
+     * @param stepNumber the number of steps completed so far.
+     */
+    public void onStep(SimulationEngine engine, long stepNumber);
+}
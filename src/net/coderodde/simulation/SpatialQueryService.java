@@ -0,0 +1,167 @@
+package net.coderodde.simulation;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * This class answers spatial queries about the particles from any thread. 
+ * Every {@code interval} steps, the simulation thread copies the particle 
+ * positions, and a background thread builds a {@link KdTree} over the copy. 
+ * If the previous build has not finished yet, the step is skipped, so the 
+ * simulation thread never waits. The latest tree is published through a 
+ * volatile field, so queries never lock and always see a consistent snapshot,
+ * which lags the simulation by at most a few steps.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class SpatialQueryService implements SimulationStepListener, 
+                                                  Closeable {
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final int interval;
+    private final ExecutorService builder = 
+            Executors.newSingleThreadExecutor((runnable) -> {
+                Thread thread = new Thread(runnable, 
+                                           "SpatialQueryService builder");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final AtomicBoolean building = new AtomicBoolean();
+    private volatile KdTree tree;
+    private volatile long numberOfSkippedBuilds;
+
+    /**
+     * Constructs a query service.
+     * 
+     * @param interval the number of steps between two snapshots.
+     */
+    public SpatialQueryService(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException(
+                    "The snapshot interval must be positive: " + interval);
+        }
+
+        this.interval = interval;
+    }
+
+    @Override
+    public void onStep(SimulationEngine engine, long stepNumber) {
+        if (stepNumber % interval != 0) {
+            return;
+        }
+
+        if (!building.compareAndSet(false, true)) {
+            ++numberOfSkippedBuilds;
+            return;
+        }
+
+        Supplier<KdTree> treeSupplier = capture(engine, stepNumber);
+        builder.execute(() -> {
+            try {
+                tree = treeSupplier.get();
+            } finally {
+                building.set(false);
+            }
+        });
+    }
+
+    /**
+     * Builds the tree on the calling thread right away. Useful before the 
+     * simulation starts. Must not be called while the engine is stepping.
+     * 
+     * @param engine the engine whose particles to index.
+     */
+    public void rebuild(SimulationEngine engine) {
+        tree = capture(engine, engine.getNumberOfSteps()).get();
+    }
+
+    /**
+     * Returns the latest snapshot tree, or {@code null} if none has been 
+     * built yet. Holding on to the returned tree gives several queries 
+     * against the same snapshot.
+     * 
+     * @return the latest tree.
+     */
+    public KdTree getTree() {
+        return tree;
+    }
+
+    /**
+     * Returns the number of snapshots skipped because the previous build was 
+     * still running.
+     * 
+     * @return the number of skipped builds.
+     */
+    public long getNumberOfSkippedBuilds() {
+        return numberOfSkippedBuilds;
+    }
+
+    /**
+     * @see KdTree#findWithin(double, double, double)
+     */
+    public int[] findWithin(double x, double y, double radius) {
+        KdTree tree = this.tree;
+        return tree == null ? NO_IDS : tree.findWithin(x, y, radius);
+    }
+
+    /**
+     * @see KdTree#findNearest(double, double, int)
+     */
+    public int[] findNearest(double x, double y, int k) {
+        KdTree tree = this.tree;
+        return tree == null ? NO_IDS : tree.findNearest(x, y, k);
+    }
+
+    /**
+     * @see KdTree#findNearestToParticle(int, int)
+     */
+    public int[] findNearestToParticle(int id, int k) {
+        KdTree tree = this.tree;
+        return tree == null || !tree.contains(id) ? 
+               NO_IDS : 
+               tree.findNearestToParticle(id, k);
+    }
+
+    /**
+     * @see KdTree#pick(double, double)
+     */
+    public int pick(double x, double y) {
+        KdTree tree = this.tree;
+        return tree == null ? -1 : tree.pick(x, y);
+    }
+
+    @Override
+    public void close() {
+        builder.shutdownNow();
+    }
+
+    /**
+     * Copies the particle state and returns a function building the tree over
+     * the copy.
+     */
+    private static Supplier<KdTree> capture(SimulationEngine engine, 
+                                            long stepNumber) {
+        List<Particle> particles = engine.getParticles();
+        int size = particles.size();
+        int[] ids = new int[size];
+        double[] x = new double[size];
+        double[] y = new double[size];
+        double[] radii = new double[size];
+
+        for (int i = 0; i < size; ++i) {
+            Particle particle = particles.get(i);
+            ids[i] = particle.getId();
+            x[i] = particle.getX();
+            y[i] = particle.getY();
+            radii[i] = particle.getRadius();
+        }
+
+        return () -> new KdTree(stepNumber, ids, x, y, radii, size);
+    }
+}
@@ -0,0 +1,440 @@
+package net.coderodde.simulation;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import static net.coderodde.simulation.Configuration.PIXELS_PER_UNIT_LENGTH;
+
+/**
+ * This class renders particles by blitting cached sprites instead of 
+ * rasterizing each disc separately. The particles are grouped by color, and 
+ * the renderer remembers where each particle was drawn, so that only the 
+ * regions covering the old and new particle positions need to be repainted.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class SpriteBatchRenderer {
+
+    /**
+     * The side of the square tiles the dirty regions are made of, in pixels.
+     */
+    private static final int DIRTY_TILE_SIZE = 32;
+
+    private final SpriteCache spriteCache = new SpriteCache();
+
+    /**
+     * The dirty flag of each tile, row by row. Reused between calls.
+     */
+    private boolean[] dirtyTiles = new boolean[0];
+
+    /**
+     * The particles grouped by their color.
+     */
+    private final Particle[][] particleGroups;
+
+    /**
+     * The sprite of each particle, parallel to {@code particleGroups}.
+     */
+    private final BufferedImage[][] spriteGroups;
+
+    /**
+     * The color of each group.
+     */
+    private final Color[] groupColors;
+
+    /**
+     * The pixel radius each sprite was made for. A particle grown by a merge
+     * gets a new sprite.
+     */
+    private final int[][] spriteRadii;
+
+    /**
+     * The pixel bounds of each particle as of the previous dirty region 
+     * computation. Every particle takes four consecutive entries: x, y, width
+     * and height.
+     */
+    private final int[][] previousBounds;
+
+    SpriteBatchRenderer(List<ParticleRenderer> particleRenderers) {
+        Map<Color, List<Particle>> colorToParticlesMap = new LinkedHashMap<>();
+
+        for (ParticleRenderer particleRenderer : particleRenderers) {
+            colorToParticlesMap.computeIfAbsent(particleRenderer.getColor(),
+                                                (c) -> new ArrayList<>())
+                               .add(particleRenderer.getParticle());
+        }
+
+        int groups = colorToParticlesMap.size();
+        particleGroups = new Particle[groups][];
+        spriteGroups = new BufferedImage[groups][];
+        groupColors = new Color[groups];
+        spriteRadii = new int[groups][];
+        previousBounds = new int[groups][];
+        int group = 0;
+
+        for (Map.Entry<Color, List<Particle>> e 
+                : colorToParticlesMap.entrySet()) {
+            Color color = e.getKey();
+            Particle[] particles = e.getValue().toArray(new Particle[0]);
+            BufferedImage[] sprites = new BufferedImage[particles.length];
+            int[] radii = new int[particles.length];
+
+            for (int i = 0; i < particles.length; ++i) {
+                radii[i] = getPixelRadius(particles[i]);
+                sprites[i] = spriteCache.getSprite(radii[i], color);
+            }
+
+            particleGroups[group] = particles;
+            spriteGroups[group] = sprites;
+            groupColors[group] = color;
+            spriteRadii[group] = radii;
+            previousBounds[group] = new int[4 * particles.length];
+            ++group;
+        }
+    }
+
+    /**
+     * Draws all the particles whose sprites intersect the clip rectangle.
+     * 
+     * @param g    the graphics context.
+     * @param clip the clip rectangle.
+     */
+    void draw(Graphics g, Rectangle clip) {
+        int clipX1 = clip.x + clip.width;
+        int clipY1 = clip.y + clip.height;
+
+        for (int group = 0; group < particleGroups.length; ++group) {
+            Particle[] particles = particleGroups[group];
+            BufferedImage[] sprites = spriteGroups[group];
+
+            for (int i = 0; i < particles.length; ++i) {
+                if (particles[i].isAbsorbed()) {
+                    continue;
+                }
+
+                BufferedImage sprite = sprites[i];
+                int radius = sprite.getWidth() / 2;
+                int x = getPixelCoordinate(particles[i].getX()) - radius;
+                int y = getPixelCoordinate(particles[i].getY()) - radius;
+
+                if (x < clipX1 && y < clipY1
+                        && x + sprite.getWidth() > clip.x
+                        && y + sprite.getHeight() > clip.y) {
+                    g.drawImage(sprite, x, y, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws all the particles into the given regions in a single pass. Every
+     * region gets its own clipped graphics context, and the regions are 
+     * indexed by the tiles they overlap, so that each particle is tested only
+     * against the regions around it.
+     * 
+     * @param g       the graphics context.
+     * @param regions the regions to draw into.
+     */
+    void draw(Graphics g, List<Rectangle> regions) {
+        if (regions.isEmpty()) {
+            return;
+        }
+
+        Rectangle bounds = new Rectangle(regions.get(0));
+
+        for (int i = 1; i < regions.size(); ++i) {
+            bounds.add(regions.get(i));
+        }
+
+        int column0 = Math.floorDiv(bounds.x, DIRTY_TILE_SIZE);
+        int row0 = Math.floorDiv(bounds.y, DIRTY_TILE_SIZE);
+        int columns = getTile(bounds.x + bounds.width - 1) - column0 + 1;
+        int rows = getTile(bounds.y + bounds.height - 1) - row0 + 1;
+
+        // The regions overlapping each tile, in the compressed row format: the
+        // regions of tile t are tileRegions[tileStarts[t] .. tileStarts[t+1]).
+        int[] tileStarts = new int[columns * rows + 1];
+
+        for (Rectangle region : regions) {
+            int c0 = getTile(region.x) - column0;
+            int c1 = getTile(region.x + region.width - 1) - column0;
+            int r0 = getTile(region.y) - row0;
+            int r1 = getTile(region.y + region.height - 1) - row0;
+
+            for (int row = r0; row <= r1; ++row) {
+                for (int column = c0; column <= c1; ++column) {
+                    ++tileStarts[row * columns + column + 1];
+                }
+            }
+        }
+
+        for (int tile = 0; tile < columns * rows; ++tile) {
+            tileStarts[tile + 1] += tileStarts[tile];
+        }
+
+        int[] tileRegions = new int[tileStarts[columns * rows]];
+        int[] tileFill = Arrays.copyOf(tileStarts, columns * rows);
+        Graphics[] regionGraphics = new Graphics[regions.size()];
+
+        for (int r = 0; r < regions.size(); ++r) {
+            Rectangle region = regions.get(r);
+
+            int c0 = getTile(region.x) - column0;
+            int c1 = getTile(region.x + region.width - 1) - column0;
+            int r0 = getTile(region.y) - row0;
+            int r1 = getTile(region.y + region.height - 1) - row0;
+
+            for (int row = r0; row <= r1; ++row) {
+                for (int column = c0; column <= c1; ++column) {
+                    int tile = row * columns + column;
+                    tileRegions[tileFill[tile]++] = r;
+                }
+            }
+        }
+
+        // The index of the latest particle drawn into each region, so that a 
+        // particle spanning several tiles of a region is drawn there once.
+        int[] lastDrawn = new int[regions.size()];
+        Arrays.fill(lastDrawn, -1);
+        int particleIndex = 0;
+
+        try {
+            for (int group = 0; group < particleGroups.length; ++group) {
+                Particle[] particles = particleGroups[group];
+                BufferedImage[] sprites = spriteGroups[group];
+
+                for (int i = 0; i < particles.length; ++i, ++particleIndex) {
+                    if (particles[i].isAbsorbed()) {
+                        continue;
+                    }
+
+                    BufferedImage sprite = sprites[i];
+                    int size = sprite.getWidth();
+                    int x = getPixelCoordinate(particles[i].getX()) - size / 2;
+                    int y = getPixelCoordinate(particles[i].getY()) - size / 2;
+                    int c0 = Math.max(0, getTile(x) - column0);
+                    int c1 = Math.min(columns - 1, 
+                                      getTile(x + size - 1) - column0);
+                    int r0 = Math.max(0, getTile(y) - row0);
+                    int r1 = Math.min(rows - 1, getTile(y + size - 1) - row0);
+
+                    for (int row = r0; row <= r1; ++row) {
+                        for (int column = c0; column <= c1; ++column) {
+                            int tile = row * columns + column;
+
+                            for (int k = tileStarts[tile]; 
+                                     k < tileStarts[tile + 1]; 
+                                     ++k) {
+                                int r = tileRegions[k];
+
+                                if (lastDrawn[r] == particleIndex) {
+                                    continue;
+                                }
+
+                                lastDrawn[r] = particleIndex;
+                                Rectangle region = regions.get(r);
+
+                                if (x >= region.x + region.width 
+                                        || y >= region.y + region.height
+                                        || x + size <= region.x
+                                        || y + size <= region.y) {
+                                    continue;
+                                }
+
+                                if (regionGraphics[r] == null) {
+                                    regionGraphics[r] = g.create();
+                                    regionGraphics[r].clipRect(region.x, 
+                                                               region.y, 
+                                                               region.width, 
+                                                               region.height);
+                                }
+
+                                regionGraphics[r].drawImage(sprite, x, y, null);
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (Graphics graphics : regionGraphics) {
+                if (graphics != null) {
+                    graphics.dispose();
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the regions covering the old and new bounds of all the 
+     * particles that have moved since the previous call. The bounds are 
+     * marked on a grid of square tiles, and the runs of dirty tiles are 
+     * coalesced into rectangles, so that a few moving particles far apart do
+     * not dirty the whole area between them. The particles absorbed since the
+     * previous call contribute their old bounds only, and the particles grown
+     * by a merge get a sprite of the new size.
+     * 
+     * @param width  the width of the drawing area in pixels.
+     * @param height the height of the drawing area in pixels.
+     * @return the dirty regions, empty if no particle moved.
+     */
+    List<Rectangle> computeDirtyRegions(int width, int height) {
+        int columns = Math.max(0, (width + DIRTY_TILE_SIZE - 1) 
+                                          / DIRTY_TILE_SIZE);
+        int rows = Math.max(0, (height + DIRTY_TILE_SIZE - 1) 
+                                       / DIRTY_TILE_SIZE);
+
+        if (dirtyTiles.length < columns * rows) {
+            dirtyTiles = new boolean[columns * rows];
+        } else {
+            Arrays.fill(dirtyTiles, 0, columns * rows, false);
+        }
+
+        for (int group = 0; group < particleGroups.length; ++group) {
+            Particle[] particles = particleGroups[group];
+            BufferedImage[] sprites = spriteGroups[group];
+            int[] bounds = previousBounds[group];
+            int[] radii = spriteRadii[group];
+
+            for (int i = 0; i < particles.length; ++i) {
+                int offset = 4 * i;
+
+                if (particles[i].isAbsorbed()) {
+                    if (bounds[offset + 2] > 0) {
+                        markTiles(bounds, offset, columns, rows);
+                        bounds[offset + 2] = 0;
+                        bounds[offset + 3] = 0;
+                    }
+
+                    continue;
+                }
+
+                int radius = getPixelRadius(particles[i]);
+
+                if (radius != radii[i]) {
+                    radii[i] = radius;
+                    sprites[i] = spriteCache.getSprite(radius, 
+                                                       groupColors[group]);
+                }
+
+                int size = sprites[i].getWidth();
+                int x = getPixelCoordinate(particles[i].getX()) - size / 2;
+                int y = getPixelCoordinate(particles[i].getY()) - size / 2;
+
+                if (x == bounds[offset] 
+                        && y == bounds[offset + 1] 
+                        && size == bounds[offset + 2]) {
+                    continue;
+                }
+
+                markTiles(bounds, offset, columns, rows);
+                bounds[offset] = x;
+                bounds[offset + 1] = y;
+                bounds[offset + 2] = size;
+                bounds[offset + 3] = size;
+                markTiles(bounds, offset, columns, rows);
+            }
+        }
+
+        return coalesceDirtyTiles(columns, rows);
+    }
+
+    /**
+     * Marks the tiles intersecting the given bounds as dirty. Bounds of zero
+     * width mark nothing.
+     */
+    private void markTiles(int[] bounds, int offset, int columns, int rows) {
+        int x = bounds[offset];
+        int y = bounds[offset + 1];
+        int width = bounds[offset + 2];
+        int height = bounds[offset + 3];
+
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        int column0 = Math.max(0, Math.floorDiv(x, DIRTY_TILE_SIZE));
+        int column1 = Math.min(columns - 1, 
+                               Math.floorDiv(x + width - 1, DIRTY_TILE_SIZE));
+        int row0 = Math.max(0, Math.floorDiv(y, DIRTY_TILE_SIZE));
+        int row1 = Math.min(rows - 1, 
+                            Math.floorDiv(y + height - 1, DIRTY_TILE_SIZE));
+
+        for (int row = row0; row <= row1; ++row) {
+            for (int column = column0; column <= column1; ++column) {
+                dirtyTiles[row * columns + column] = true;
+            }
+        }
+    }
+
+    /**
+     * Turns each horizontal run of dirty tiles into a rectangle, and extends 
+     * the rectangle of the row above instead when it spans the same columns.
+     */
+    private List<Rectangle> coalesceDirtyTiles(int columns, int rows) {
+        List<Rectangle> regions = new ArrayList<>();
+        List<Rectangle> previousRow = new ArrayList<>();
+
+        for (int row = 0; row < rows; ++row) {
+            List<Rectangle> currentRow = new ArrayList<>();
+            int column = 0;
+
+            while (column < columns) {
+                if (!dirtyTiles[row * columns + column]) {
+                    ++column;
+                    continue;
+                }
+
+                int start = column;
+
+                while (column < columns && dirtyTiles[row * columns + column]) {
+                    ++column;
+                }
+
+                int x = start * DIRTY_TILE_SIZE;
+                int width = (column - start) * DIRTY_TILE_SIZE;
+                Rectangle region = null;
+
+                for (Rectangle above : previousRow) {
+                    if (above.x == x && above.width == width) {
+                        region = above;
+                        region.height += DIRTY_TILE_SIZE;
+                        break;
+                    }
+                }
+
+                if (region == null) {
+                    region = new Rectangle(x, 
+                                           row * DIRTY_TILE_SIZE, 
+                                           width, 
+                                           DIRTY_TILE_SIZE);
+                    regions.add(region);
+                }
+
+                currentRow.add(region);
+            }
+
+            previousRow = currentRow;
+        }
+
+        return regions;
+    }
+
+    private static int getPixelRadius(Particle particle) {
+        return (int)(particle.getRadius() * PIXELS_PER_UNIT_LENGTH);
+    }
+
+    private static int getTile(int pixel) {
+        return Math.floorDiv(pixel, DIRTY_TILE_SIZE);
+    }
+
+    private static int getPixelCoordinate(double coordinate) {
+        return (int)(coordinate * PIXELS_PER_UNIT_LENGTH);
+    }
+}
@@ -0,0 +1,78 @@
+package net.coderodde.simulation;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class caches one pre-rasterized disc image per pair of pixel radius and
+ * color. Whenever a screen is available, the images are created compatible 
+ * with it so that Java2D may keep them in accelerated memory.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class SpriteCache {
+
+    private final Map<Long, BufferedImage> sprites = new HashMap<>();
+    private final GraphicsConfiguration graphicsConfiguration;
+
+    SpriteCache() {
+        if (GraphicsEnvironment.isHeadless()) {
+            graphicsConfiguration = null;
+        } else {
+            graphicsConfiguration = 
+                    GraphicsEnvironment.getLocalGraphicsEnvironment()
+                                       .getDefaultScreenDevice()
+                                       .getDefaultConfiguration();
+        }
+    }
+
+    /**
+     * Returns the sprite of a disc with the given pixel radius and color,
+     * rasterizing it on the first request.
+     * 
+     * @param pixelRadius the radius of the disc in pixels.
+     * @param color       the color of the disc.
+     * @return the sprite image.
+     */
+    BufferedImage getSprite(int pixelRadius, Color color) {
+        long key = ((long) pixelRadius << 32) | (color.getRGB() & 0xffffffffL);
+        return sprites.computeIfAbsent(
+                key, 
+                (k) -> createSprite(pixelRadius, color));
+    }
+
+    private BufferedImage createSprite(int pixelRadius, Color color) {
+        // A zero-radius particle is kept visible as a single pixel.
+        int size = Math.max(1, 2 * pixelRadius);
+        BufferedImage sprite = 
+                graphicsConfiguration == null ?
+                new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB) :
+                graphicsConfiguration.createCompatibleImage(
+                        size, 
+                        size, 
+                        Transparency.BITMASK);
+
+        Graphics2D g = sprite.createGraphics();
+
+        try {
+            g.setColor(color);
+            g.fillOval(0, 0, 2 * pixelRadius, 2 * pixelRadius);
+        } finally {
+            g.dispose();
+        }
+
+        if (pixelRadius == 0) {
+            // fillOval draws nothing for an empty bounding box.
+            sprite.setRGB(0, 0, color.getRGB());
+        }
+
+        return sprite;
+    }
+}
@@ -0,0 +1,97 @@
+package net.coderodde.simulation;
+
+/**
+ * This class holds the file format shared by {@link TrajectoryWriter} and 
+ * {@link TrajectoryReader}.
+ * <p>
+ * The file starts with the header: {@link #MAGIC}, {@link #VERSION}, the 
+ * world width and height (doubles), the number of position quantization 
+ * levels (int) and the velocity quantum (double). Then follows a sequence of 
+ * frames, each consisting of the frame type byte, the step number (long), the
+ * simulated time (double), the particle count (int), the length of the 
+ * uncompressed payload (int), the length of the compressed payload (int) and
+ * the payload compressed by {@link java.util.zip.Deflater}.
+ * <p>
+ * The payload of a key frame holds the identifiers of the particles as 
+ * varints, followed by the masses, the radii, the coordinates and the 
+ * velocity components as raw doubles; key frames are lossless. The payload of
+ * a delta frame holds, for each particle of the previous frame, the 
+ * differences of its quantized coordinates and velocity components to the 
+ * previous frame, zigzag-encoded as varints. The quantized values of a key 
+ * frame are computed from its exact values, so the quantization error never
+ * accumulates over a chain of delta frames.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class TrajectoryFormat {
+
+    static final int MAGIC = 0x43505354; // "CPST"
+    static final int VERSION = 1;
+    static final byte KEY_FRAME = 0;
+    static final byte DELTA_FRAME = 1;
+
+    /**
+     * The length of the frame header preceding the payload.
+     */
+    static final int FRAME_HEADER_LENGTH = 29;
+
+    /**
+     * The maximum number of bytes a long varint may take.
+     */
+    static final int MAXIMUM_VARLONG_LENGTH = 10;
+
+    private TrajectoryFormat() {}
+
+    static long quantize(double value, double quantum) {
+        return Math.round(value / quantum);
+    }
+
+    static double dequantize(long level, double quantum) {
+        return level * quantum;
+    }
+
+    /**
+     * Writes {@code value} as an unsigned varint to {@code buffer} starting at
+     * {@code offset}.
+     * 
+     * @return the offset following the written bytes.
+     */
+    static int writeVarlong(byte[] buffer, int offset, long value) {
+        while ((value & ~0x7fL) != 0L) {
+            buffer[offset++] = (byte)((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    static long zigzagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long zigzagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int writeDouble(byte[] buffer, int offset, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[offset++] = (byte)(bits >>> shift);
+        }
+
+        return offset;
+    }
+
+    static double readDouble(byte[] buffer, int offset) {
+        long bits = 0L;
+
+        for (int i = 0; i < 8; ++i) {
+            bits = (bits << 8) | (buffer[offset + i] & 0xff);
+        }
+
+        return Double.longBitsToDouble(bits);
+    }
+}
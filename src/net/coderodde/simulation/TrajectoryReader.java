@@ -0,0 +1,321 @@
+package net.coderodde.simulation;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import static net.coderodde.simulation.TrajectoryFormat.DELTA_FRAME;
+import static net.coderodde.simulation.TrajectoryFormat.KEY_FRAME;
+import static net.coderodde.simulation.TrajectoryFormat.MAGIC;
+import static net.coderodde.simulation.TrajectoryFormat.VERSION;
+import static net.coderodde.simulation.TrajectoryFormat.dequantize;
+import static net.coderodde.simulation.TrajectoryFormat.quantize;
+import static net.coderodde.simulation.TrajectoryFormat.readDouble;
+import static net.coderodde.simulation.TrajectoryFormat.zigzagDecode;
+
+/**
+ * This class replays a trajectory file written by {@link TrajectoryWriter}, 
+ * one frame at a time. The values of a key frame are exact; the values of a
+ * delta frame are within half a quantum of the recorded ones.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class TrajectoryReader implements Closeable {
+
+    private final DataInputStream in;
+    private final double worldWidth;
+    private final double worldHeight;
+    private final double positionQuantumX;
+    private final double positionQuantumY;
+    private final double velocityQuantum;
+    private final Inflater inflater = new Inflater();
+    private byte[] compressed = new byte[0];
+    private byte[] payload = new byte[0];
+
+    /**
+     * The read position within {@code payload}.
+     */
+    private int position;
+
+    private boolean keyFrame;
+    private long stepNumber;
+    private double simulatedTime;
+    private int size = -1;
+    private int[] ids = new int[0];
+    private double[] masses = new double[0];
+    private double[] radii = new double[0];
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] velocityX = new double[0];
+    private double[] velocityY = new double[0];
+    private long[] quantizedX = new long[0];
+    private long[] quantizedY = new long[0];
+    private long[] quantizedVelocityX = new long[0];
+    private long[] quantizedVelocityY = new long[0];
+
+    public TrajectoryReader(Path path) throws IOException {
+        this.in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)));
+
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a trajectory file: " + path);
+            }
+
+            this.worldWidth = in.readDouble();
+            this.worldHeight = in.readDouble();
+            int positionLevels = in.readInt();
+            this.positionQuantumX = worldWidth / positionLevels;
+            this.positionQuantumY = worldHeight / positionLevels;
+            this.velocityQuantum = in.readDouble();
+        } catch (IOException ex) {
+            in.close();
+            throw ex;
+        }
+    }
+
+    public double getWorldWidth() {
+        return worldWidth;
+    }
+
+    public double getWorldHeight() {
+        return worldHeight;
+    }
+
+    /**
+     * Reads the next frame.
+     * 
+     * @return {@code false} if the end of the file is reached.
+     * @throws IOException if the file is malformed.
+     */
+    public boolean next() throws IOException {
+        byte type;
+
+        try {
+            type = in.readByte();
+        } catch (EOFException ex) {
+            return false;
+        }
+
+        long frameStepNumber = in.readLong();
+        double frameSimulatedTime = in.readDouble();
+        int frameSize = in.readInt();
+        int length = in.readInt();
+        int compressedLength = in.readInt();
+
+        if (compressed.length < compressedLength) {
+            compressed = new byte[compressedLength];
+        }
+
+        if (payload.length < length) {
+            payload = new byte[length];
+        }
+
+        in.readFully(compressed, 0, compressedLength);
+        inflate(compressedLength, length);
+
+        if (type == KEY_FRAME) {
+            readKeyFrame(frameSize);
+        } else if (type == DELTA_FRAME) {
+            if (frameSize != size) {
+                throw new IOException(
+                        "A delta frame of " + frameSize + " particles " + 
+                        "follows a frame of " + size + " particles.");
+            }
+
+            readDeltaFrame();
+        } else {
+            throw new IOException("Unknown frame type: " + type);
+        }
+
+        keyFrame = type == KEY_FRAME;
+        stepNumber = frameStepNumber;
+        simulatedTime = frameSimulatedTime;
+        return true;
+    }
+
+    public boolean isKeyFrame() {
+        return keyFrame;
+    }
+
+    public long getStepNumber() {
+        return stepNumber;
+    }
+
+    public double getSimulatedTime() {
+        return simulatedTime;
+    }
+
+    /**
+     * Returns the number of particles in the current frame.
+     * 
+     * @return the number of particles.
+     */
+    public int size() {
+        return Math.max(0, size);
+    }
+
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    public double getMass(int index) {
+        return masses[index];
+    }
+
+    public double getRadius(int index) {
+        return radii[index];
+    }
+
+    public double getX(int index) {
+        return x[index];
+    }
+
+    public double getY(int index) {
+        return y[index];
+    }
+
+    public double getVelocityX(int index) {
+        return velocityX[index];
+    }
+
+    public double getVelocityY(int index) {
+        return velocityY[index];
+    }
+
+    /**
+     * Returns new particles holding the state of the current frame, in 
+     * identifier order.
+     * 
+     * @return the particles.
+     */
+    public List<Particle> toParticles() {
+        List<Particle> particles = new ArrayList<>(size());
+
+        for (int i = 0; i < size(); ++i) {
+            Particle particle = new Particle(masses[i], radii[i]);
+            particle.setPositionUnchecked(x[i], y[i]);
+            particle.setVelocityUnchecked(velocityX[i], velocityY[i]);
+            particles.add(particle);
+        }
+
+        return particles;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+
+    private void inflate(int compressedLength, int length) 
+    throws IOException {
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedLength);
+
+        try {
+            int inflated = 0;
+
+            while (inflated < length && !inflater.finished()) {
+                int count = inflater.inflate(payload, 
+                                             inflated, 
+                                             length - inflated);
+
+                if (count == 0 && inflater.needsInput()) {
+                    break;
+                }
+
+                inflated += count;
+            }
+
+            if (inflated != length) {
+                throw new IOException("Truncated frame payload.");
+            }
+        } catch (DataFormatException ex) {
+            throw new IOException("Corrupted frame payload.", ex);
+        }
+    }
+
+    private void readKeyFrame(int frameSize) {
+        ensureCapacity(frameSize);
+        size = frameSize;
+        position = 0;
+
+        for (int i = 0; i < size; ++i) {
+            ids[i] = (int) readVarlong();
+        }
+
+        readDoubles(masses);
+        readDoubles(radii);
+        readDoubles(x);
+        readDoubles(y);
+        readDoubles(velocityX);
+        readDoubles(velocityY);
+
+        for (int i = 0; i < size; ++i) {
+            quantizedX[i] = quantize(x[i], positionQuantumX);
+            quantizedY[i] = quantize(y[i], positionQuantumY);
+            quantizedVelocityX[i] = quantize(velocityX[i], velocityQuantum);
+            quantizedVelocityY[i] = quantize(velocityY[i], velocityQuantum);
+        }
+    }
+
+    private void readDeltaFrame() {
+        position = 0;
+
+        for (int i = 0; i < size; ++i) {
+            quantizedX[i] += zigzagDecode(readVarlong());
+            quantizedY[i] += zigzagDecode(readVarlong());
+            quantizedVelocityX[i] += zigzagDecode(readVarlong());
+            quantizedVelocityY[i] += zigzagDecode(readVarlong());
+            x[i] = dequantize(quantizedX[i], positionQuantumX);
+            y[i] = dequantize(quantizedY[i], positionQuantumY);
+            velocityX[i] = dequantize(quantizedVelocityX[i], velocityQuantum);
+            velocityY[i] = dequantize(quantizedVelocityY[i], velocityQuantum);
+        }
+    }
+
+    private long readVarlong() {
+        long value = 0L;
+
+        for (int shift = 0; ; shift += 7) {
+            byte b = payload[position++];
+            value |= (long)(b & 0x7f) << shift;
+
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+
+    private void readDoubles(double[] values) {
+        for (int i = 0; i < size; ++i) {
+            values[i] = readDouble(payload, position);
+            position += 8;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (ids.length < capacity) {
+            ids = new int[capacity];
+            masses = new double[capacity];
+            radii = new double[capacity];
+            x = new double[capacity];
+            y = new double[capacity];
+            velocityX = new double[capacity];
+            velocityY = new double[capacity];
+            quantizedX = new long[capacity];
+            quantizedY = new long[capacity];
+            quantizedVelocityX = new long[capacity];
+            quantizedVelocityY = new long[capacity];
+        }
+    }
+}
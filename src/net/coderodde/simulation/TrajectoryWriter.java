@@ -0,0 +1,407 @@
+package net.coderodde.simulation;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+import static net.coderodde.simulation.TrajectoryFormat.DELTA_FRAME;
+import static net.coderodde.simulation.TrajectoryFormat.KEY_FRAME;
+import static net.coderodde.simulation.TrajectoryFormat.MAGIC;
+import static net.coderodde.simulation.TrajectoryFormat.MAXIMUM_VARLONG_LENGTH;
+import static net.coderodde.simulation.TrajectoryFormat.VERSION;
+import static net.coderodde.simulation.TrajectoryFormat.quantize;
+import static net.coderodde.simulation.TrajectoryFormat.writeDouble;
+import static net.coderodde.simulation.TrajectoryFormat.writeVarlong;
+import static net.coderodde.simulation.TrajectoryFormat.zigzagEncode;
+
+/**
+ * This class records the trajectory of a simulation to a compressed file. The
+ * positions are quantized to a fraction of the world size, and the velocities
+ * to a fixed quantum. Each frame is delta-encoded against the previous one and
+ * compressed; every {@code keyFrameInterval}-th frame, and every frame after
+ * the set of particles changes, is stored losslessly as a key frame. See 
+ * {@link TrajectoryFormat} for the layout.
+ * <p>
+ * The simulation thread only copies the particle state into a pooled buffer;
+ * encoding, compression and writing happen on a background thread. If the 
+ * encoder falls behind by more than the queue capacity, the simulation thread
+ * waits, so no frame is ever dropped.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class TrajectoryWriter implements SimulationStepListener, 
+                                               Closeable {
+
+    /**
+     * The state of the system at a particular step, as copied by the 
+     * simulation thread.
+     */
+    private static final class Snapshot {
+        long stepNumber;
+        double simulatedTime;
+        int size;
+        int[] ids = new int[0];
+        double[] masses = new double[0];
+        double[] radii = new double[0];
+        double[] x = new double[0];
+        double[] y = new double[0];
+        double[] velocityX = new double[0];
+        double[] velocityY = new double[0];
+
+        void capture(SimulationEngine engine, long stepNumber) {
+            List<Particle> particles = engine.getParticlesInIdOrder();
+            this.stepNumber = stepNumber;
+            this.simulatedTime = engine.getSimulatedTime();
+            this.size = particles.size();
+
+            if (ids.length < size) {
+                ids = new int[size];
+                masses = new double[size];
+                radii = new double[size];
+                x = new double[size];
+                y = new double[size];
+                velocityX = new double[size];
+                velocityY = new double[size];
+            }
+
+            for (int i = 0; i < size; ++i) {
+                Particle particle = particles.get(i);
+                ids[i] = particle.getId();
+                masses[i] = particle.getMass();
+                radii[i] = particle.getRadius();
+                x[i] = particle.getX();
+                y[i] = particle.getY();
+                velocityX[i] = particle.getVelocityX();
+                velocityY[i] = particle.getVelocityY();
+            }
+        }
+    }
+
+    /**
+     * Tells the encoder thread to finish.
+     */
+    private static final Snapshot END_OF_STREAM = new Snapshot();
+
+    private final DataOutputStream out;
+    private final int interval;
+    private final int keyFrameInterval;
+    private final double positionQuantumX;
+    private final double positionQuantumY;
+    private final double velocityQuantum;
+    private final BlockingQueue<Snapshot> pendingSnapshots;
+    private final BlockingQueue<Snapshot> freeSnapshots;
+    private final Thread encoderThread;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private volatile IOException failure;
+    private boolean closed;
+
+    // The encoder state, accessed only by the encoder thread.
+    private long numberOfFrames;
+    private int previousSize = -1;
+    private int[] previousIds = new int[0];
+    private long[] previousX = new long[0];
+    private long[] previousY = new long[0];
+    private long[] previousVelocityX = new long[0];
+    private long[] previousVelocityY = new long[0];
+    private byte[] payload = new byte[0];
+    private byte[] compressed = new byte[0];
+    private volatile long writtenBytes;
+
+    /**
+     * Creates a trajectory file.
+     * 
+     * @param path               the target file.
+     * @param worldWidth         the width of the world.
+     * @param worldHeight        the height of the world.
+     * @param positionResolution the position quantum as a fraction of the 
+     *                           world width and height.
+     * @param velocityQuantum    the velocity quantum.
+     * @param keyFrameInterval   the number of frames between two key frames.
+     * @param interval           the number of steps between two frames.
+     * @param queueCapacity      the number of frames that may wait for 
+     *                           encoding.
+     * @throws IOException if the file cannot be created.
+     */
+    public TrajectoryWriter(Path path,
+                            double worldWidth,
+                            double worldHeight,
+                            double positionResolution,
+                            double velocityQuantum,
+                            int keyFrameInterval,
+                            int interval,
+                            int queueCapacity) throws IOException {
+        if (!(positionResolution >= 1e-9 && positionResolution <= 1.0)) {
+            throw new IllegalArgumentException(
+                    "The position resolution must be within [1e-9, 1]: " + 
+                    positionResolution);
+        }
+
+        if (!(velocityQuantum > 0.0) || Double.isInfinite(velocityQuantum)) {
+            throw new IllegalArgumentException(
+                    "Invalid velocity quantum: " + velocityQuantum);
+        }
+
+        if (keyFrameInterval < 1 || interval < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException(
+                    "The key frame interval, the frame interval and the " + 
+                    "queue capacity must be positive.");
+        }
+
+        int positionLevels = (int) Math.ceil(1.0 / positionResolution);
+        this.positionQuantumX = worldWidth / positionLevels;
+        this.positionQuantumY = worldHeight / positionLevels;
+        this.velocityQuantum = velocityQuantum;
+        this.keyFrameInterval = keyFrameInterval;
+        this.interval = interval;
+        this.pendingSnapshots = new ArrayBlockingQueue<>(queueCapacity);
+        this.freeSnapshots = new ArrayBlockingQueue<>(queueCapacity + 1);
+
+        for (int i = 0; i <= queueCapacity; ++i) {
+            freeSnapshots.add(new Snapshot());
+        }
+
+        this.out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeDouble(worldWidth);
+        out.writeDouble(worldHeight);
+        out.writeInt(positionLevels);
+        out.writeDouble(velocityQuantum);
+
+        this.encoderThread = new Thread(this::encodeSnapshots, 
+                                        "TrajectoryWriter encoder");
+        this.encoderThread.setDaemon(true);
+        this.encoderThread.start();
+    }
+
+    @Override
+    public void onStep(SimulationEngine engine, long stepNumber) {
+        if (stepNumber % interval != 0) {
+            return;
+        }
+
+        if (closed) {
+            throw new IllegalStateException("The trajectory writer is closed.");
+        }
+
+        if (failure != null) {
+            throw new IllegalStateException("Writing the trajectory failed.",
+                                            failure);
+        }
+
+        try {
+            Snapshot snapshot = freeSnapshots.take();
+            snapshot.capture(engine, stepNumber);
+            pendingSnapshots.put(snapshot);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of bytes written so far, excluding the header.
+     * 
+     * @return the number of written bytes.
+     */
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    /**
+     * Waits for the pending frames to be written and closes the file.
+     * 
+     * @throws IOException if writing failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+
+        try {
+            pendingSnapshots.put(END_OF_STREAM);
+            encoderThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void encodeSnapshots() {
+        try {
+            while (true) {
+                Snapshot snapshot = pendingSnapshots.take();
+
+                if (snapshot == END_OF_STREAM) {
+                    out.flush();
+                    return;
+                }
+
+                encode(snapshot);
+                freeSnapshots.add(snapshot);
+            }
+        } catch (IOException ex) {
+            failure = ex;
+            System.err.println("Cannot write the trajectory: " + 
+                               ex.getMessage());
+            // Keep draining so that the simulation thread never blocks.
+            drain();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (pendingSnapshots.take() != END_OF_STREAM) {
+                freeSnapshots.add(new Snapshot());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void encode(Snapshot snapshot) throws IOException {
+        int size = snapshot.size;
+        ensureCapacity(size);
+        boolean keyFrame = numberOfFrames % keyFrameInterval == 0
+                        || size != previousSize
+                        || !Arrays.equals(previousIds, 0, size, 
+                                          snapshot.ids, 0, size);
+
+        int length = keyFrame ? encodeKeyFrame(snapshot) 
+                              : encodeDeltaFrame(snapshot);
+        int compressedLength = compress(length);
+
+        out.writeByte(keyFrame ? KEY_FRAME : DELTA_FRAME);
+        out.writeLong(snapshot.stepNumber);
+        out.writeDouble(snapshot.simulatedTime);
+        out.writeInt(size);
+        out.writeInt(length);
+        out.writeInt(compressedLength);
+        out.write(compressed, 0, compressedLength);
+
+        writtenBytes += TrajectoryFormat.FRAME_HEADER_LENGTH 
+                      + compressedLength;
+        ++numberOfFrames;
+        previousSize = size;
+    }
+
+    private int encodeKeyFrame(Snapshot snapshot) {
+        int size = snapshot.size;
+        ensurePayloadCapacity(size * (MAXIMUM_VARLONG_LENGTH + 48));
+        int offset = 0;
+
+        for (int i = 0; i < size; ++i) {
+            offset = writeVarlong(payload, offset, snapshot.ids[i]);
+            previousIds[i] = snapshot.ids[i];
+        }
+
+        offset = writeDoubles(snapshot.masses, size, offset);
+        offset = writeDoubles(snapshot.radii, size, offset);
+        offset = writeDoubles(snapshot.x, size, offset);
+        offset = writeDoubles(snapshot.y, size, offset);
+        offset = writeDoubles(snapshot.velocityX, size, offset);
+        offset = writeDoubles(snapshot.velocityY, size, offset);
+
+        for (int i = 0; i < size; ++i) {
+            previousX[i] = quantize(snapshot.x[i], positionQuantumX);
+            previousY[i] = quantize(snapshot.y[i], positionQuantumY);
+            previousVelocityX[i] = quantize(snapshot.velocityX[i], 
+                                            velocityQuantum);
+            previousVelocityY[i] = quantize(snapshot.velocityY[i], 
+                                            velocityQuantum);
+        }
+
+        return offset;
+    }
+
+    private int encodeDeltaFrame(Snapshot snapshot) {
+        int size = snapshot.size;
+        ensurePayloadCapacity(size * 4 * MAXIMUM_VARLONG_LENGTH);
+        int offset = 0;
+
+        for (int i = 0; i < size; ++i) {
+            long qx = quantize(snapshot.x[i], positionQuantumX);
+            long qy = quantize(snapshot.y[i], positionQuantumY);
+            long qvx = quantize(snapshot.velocityX[i], velocityQuantum);
+            long qvy = quantize(snapshot.velocityY[i], velocityQuantum);
+            offset = writeVarlong(payload, offset, 
+                                  zigzagEncode(qx - previousX[i]));
+            offset = writeVarlong(payload, offset, 
+                                  zigzagEncode(qy - previousY[i]));
+            offset = writeVarlong(payload, offset, 
+                                  zigzagEncode(qvx - previousVelocityX[i]));
+            offset = writeVarlong(payload, offset, 
+                                  zigzagEncode(qvy - previousVelocityY[i]));
+            previousX[i] = qx;
+            previousY[i] = qy;
+            previousVelocityX[i] = qvx;
+            previousVelocityY[i] = qvy;
+        }
+
+        return offset;
+    }
+
+    private int writeDoubles(double[] values, int size, int offset) {
+        for (int i = 0; i < size; ++i) {
+            offset = writeDouble(payload, offset, values[i]);
+        }
+
+        return offset;
+    }
+
+    private int compress(int length) {
+        deflater.reset();
+        deflater.setInput(payload, 0, length);
+        deflater.finish();
+        int compressedLength = 0;
+
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = Arrays.copyOf(compressed, 
+                                           Math.max(64, 2 * compressed.length));
+            }
+
+            compressedLength += deflater.deflate(compressed, 
+                                                 compressedLength, 
+                                                 compressed.length - 
+                                                         compressedLength);
+        }
+
+        return compressedLength;
+    }
+
+    private void ensureCapacity(int size) {
+        if (previousX.length < size) {
+            previousIds = Arrays.copyOf(previousIds, size);
+            previousX = Arrays.copyOf(previousX, size);
+            previousY = Arrays.copyOf(previousY, size);
+            previousVelocityX = Arrays.copyOf(previousVelocityX, size);
+            previousVelocityY = Arrays.copyOf(previousVelocityY, size);
+        }
+    }
+
+    private void ensurePayloadCapacity(int capacity) {
+        if (payload.length < capacity) {
+            payload = new byte[capacity];
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package net.coderodde.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class bins particles into the square cells of a uniform grid covering
+ * their bounding box. The grid is built by a counting sort in linear time, and
+ * the indices of the particles in each cell are stored contiguously, so 
+ * iterating over a neighbourhood touches as little memory as possible. The
+ * internal arrays are reused between builds.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+final class UniformCellGrid {
+
+    /**
+     * The maximum number of cells per particle. If the requested cell size 
+     * would give more cells, the cells are enlarged.
+     */
+    private static final int MAXIMUM_CELLS_PER_PARTICLE = 4;
+
+    private double requestedCellSize;
+    private double cellSize;
+    private double minX;
+    private double minY;
+    private int columns;
+    private int rows;
+
+    /**
+     * The index of the cell of each particle.
+     */
+    private int[] particleCells = new int[0];
+
+    /**
+     * The particles in cell {@code c} are 
+     * {@code sortedIndices[cellStarts[c]], ..., 
+     * sortedIndices[cellStarts[c + 1] - 1]}.
+     */
+    private int[] cellStarts = new int[1];
+    private int[] sortedIndices = new int[0];
+
+    UniformCellGrid(double cellSize) {
+        setCellSize(cellSize);
+    }
+
+    void setCellSize(double cellSize) {
+        if (!(cellSize > 0.0) || Double.isInfinite(cellSize)) {
+            throw new IllegalArgumentException(
+                    "Invalid cell size: " + cellSize + ".");
+        }
+
+        this.requestedCellSize = cellSize;
+    }
+
+    /**
+     * Bins the given particles.
+     * 
+     * @param particles the particles to bin.
+     */
+    void build(List<Particle> particles) {
+        int size = particles.size();
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+
+        for (int i = 0; i < size; ++i) {
+            Particle particle = particles.get(i);
+            minX = Math.min(minX, particle.getX());
+            minY = Math.min(minY, particle.getY());
+            maxX = Math.max(maxX, particle.getX());
+            maxY = Math.max(maxY, particle.getY());
+        }
+
+        if (size == 0) {
+            minX = minY = maxX = maxY = 0.0;
+        }
+
+        cellSize = requestedCellSize;
+        long maximumCells = Math.max(1L, 
+                                     (long) MAXIMUM_CELLS_PER_PARTICLE * size);
+
+        while (true) {
+            columns = (int) Math.min(Integer.MAX_VALUE, 
+                                     (long)((maxX - minX) / cellSize) + 1);
+            rows = (int) Math.min(Integer.MAX_VALUE, 
+                                  (long)((maxY - minY) / cellSize) + 1);
+
+            if ((long) columns * rows <= maximumCells) {
+                break;
+            }
+
+            cellSize *= 2.0;
+        }
+
+        int cells = columns * rows;
+
+        if (cellStarts.length < cells + 1) {
+            cellStarts = new int[cells + 1];
+        } else {
+            Arrays.fill(cellStarts, 0, cells + 1, 0);
+        }
+
+        if (particleCells.length < size) {
+            particleCells = new int[size];
+            sortedIndices = new int[size];
+        }
+
+        for (int i = 0; i < size; ++i) {
+            Particle particle = particles.get(i);
+            int cell = getRow(particle.getY()) * columns 
+                     + getColumn(particle.getX());
+            particleCells[i] = cell;
+            ++cellStarts[cell + 1];
+        }
+
+        for (int cell = 0; cell < cells; ++cell) {
+            cellStarts[cell + 1] += cellStarts[cell];
+        }
+
+        // Fill the cells back to front so that cellStarts ends up intact.
+        for (int i = size - 1; i >= 0; --i) {
+            sortedIndices[--cellStarts[particleCells[i] + 1]] = i;
+        }
+
+        // Now cellStarts[c + 1] is the start of cell c; shift back by one.
+        System.arraycopy(cellStarts, 1, cellStarts, 0, cells);
+        cellStarts[cells] = size;
+    }
+
+    /**
+     * Returns the actual cell size, which may be larger than the requested one
+     * for sparse particle sets.
+     * 
+     * @return the cell size.
+     */
+    double getCellSize() {
+        return cellSize;
+    }
+
+    int getColumns() {
+        return columns;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the column containing the given x-coordinate, clamped to the 
+     * grid.
+     * 
+     * @param x the x-coordinate.
+     * @return the column index.
+     */
+    int getColumn(double x) {
+        int column = (int)((x - minX) / cellSize);
+        return Math.max(0, Math.min(columns - 1, column));
+    }
+
+    /**
+     * Returns the row containing the given y-coordinate, clamped to the grid.
+     * 
+     * @param y the y-coordinate.
+     * @return the row index.
+     */
+    int getRow(double y) {
+        int row = (int)((y - minY) / cellSize);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    int getCellOfParticle(int particleIndex) {
+        return particleCells[particleIndex];
+    }
+
+    int[] getCellStarts() {
+        return cellStarts;
+    }
+
+    int[] getSortedIndices() {
+        return sortedIndices;
+    }
+}
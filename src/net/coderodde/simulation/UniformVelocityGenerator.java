@@ -0,0 +1,37 @@
+package net.coderodde.simulation;
+
+import java.util.List;
+import java.util.Random;
+import static net.coderodde.simulation.Utils.checkNonInfinite;
+import static net.coderodde.simulation.Utils.checkNonNaN;
+import static net.coderodde.simulation.Utils.checkNonNegative;
+
+/**
+ * This class assigns each velocity component a value drawn uniformly from
+ * {@code [0, maximumVelocity)}.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class UniformVelocityGenerator 
+implements ParticleVelocityGenerator {
+
+    private final double maximumVelocity;
+
+    public UniformVelocityGenerator(double maximumVelocity) {
+        checkNonNaN(maximumVelocity, "The maximum velocity is NaN.");
+        checkNonNegative(maximumVelocity, 
+                         "The maximum velocity is negative: " + 
+                         maximumVelocity);
+        checkNonInfinite(maximumVelocity, "The maximum velocity is infinite.");
+        this.maximumVelocity = maximumVelocity;
+    }
+
+    @Override
+    public void assignVelocities(List<Particle> particles, Random random) {
+        for (Particle particle : particles) {
+            particle.setVelocityX(maximumVelocity * random.nextDouble());
+            particle.setVelocityY(maximumVelocity * random.nextDouble());
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package net.coderodde.simulation;
 
+import java.util.List;
+
 public final class Utils {
 
     private Utils() {}
@@ -21,4 +23,14 @@ public final class Utils {
             throw new IllegalArgumentException(errorMessage);
         }
     }
+
+    static double getMaximumRadius(List<Particle> particles) {
+        double maximumRadius = 0.0;
+
+        for (Particle particle : particles) {
+            maximumRadius = Math.max(maximumRadius, particle.getRadius());
+        }
+
+        return maximumRadius;
+    }
 }
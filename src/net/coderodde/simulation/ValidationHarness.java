@@ -0,0 +1,463 @@
+package net.coderodde.simulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import static net.coderodde.simulation.Configuration.BARNES_HUT_OPENING_ANGLE;
+import static net.coderodde.simulation.Configuration.CELL_LIST_CUTOFF;
+import static net.coderodde.simulation.Configuration.ENERGY_ERROR_TOLERANCE;
+import static net.coderodde.simulation.Configuration.FAR_FIELD_CACHE_NEAR_RADIUS;
+import static net.coderodde.simulation.Configuration.FAR_FIELD_CACHE_TOLERANCE;
+import static net.coderodde.simulation.Configuration.FORCE_ERROR_TOLERANCE;
+import static net.coderodde.simulation.Configuration.FORCE_SOLVER_RECALIBRATION_INTERVAL;
+import static net.coderodde.simulation.Configuration.MAXIMUM_TIME_STEP;
+import static net.coderodde.simulation.Configuration.MINIMUM_TIME_STEP;
+import static net.coderodde.simulation.Configuration.MULTIPLE_TIME_STEPPING_FAR_FORCE_INTERVAL;
+import static net.coderodde.simulation.Configuration.MULTIPLE_TIME_STEPPING_INNER_RADIUS;
+import static net.coderodde.simulation.Configuration.MULTIPLE_TIME_STEPPING_OUTER_RADIUS;
+import static net.coderodde.simulation.Configuration.TIME_STEP;
+import static net.coderodde.simulation.Configuration.TIME_STEP_SAFETY_FACTOR;
+
+/**
+ * This class compares a candidate engine configuration, such as an 
+ * approximate force solver or an adaptive time step, against a reference 
+ * configuration. Both engines start from copies of the same checkpoint and are
+ * advanced to exactly the same simulated times, the last step before each 
+ * sample point being shortened as needed. At each sample point the harness 
+ * records:
+ * <ul>
+ *   <li>the percentiles of the relative per-particle error of the forces 
+ *       the candidate integrated on its latest step, with respect to the 
+ *       exact direct sum at the positions the candidate evaluated them at. 
+ *       Under multiple time stepping these are the latest short-range plus 
+ *       the latest long-range forces. The forces are recorded as the 
+ *       candidate runs, so the error includes the state a solver carries 
+ *       between steps, such as a cache or a calibration,</li>
+ *   <li>the energy drift of both engines, and the relative kinetic energy 
+ *       corrections their velocity normalization has accumulated. The 
+ *       normalization holds the total energy constant, so the drift stays
+ *       at the rounding error level and the accumulated correction is what
+ *       measures the integration error,</li>
+ *   <li>the momentum drift of the candidate with respect to the 
+ *       reference,</li>
+ *   <li>the divergence of the trajectories of the particles with the same 
+ *       identifier.</li>
+ * </ul>
+ * The report also holds the wall-clock times of both engines, measured 
+ * without the sampling overhead.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class ValidationHarness {
+
+    private final List<Particle> checkpoint;
+    private final Function<List<Particle>, SimulationEngine> referenceFactory;
+    private final Function<List<Particle>, SimulationEngine> candidateFactory;
+
+    /**
+     * The candidate engine of the latest run, or {@code null}.
+     */
+    private SimulationEngine candidate;
+
+    /**
+     * Constructs a harness.
+     * 
+     * @param checkpoint       the initial state; it is copied for each engine
+     *                         and never modified.
+     * @param referenceFactory creates the reference engine for the given 
+     *                         particles.
+     * @param candidateFactory creates the candidate engine for the given
+     *                         particles.
+     */
+    public ValidationHarness(
+            List<Particle> checkpoint,
+            Function<List<Particle>, SimulationEngine> referenceFactory,
+            Function<List<Particle>, SimulationEngine> candidateFactory) {
+        Objects.requireNonNull(checkpoint, "The checkpoint is null.");
+        this.checkpoint = copyParticles(checkpoint);
+        this.referenceFactory = 
+                Objects.requireNonNull(referenceFactory, 
+                                       "The reference factory is null.");
+        this.candidateFactory = 
+                Objects.requireNonNull(candidateFactory,
+                                       "The candidate factory is null.");
+    }
+
+    /**
+     * Constructs a harness starting from a checkpoint written by 
+     * {@link SimulationEngine#saveState(OffHeapParticleStore)}.
+     */
+    public ValidationHarness(
+            OffHeapParticleStore checkpoint,
+            Function<List<Particle>, SimulationEngine> referenceFactory,
+            Function<List<Particle>, SimulationEngine> candidateFactory) {
+        this(checkpoint.toParticles(), referenceFactory, candidateFactory);
+    }
+
+    /**
+     * Runs both engines for {@code duration} units of simulated time and 
+     * samples them {@code samples} times at equal intervals.
+     * 
+     * @param duration the simulated time to cover.
+     * @param samples  the number of sample points.
+     * @return the report.
+     */
+    public ValidationReport run(double duration, int samples) {
+        if (!(duration > 0.0) || Double.isInfinite(duration)) {
+            throw new IllegalArgumentException(
+                    "Invalid duration: " + duration + ".");
+        }
+
+        if (samples < 1) {
+            throw new IllegalArgumentException(
+                    "The number of samples must be positive: " + samples);
+        }
+
+        SimulationEngine reference = 
+                referenceFactory.apply(copyParticles(checkpoint));
+        SimulationEngine candidate = 
+                candidateFactory.apply(copyParticles(checkpoint));
+        this.candidate = candidate;
+        // The reference records as well, so that both pay the same overhead.
+        reference.setForceRecording(true);
+        candidate.setForceRecording(true);
+
+        if (reference.getParticles().size() != 
+                candidate.getParticles().size()) {
+            throw new IllegalStateException(
+                    "The engines hold different numbers of particles.");
+        }
+
+        double referenceInitialEnergy = reference.computeTotalEnergy();
+        double candidateInitialEnergy = candidate.computeTotalEnergy();
+        List<ValidationReport.Sample> sampleList = new ArrayList<>(samples);
+        long referenceNanos = 0L;
+        long candidateNanos = 0L;
+
+        for (int sample = 1; sample <= samples; ++sample) {
+            double targetTime = duration * sample / samples;
+            referenceNanos += advance(reference, targetTime);
+            candidateNanos += advance(candidate, targetTime);
+            sampleList.add(
+                    takeSample(reference, 
+                               candidate,
+                               referenceInitialEnergy,
+                               candidateInitialEnergy));
+        }
+
+        return new ValidationReport(sampleList, 
+                                    referenceNanos / 1e9, 
+                                    candidateNanos / 1e9);
+    }
+
+    /**
+     * Returns the candidate engine of the latest run. Its force solver has 
+     * been used only for the steps of the candidate, so the statistics of a 
+     * stateful solver describe the run alone.
+     * 
+     * @return the candidate engine, or {@code null} if nothing has been run.
+     */
+    public SimulationEngine getCandidate() {
+        return candidate;
+    }
+
+    /**
+     * Steps the engine until it reaches exactly the target time.
+     * 
+     * @return the elapsed wall-clock time in nanoseconds.
+     */
+    private static long advance(SimulationEngine engine, double targetTime) {
+        long startTime = System.nanoTime();
+        engine.runHeadlessUntil(targetTime);
+        return System.nanoTime() - startTime;
+    }
+
+    /**
+     * Compares the two engines.
+     */
+    private static ValidationReport.Sample 
+        takeSample(SimulationEngine reference, 
+                   SimulationEngine candidate,
+                   double referenceInitialEnergy,
+                   double candidateInitialEnergy) {
+        if (reference.getSimulatedTime() != candidate.getSimulatedTime()) {
+            throw new IllegalStateException(
+                    "The engines are at different times: " + 
+                    reference.getSimulatedTime() + " vs. " + 
+                    candidate.getSimulatedTime() + ".");
+        }
+
+        int size = reference.getParticles().size();
+        double[] forceErrors = computeForceErrors(candidate);
+
+        double referenceMomentumX = 0.0;
+        double referenceMomentumY = 0.0;
+        double candidateMomentumX = 0.0;
+        double candidateMomentumY = 0.0;
+        double momentumMagnitudeSum = 0.0;
+        double squaredDivergenceSum = 0.0;
+        double maximumDivergence = 0.0;
+
+        for (int id = 0; id < size; ++id) {
+            Particle referenceParticle = reference.getParticle(id);
+            Particle candidateParticle = candidate.getParticle(id);
+            double mass = referenceParticle.getMass();
+            referenceMomentumX += mass * referenceParticle.getVelocityX();
+            referenceMomentumY += mass * referenceParticle.getVelocityY();
+            candidateMomentumX += candidateParticle.getMass() * 
+                                  candidateParticle.getVelocityX();
+            candidateMomentumY += candidateParticle.getMass() * 
+                                  candidateParticle.getVelocityY();
+            momentumMagnitudeSum += mass * referenceParticle.getSpeed();
+
+            double divergence = 
+                    referenceParticle.getDistance(candidateParticle);
+            squaredDivergenceSum += divergence * divergence;
+            maximumDivergence = Math.max(maximumDivergence, divergence);
+        }
+
+        double momentumDeltaX = candidateMomentumX - referenceMomentumX;
+        double momentumDeltaY = candidateMomentumY - referenceMomentumY;
+        double momentumDrift = 
+                Math.sqrt(momentumDeltaX * momentumDeltaX + 
+                          momentumDeltaY * momentumDeltaY) / 
+                momentumMagnitudeSum;
+
+        return new ValidationReport.Sample(
+                reference.getSimulatedTime(),
+                forceErrors,
+                getRelativeDrift(reference.computeTotalEnergy(), 
+                                 referenceInitialEnergy),
+                getRelativeDrift(candidate.computeTotalEnergy(),
+                                 candidateInitialEnergy),
+                reference.getAccumulatedEnergyCorrection(),
+                candidate.getAccumulatedEnergyCorrection(),
+                momentumDrift,
+                Math.sqrt(squaredDivergenceSum / size),
+                maximumDivergence);
+    }
+
+    /**
+     * Computes the sorted relative errors of the forces the engine integrated
+     * on its latest step with respect to the exact forces at the positions
+     * they were evaluated at.
+     */
+    private static double[] computeForceErrors(SimulationEngine engine) {
+        ForceRecord record = engine.getForceRecord();
+        ForceRecord farRecord = 
+                engine.getMultipleTimeStepping() != null ? 
+                engine.getFarForceRecord() :
+                null;
+
+        if (record.isEmpty() || (farRecord != null && farRecord.isEmpty())) {
+            throw new IllegalStateException(
+                    "The engine has not computed forces yet.");
+        }
+
+        int size = record.size();
+
+        if (farRecord != null && farRecord.size() != size) {
+            throw new IllegalStateException(
+                    "The short-range forces are recorded for " + size + 
+                    " particles, the long-range forces for " + 
+                    farRecord.size() + ".");
+        }
+
+        double[] exactX = new double[size];
+        double[] exactY = new double[size];
+        double[] approximateX = new double[size];
+        double[] approximateY = new double[size];
+        record.computeExactForces(exactX, exactY);
+
+        for (int i = 0; i < size; ++i) {
+            approximateX[i] = record.getForceX(i);
+            approximateY[i] = record.getForceY(i);
+        }
+
+        if (farRecord != null) {
+            double[] exactFarX = new double[size];
+            double[] exactFarY = new double[size];
+            farRecord.computeExactForces(exactFarX, exactFarY);
+
+            for (int i = 0; i < size; ++i) {
+                exactX[i] += exactFarX[i];
+                exactY[i] += exactFarY[i];
+                approximateX[i] += farRecord.getForceX(i);
+                approximateY[i] += farRecord.getForceY(i);
+            }
+        }
+
+        double[] forceErrors = new double[size];
+
+        for (int i = 0; i < size; ++i) {
+            double dx = approximateX[i] - exactX[i];
+            double dy = approximateY[i] - exactY[i];
+            double error = Math.sqrt(dx * dx + dy * dy);
+            double exact = Math.sqrt(exactX[i] * exactX[i] + 
+                                     exactY[i] * exactY[i]);
+            forceErrors[i] = exact > 0.0 ? error / exact : 
+                             error > 0.0 ? Double.POSITIVE_INFINITY : 0.0;
+        }
+
+        Arrays.sort(forceErrors);
+        return forceErrors;
+    }
+
+    private static double getRelativeDrift(double value, double initialValue) {
+        return initialValue == 0.0 ? 
+               value : 
+               (value - initialValue) / Math.abs(initialValue);
+    }
+
+    private static List<Particle> copyParticles(List<Particle> particles) {
+        List<Particle> copy = new ArrayList<>(particles.size());
+
+        for (Particle particle : particles) {
+            Particle particleCopy = new Particle(particle.getMass(), 
+                                                 particle.getRadius());
+            particleCopy.setPositionUnchecked(particle.getX(), 
+                                              particle.getY());
+            particleCopy.setVelocityUnchecked(particle.getVelocityX(), 
+                                              particle.getVelocityY());
+            copy.add(particleCopy);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Runs a validation from the command line and prints the report. The 
+     * reference is the direct sum with the fixed time step.
+     * <p>
+     * Usage: {@code <particle file> <world width> <world height> <duration> 
+     * <samples> <candidate> [report CSV]}, where the particle file is a CSV or
+     * binary file readable by {@link ParticleFileLoader}, and the candidate is
+     * one of {@code parallel}, {@code barnes-hut}, {@code cell-list}, 
+     * {@code far-field-cache}, {@code calibrating}, {@code adaptive} and 
+     * {@code respa}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 6) {
+            System.err.println(
+                    "Usage: <particle file> <world width> <world height> " + 
+                    "<duration> <samples> " + 
+                    "<parallel|barnes-hut|cell-list|far-field-cache|" + 
+                    "calibrating|adaptive|" + 
+                    "respa> " + 
+                    "[report CSV]");
+            return;
+        }
+
+        Path particleFile = Paths.get(args[0]);
+        double worldWidth = Double.parseDouble(args[1]);
+        double worldHeight = Double.parseDouble(args[2]);
+        double duration = Double.parseDouble(args[3]);
+        int samples = Integer.parseInt(args[4]);
+        String candidateName = args[5];
+        List<Particle> particles = 
+                particleFile.toString().endsWith(".csv") ?
+                ParticleFileLoader.loadCsv(particleFile) :
+                ParticleFileLoader.loadBinary(particleFile);
+
+        Function<List<Particle>, SimulationEngine> referenceFactory = 
+                (particleList) -> 
+                        new SimulationEngine(
+                                particleList,
+                                new DefaultParticlePairForce(),
+                                new RepellingParticlePairPotentialEnergy(),
+                                worldWidth,
+                                worldHeight,
+                                TIME_STEP);
+
+        Function<List<Particle>, SimulationEngine> candidateFactory = 
+                (particleList) -> {
+            SimulationEngine engine = referenceFactory.apply(particleList);
+
+            switch (candidateName) {
+                case "parallel":
+                    engine.setForceSolver(new ParallelDirectSumForceSolver());
+                    break;
+
+                case "barnes-hut":
+                    engine.setForceSolver(
+                            new BarnesHutForceSolver(
+                                    BARNES_HUT_OPENING_ANGLE));
+                    break;
+
+                case "cell-list":
+                    engine.setForceSolver(
+                            new CellListForceSolver(CELL_LIST_CUTOFF));
+                    break;
+
+                case "far-field-cache":
+                    engine.setForceSolver(
+                            new FarFieldCacheForceSolver(
+                                    FAR_FIELD_CACHE_NEAR_RADIUS,
+                                    FAR_FIELD_CACHE_TOLERANCE));
+                    break;
+
+                case "calibrating":
+                    engine.setForceSolver(
+                            new CalibratingForceSolver(
+                                    Arrays.asList(
+                                        new ParallelDirectSumForceSolver(),
+                                        new BarnesHutForceSolver(
+                                                BARNES_HUT_OPENING_ANGLE),
+                                        new CellListForceSolver(
+                                                CELL_LIST_CUTOFF)),
+                                    FORCE_ERROR_TOLERANCE,
+                                    FORCE_SOLVER_RECALIBRATION_INTERVAL));
+                    break;
+
+                case "adaptive":
+                    engine.setTimeStepController(
+                            new AdaptiveTimeStepController(
+                                    MINIMUM_TIME_STEP,
+                                    MAXIMUM_TIME_STEP,
+                                    TIME_STEP_SAFETY_FACTOR,
+                                    ENERGY_ERROR_TOLERANCE));
+                    break;
+
+                case "respa":
+                    engine.setMultipleTimeStepping(
+                            new MultipleTimeStepping(
+                                    MULTIPLE_TIME_STEPPING_INNER_RADIUS,
+                                    MULTIPLE_TIME_STEPPING_OUTER_RADIUS,
+                                    MULTIPLE_TIME_STEPPING_FAR_FORCE_INTERVAL));
+                    break;
+
+                default:
+                    throw new IllegalArgumentException(
+                            "Unknown candidate: " + candidateName);
+            }
+
+            return engine;
+        };
+
+        ValidationHarness harness = new ValidationHarness(particles, 
+                                                          referenceFactory, 
+                                                          candidateFactory);
+        ValidationReport report = harness.run(duration, samples);
+        report.print(System.out);
+        ForceSolver candidateSolver = harness.getCandidate().getForceSolver();
+
+        if (candidateSolver instanceof FarFieldCacheForceSolver) {
+            FarFieldCacheForceSolver cache = 
+                    (FarFieldCacheForceSolver) candidateSolver;
+            System.out.printf("Far-field cache hit rate: %.3f, " + 
+                              "estimated force error: %.2e%n",
+                              cache.getHitRate(),
+                              cache.getEstimatedError());
+        }
+
+        if (args.length > 6) {
+            report.writeCsv(Paths.get(args[6]));
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package net.coderodde.simulation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class holds the result of a {@link ValidationHarness} run: one row per
+ * sample point, and the measured running times of the reference and the 
+ * candidate engines.
+ * 
+ * @author Rodion "rodde" Efremov
+ * @version 1.7 (Oct 18, 2026)
+ */
+public final class ValidationReport {
+
+    /**
+     * The measurements taken at a single sample point.
+     */
+    public static final class Sample {
+
+        /**
+         * The simulated time of the reference engine.
+         */
+        public final double time;
+
+        /**
+         * The median of the relative per-particle force errors.
+         */
+        public final double forceError50;
+
+        /**
+         * The 90th percentile of the relative per-particle force errors.
+         */
+        public final double forceError90;
+
+        /**
+         * The 99th percentile of the relative per-particle force errors.
+         */
+        public final double forceError99;
+
+        /**
+         * The largest relative per-particle force error.
+         */
+        public final double forceErrorMax;
+
+        /**
+         * The relative deviation of the total energy of the reference engine 
+         * from its initial value. The velocity normalization keeps the total
+         * energy constant, so this stays at the rounding error level; see
+         * {@link #referenceEnergyCorrection}.
+         */
+        public final double referenceEnergyDrift;
+
+        /**
+         * The relative deviation of the total energy of the candidate engine
+         * from its initial value.
+         */
+        public final double candidateEnergyDrift;
+
+        /**
+         * The sum of the absolute relative kinetic energy corrections the 
+         * velocity normalization of the reference engine has applied so far.
+         */
+        public final double referenceEnergyCorrection;
+
+        /**
+         * The sum of the absolute relative kinetic energy corrections the
+         * velocity normalization of the candidate engine has applied so far.
+         */
+        public final double candidateEnergyCorrection;
+
+        /**
+         * The length of the difference of the total momenta of the two 
+         * engines, relative to the sum of the momentum magnitudes of the 
+         * reference particles.
+         */
+        public final double momentumDrift;
+
+        /**
+         * The root mean square distance between the positions of the 
+         * particles with the same identifier.
+         */
+        public final double rmsDivergence;
+
+        /**
+         * The largest distance between the positions of the particles with
+         * the same identifier.
+         */
+        public final double maximumDivergence;
+
+        Sample(double time,
+               double[] sortedForceErrors,
+               double referenceEnergyDrift,
+               double candidateEnergyDrift,
+               double referenceEnergyCorrection,
+               double candidateEnergyCorrection,
+               double momentumDrift,
+               double rmsDivergence,
+               double maximumDivergence) {
+            this.time = time;
+            this.forceError50 = percentile(sortedForceErrors, 0.50);
+            this.forceError90 = percentile(sortedForceErrors, 0.90);
+            this.forceError99 = percentile(sortedForceErrors, 0.99);
+            this.forceErrorMax = percentile(sortedForceErrors, 1.0);
+            this.referenceEnergyDrift = referenceEnergyDrift;
+            this.candidateEnergyDrift = candidateEnergyDrift;
+            this.referenceEnergyCorrection = referenceEnergyCorrection;
+            this.candidateEnergyCorrection = candidateEnergyCorrection;
+            this.momentumDrift = momentumDrift;
+            this.rmsDivergence = rmsDivergence;
+            this.maximumDivergence = maximumDivergence;
+        }
+    }
+
+    private static final String CSV_HEADER = 
+            "time,forceError50,forceError90,forceError99,forceErrorMax," + 
+            "referenceEnergyDrift,candidateEnergyDrift," + 
+            "referenceEnergyCorrection,candidateEnergyCorrection," + 
+            "momentumDrift,rmsDivergence,maximumDivergence";
+
+    private final List<Sample> samples;
+    private final double referenceSeconds;
+    private final double candidateSeconds;
+
+    ValidationReport(List<Sample> samples, 
+                     double referenceSeconds, 
+                     double candidateSeconds) {
+        this.samples = Collections.unmodifiableList(new ArrayList<>(samples));
+        this.referenceSeconds = referenceSeconds;
+        this.candidateSeconds = candidateSeconds;
+    }
+
+    public List<Sample> getSamples() {
+        return samples;
+    }
+
+    /**
+     * Returns the wall-clock time spent stepping the reference engine.
+     * 
+     * @return the time in seconds.
+     */
+    public double getReferenceSeconds() {
+        return referenceSeconds;
+    }
+
+    /**
+     * Returns the wall-clock time spent stepping the candidate engine.
+     * 
+     * @return the time in seconds.
+     */
+    public double getCandidateSeconds() {
+        return candidateSeconds;
+    }
+
+    /**
+     * Returns how many times faster the candidate covered the same simulated
+     * time as the reference.
+     * 
+     * @return the speedup.
+     */
+    public double getSpeedup() {
+        return referenceSeconds / candidateSeconds;
+    }
+
+    /**
+     * Checks that no sample exceeds the given limits. Pass 
+     * {@link Double#POSITIVE_INFINITY} to disable a limit. Meant for using 
+     * the harness as a regression test.
+     * 
+     * @param maximumForceError99     the limit of the 99th percentile of the
+     *                                relative force errors.
+     * @param maximumEnergyCorrection the limit of the accumulated energy 
+     *                                correction of the candidate.
+     * @param maximumMomentumDrift    the limit of the momentum drift.
+     * @param maximumRmsDivergence    the limit of the root mean square 
+     *                                trajectory divergence.
+     * @throws IllegalStateException if a limit is exceeded.
+     */
+    public void checkWithin(double maximumForceError99,
+                            double maximumEnergyCorrection,
+                            double maximumMomentumDrift,
+                            double maximumRmsDivergence) {
+        for (Sample sample : samples) {
+            check(sample.time, "99th percentile force error", 
+                  sample.forceError99, maximumForceError99);
+            check(sample.time, "accumulated energy correction",
+                  sample.candidateEnergyCorrection, maximumEnergyCorrection);
+            check(sample.time, "momentum drift",
+                  sample.momentumDrift, maximumMomentumDrift);
+            check(sample.time, "RMS trajectory divergence",
+                  sample.rmsDivergence, maximumRmsDivergence);
+        }
+    }
+
+    /**
+     * Prints a human-readable table of the samples followed by the timings.
+     * 
+     * @param out the target stream.
+     */
+    public void print(PrintStream out) {
+        out.printf(Locale.ROOT, 
+                   "%10s %10s %10s %10s %10s %10s %10s %10s %10s " + 
+                   "%10s %10s %10s%n",
+                   "time", "fErr50", "fErr90", "fErr99", "fErrMax",
+                   "refEDrift", "candEDrift", "refECorr", "candECorr", 
+                   "pDrift", "rmsDiv", "maxDiv");
+
+        for (Sample sample : samples) {
+            out.printf(Locale.ROOT,
+                       "%10.4f %10.3e %10.3e %10.3e %10.3e " + 
+                       "%10.3e %10.3e %10.3e %10.3e %10.3e %10.3e " + 
+                       "%10.3e%n",
+                       sample.time,
+                       sample.forceError50,
+                       sample.forceError90,
+                       sample.forceError99,
+                       sample.forceErrorMax,
+                       sample.referenceEnergyDrift,
+                       sample.candidateEnergyDrift,
+                       sample.referenceEnergyCorrection,
+                       sample.candidateEnergyCorrection,
+                       sample.momentumDrift,
+                       sample.rmsDivergence,
+                       sample.maximumDivergence);
+        }
+
+        out.printf(Locale.ROOT, 
+                   "Reference: %.3f s, candidate: %.3f s, speedup: %.2f%n",
+                   referenceSeconds,
+                   candidateSeconds,
+                   getSpeedup());
+    }
+
+    /**
+     * Writes the samples as CSV.
+     * 
+     * @param path the target file.
+     * @throws IOException if writing fails.
+     */
+    public void writeCsv(Path path) throws IOException {
+        try (BufferedWriter writer = 
+                Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(CSV_HEADER);
+            writer.newLine();
+
+            for (Sample sample : samples) {
+                writer.write(String.format(
+                        Locale.ROOT,
+                        "%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s,%s",
+                        sample.time,
+                        sample.forceError50,
+                        sample.forceError90,
+                        sample.forceError99,
+                        sample.forceErrorMax,
+                        sample.referenceEnergyDrift,
+                        sample.candidateEnergyDrift,
+                        sample.referenceEnergyCorrection,
+                        sample.candidateEnergyCorrection,
+                        sample.momentumDrift,
+                        sample.rmsDivergence,
+                        sample.maximumDivergence));
+                writer.newLine();
+            }
+        }
+    }
+
+    private static void check(double time, 
+                              String name, 
+                              double value, 
+                              double limit) {
+        if (!(value <= limit)) {
+            throw new IllegalStateException(
+                    "The " + name + " " + value + " at time " + time + 
+                    " exceeds the limit " + limit + ".");
+        }
+    }
+
+    private static double percentile(double[] sortedValues, double fraction) {
+        if (sortedValues.length == 0) {
+            return 0.0;
+        }
+
+        int index = (int) Math.ceil(fraction * sortedValues.length) - 1;
+        return sortedValues[Math.max(0, index)];
+    }
+}